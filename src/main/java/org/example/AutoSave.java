@@ -0,0 +1,219 @@
+package org.example;
+
+import javafx.application.Platform;
+import javafx.beans.InvalidationListener;
+import javafx.beans.value.ObservableIntegerValue;
+import javafx.collections.ListChangeListener;
+import javafx.collections.ObservableList;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.zip.CRC32;
+
+/**
+ * Sauvegarde continue de l'état de la loterie sous forme de {@link SessionSnapshot} : participants,
+ * objets, bonus et tour en cours. Ce dernier ne se voit pas dans les listes : le code qui le change
+ * appelle {@link #markDirty()}.
+ * <p>
+ * Chaque modification marque l'état comme modifié et relance un délai de
+ * {@code debounceMillis} ; une rafale de saisies ne donne donc qu'une écriture, au plus tard
+ * {@link #MAX_DEFERRALS} délais après la première. Le contenu est construit sur le thread JavaFX,
+ * comparé par CRC32 au dernier contenu écrit, et n'est confié au {@link PersistenceService} que
+ * s'il a changé ; l'écriture passe par un fichier temporaire renommé ({@link Save#write}).
+ * <p>
+ * Le délai se règle avec {@code -Dloterie.autosave.debounce=<ms>}.
+ */
+final class AutoSave implements AutoCloseable {
+
+    static final long DEFAULT_DEBOUNCE_MILLIS = 750;
+    /** Nombre de délais au bout duquel des modifications ininterrompues sont tout de même écrites. */
+    static final int MAX_DEFERRALS = 5;
+
+    private static final long NONE = -1;
+
+    private final PersistenceService persistence;
+    private final Path file;
+    private final ObservableList<Participant> participants;
+    private final ObservableList<String> objets;
+    private final ObservableIntegerValue bonus;
+    private final Supplier<Integer> roundId;
+    private final Supplier<String> signature;
+    private final long debounceMillis;
+    private final Executor fxThread;
+    private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "autosave-timer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final InvalidationListener changed = obs -> markDirty();
+    private final ListChangeListener<Participant> participantsChanged = this::participantsChanged;
+    private final ListChangeListener<String> objetsChanged = change -> markDirty();
+
+    // Thread JavaFX.
+    private boolean dirty;
+    private long dirtySince;
+    private ScheduledFuture<?> pending;
+    private long lastHash = NONE;
+
+    AutoSave(PersistenceService persistence,
+             ObservableList<Participant> participants,
+             ObservableList<String> objets,
+             ObservableIntegerValue bonus,
+             Supplier<Integer> roundId,
+             Supplier<String> signature) {
+        this(persistence, Save.FILE, participants, objets, bonus, roundId, signature,
+                Long.getLong("loterie.autosave.debounce", DEFAULT_DEBOUNCE_MILLIS), Platform::runLater);
+    }
+
+    AutoSave(PersistenceService persistence,
+             Path file,
+             ObservableList<Participant> participants,
+             ObservableList<String> objets,
+             ObservableIntegerValue bonus,
+             Supplier<Integer> roundId,
+             Supplier<String> signature,
+             long debounceMillis,
+             Executor fxThread) {
+        this.persistence = persistence;
+        this.file = file;
+        this.participants = participants;
+        this.objets = objets;
+        this.bonus = bonus;
+        this.roundId = roundId;
+        this.signature = signature;
+        this.debounceMillis = Math.max(0, debounceMillis);
+        this.fxThread = fxThread;
+    }
+
+    /**
+     * Commence à suivre l'état. L'état présent, celui qui vient d'être relu, est tenu pour déjà
+     * écrit s'il l'a été depuis la sauvegarde binaire.
+     */
+    void start() {
+        participants.forEach(this::watch);
+        participants.addListener(participantsChanged);
+        objets.addListener(objetsChanged);
+        bonus.addListener(changed);
+        lastHash = hash(snapshot());
+        if (!Files.exists(file)) {
+            // État relu d'une ancienne sauvegarde texte, ou rien à relire : il est écrit au format binaire.
+            markDirty();
+        }
+    }
+
+    /** Écrit l'état tout de suite, même inchangé, par exemple à la demande de l'utilisateur. */
+    CompletableFuture<Path> saveNow() {
+        cancelPending();
+        dirty = false;
+        return write(true);
+    }
+
+    /** Écrit les modifications en attente sans attendre la fin du délai. */
+    CompletableFuture<Path> flush() {
+        cancelPending();
+        if (!dirty) {
+            return CompletableFuture.completedFuture(file);
+        }
+        dirty = false;
+        return write(false);
+    }
+
+    /** Écrit ce qui reste en attente et cesse de suivre l'état. */
+    @Override
+    public void close() {
+        participants.removeListener(participantsChanged);
+        objets.removeListener(objetsChanged);
+        bonus.removeListener(changed);
+        participants.forEach(this::unwatch);
+        flush();
+        timer.shutdownNow();
+    }
+
+    private void participantsChanged(ListChangeListener.Change<? extends Participant> change) {
+        while (change.next()) {
+            change.getRemoved().forEach(this::unwatch);
+            change.getAddedSubList().forEach(this::watch);
+        }
+        markDirty();
+    }
+
+    private void watch(Participant participant) {
+        participant.nameProperty().addListener(changed);
+        participant.kamasProperty().addListener(changed);
+        participant.donationProperty().addListener(changed);
+        participant.stakeProperty().addListener(changed);
+        participant.willReplayProperty().addListener(changed);
+        participant.paidProperty().addListener(changed);
+    }
+
+    private void unwatch(Participant participant) {
+        participant.nameProperty().removeListener(changed);
+        participant.kamasProperty().removeListener(changed);
+        participant.donationProperty().removeListener(changed);
+        participant.stakeProperty().removeListener(changed);
+        participant.willReplayProperty().removeListener(changed);
+        participant.paidProperty().removeListener(changed);
+    }
+
+    /** Signale une modification de l'état ; l'écriture suit à la fin du délai. */
+    void markDirty() {
+        long now = System.nanoTime();
+        if (!dirty) {
+            dirty = true;
+            dirtySince = now;
+        }
+        cancelPending();
+        if (now - dirtySince >= TimeUnit.MILLISECONDS.toNanos(debounceMillis * MAX_DEFERRALS)) {
+            flush();
+            return;
+        }
+        pending = timer.schedule(() -> fxThread.execute(this::flush), debounceMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void cancelPending() {
+        if (pending != null) {
+            pending.cancel(false);
+            pending = null;
+        }
+    }
+
+    private CompletableFuture<Path> write(boolean force) {
+        byte[] content = snapshot();
+        long hash = hash(content);
+        if (!force && hash == lastHash) {
+            return CompletableFuture.completedFuture(file);
+        }
+        lastHash = hash;
+        CompletableFuture<Path> written = persistence.submit("sauvegarde automatique", () -> Save.write(file, content));
+        written.whenComplete((path, ex) -> {
+            if (ex != null) {
+                // Rien n'est écrit : la prochaine modification retentera, même à contenu égal.
+                fxThread.execute(() -> {
+                    if (lastHash == hash) {
+                        lastHash = NONE;
+                    }
+                });
+            }
+        });
+        return written;
+    }
+
+    private byte[] snapshot() {
+        return new SessionSnapshot(participants, objets, bonus.get(), roundId.get(), signature.get()).encode();
+    }
+
+    /** CRC32 du corps, sans la somme de contrôle finale : avec elle, le CRC serait toujours le même. */
+    private static long hash(byte[] content) {
+        CRC32 crc = new CRC32();
+        crc.update(content, 0, content.length - 4);
+        return crc.getValue();
+    }
+}
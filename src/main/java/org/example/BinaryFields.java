@@ -0,0 +1,128 @@
+package org.example;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Variable-length encoding of record fields: unsigned LEB128 varints for counts and ids, zigzag
+ * varints for signed values and length-prefixed UTF-8 for strings. Small numbers take one byte and
+ * strings need no escaping, so records stay compact and decode without splitting or Base64.
+ */
+final class BinaryFields {
+
+    private BinaryFields() {}
+
+    /** Growable buffer collecting the fields of one record. */
+    static final class Writer {
+        private byte[] bytes = new byte[64];
+        private int size;
+
+        Writer putByte(int value) {
+            ensure(1);
+            bytes[size++] = (byte) value;
+            return this;
+        }
+
+        Writer putVarInt(int value) {
+            return putVarLong(value & 0xFFFFFFFFL);
+        }
+
+        Writer putVarLong(long value) {
+            ensure(10);
+            while ((value & ~0x7FL) != 0) {
+                bytes[size++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            bytes[size++] = (byte) value;
+            return this;
+        }
+
+        Writer putSignedVarLong(long value) {
+            return putVarLong((value << 1) ^ (value >> 63));
+        }
+
+        Writer putString(String value) {
+            byte[] utf8 = value == null ? new byte[0] : value.getBytes(StandardCharsets.UTF_8);
+            putVarInt(utf8.length);
+            ensure(utf8.length);
+            System.arraycopy(utf8, 0, bytes, size, utf8.length);
+            size += utf8.length;
+            return this;
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(bytes, size);
+        }
+
+        private void ensure(int extra) {
+            if (size + extra > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + extra));
+            }
+        }
+    }
+
+    /**
+     * Cursor over the fields of one record. Reading past the end of the range, or a varint longer
+     * than its type allows, throws {@link IllegalArgumentException}.
+     */
+    static final class Reader {
+        private final byte[] bytes;
+        private final int end;
+        private int position;
+
+        Reader(byte[] bytes, int start, int end) {
+            this.bytes = bytes;
+            this.position = start;
+            this.end = end;
+        }
+
+        boolean hasRemaining() {
+            return position < end;
+        }
+
+        int getByte() {
+            require(1);
+            return bytes[position++] & 0xFF;
+        }
+
+        int getVarInt() {
+            long value = getVarLong();
+            if (value >>> 32 != 0) {
+                throw new IllegalArgumentException("varint out of range");
+            }
+            return (int) value;
+        }
+
+        long getVarLong() {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                require(1);
+                byte b = bytes[position++];
+                value |= (long) (b & 0x7F) << shift;
+                if (b >= 0) {
+                    return value;
+                }
+            }
+            throw new IllegalArgumentException("varint too long");
+        }
+
+        long getSignedVarLong() {
+            long raw = getVarLong();
+            return (raw >>> 1) ^ -(raw & 1);
+        }
+
+        String getString() {
+            int length = getVarInt();
+            require(length);
+            String value = FieldDecoder.utf8(bytes, position, position + length);
+            position += length;
+            return value;
+        }
+
+        private void require(int count) {
+            if (count < 0 || count > end - position) {
+                throw new IllegalArgumentException("truncated record");
+            }
+        }
+    }
+}
@@ -0,0 +1,221 @@
+package org.example;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact fixed-width alternative to loterie-dons.csv.
+ * <p>
+ * The file starts with a 16-byte header (magic, version, record size) followed by 21-byte records:
+ * epoch millis (UTC wall clock of the CSV timestamp), round id, type ordinal, player id and amount.
+ * Player names live in a sidecar dictionary ({@code <file>.players}, one UTF-8 name per line, the
+ * line index being the id). Reads go through a {@link MappedByteBuffer} and can be consumed as
+ * primitives through {@link RecordVisitor} without allocating an object per entry.
+ * <p>
+ * Usage: {@code java -cp demoloterie.jar org.example.BinaryLedgerFormat import loterie-dons.csv loterie-dons.bin}
+ * or {@code ... export loterie-dons.bin loterie-dons.csv}.
+ */
+public final class BinaryLedgerFormat {
+
+    static final int MAGIC = 0x444C4742; // "DLGB"
+    static final short VERSION = 1;
+    static final int HEADER_SIZE = 16;
+    static final int RECORD_SIZE = 8 + 4 + 1 + 4 + 4;
+
+    private static final DonationEntry.Type[] TYPES = DonationEntry.Type.values();
+
+    private BinaryLedgerFormat() {}
+
+    /** Receives one record at a time as primitives. */
+    @FunctionalInterface
+    public interface RecordVisitor {
+        void visit(long epochMillis, int roundId, byte type, int playerId, int amount);
+    }
+
+    /**
+     * Converts a CSV ledger into the binary format: its closed segments, its archived rounds, then
+     * the file itself. Superseded rows are resolved on the way, so the binary file only contains
+     * live entries. The CSV side is only read; nothing is repaired, indexed or rebuilt there.
+     */
+    public static void importCsv(Path csv, Path binary) throws IOException {
+        PlayerRegistry registry = new PlayerRegistry();
+        List<DonationEntry> entries = new ArrayList<>();
+        for (Path segment : new LedgerSegments(csv, LedgerSegments.Policy.DISABLED, registry).findClosedFiles()) {
+            entries.addAll(DonationsLedger.readLiveRows(segment));
+        }
+        LedgerArchive archive = new LedgerArchive(csv, registry);
+        archive.loadReadOnly();
+        entries.addAll(archive.liveEntries());
+        entries.addAll(DonationsLedger.readLiveRows(csv));
+        write(entries, binary);
+    }
+
+    /** Writes the binary ledger back as a human-readable CSV ledger. */
+    public static void exportCsv(Path binary, Path csv) throws IOException {
+        try (Reader reader = Reader.open(binary);
+             BufferedWriter out = Files.newBufferedWriter(csv, StandardCharsets.UTF_8)) {
+            out.write(DonationsLedger.HEADER);
+            out.write(System.lineSeparator());
+            for (int i = 0; i < reader.size(); i++) {
+                out.write(reader.entryAt(i).toCsv());
+                out.write(System.lineSeparator());
+            }
+        }
+    }
+
+    public static List<DonationEntry> readAll(Path binary) throws IOException {
+        try (Reader reader = Reader.open(binary)) {
+            List<DonationEntry> entries = new ArrayList<>(reader.size());
+            for (int i = 0; i < reader.size(); i++) {
+                entries.add(reader.entryAt(i));
+            }
+            return entries;
+        }
+    }
+
+    static void write(List<DonationEntry> entries, Path binary) throws IOException {
+        Map<String, Integer> dictionary = new HashMap<>();
+        List<String> players = new ArrayList<>();
+        try (FileChannel channel = FileChannel.open(binary,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(RECORD_SIZE * 4096).order(ByteOrder.LITTLE_ENDIAN);
+            buffer.putInt(MAGIC).putShort(VERSION).putShort((short) RECORD_SIZE).putLong(0L);
+            for (DonationEntry entry : entries) {
+                if (buffer.remaining() < RECORD_SIZE) {
+                    drain(channel, buffer);
+                }
+                int playerId = dictionary.computeIfAbsent(entry.getPlayer(), name -> {
+                    players.add(name);
+                    return players.size() - 1;
+                });
+                buffer.putLong(entry.getTimestamp().toInstant(ZoneOffset.UTC).toEpochMilli())
+                        .putInt(entry.getRoundId())
+                        .put((byte) entry.getType().ordinal())
+                        .putInt(playerId)
+                        .putInt(entry.getAmount());
+            }
+            drain(channel, buffer);
+        }
+        Files.write(playersFile(binary), players, StandardCharsets.UTF_8);
+    }
+
+    private static void drain(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    static Path playersFile(Path binary) {
+        return binary.resolveSibling(binary.getFileName() + ".players");
+    }
+
+    /** Memory-mapped, read-only view over a binary ledger and its player dictionary. */
+    public static final class Reader implements AutoCloseable {
+        private final FileChannel channel;
+        private final MappedByteBuffer buffer;
+        private final List<String> players;
+        private final int size;
+
+        private Reader(FileChannel channel, MappedByteBuffer buffer, List<String> players) {
+            this.channel = channel;
+            this.buffer = buffer;
+            this.players = players;
+            this.size = (buffer.limit() - HEADER_SIZE) / RECORD_SIZE;
+        }
+
+        public static Reader open(Path binary) throws IOException {
+            FileChannel channel = FileChannel.open(binary, StandardOpenOption.READ);
+            try {
+                long length = channel.size();
+                if (length < HEADER_SIZE || length > Integer.MAX_VALUE) {
+                    throw new IOException("Invalid binary ledger size: " + length);
+                }
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+                buffer.order(ByteOrder.LITTLE_ENDIAN);
+                if (buffer.getInt(0) != MAGIC
+                        || buffer.getShort(4) != VERSION
+                        || buffer.getShort(6) != RECORD_SIZE) {
+                    throw new IOException("Not a binary ledger: " + binary);
+                }
+                Path dictionary = playersFile(binary);
+                List<String> players = Files.exists(dictionary)
+                        ? Files.readAllLines(dictionary, StandardCharsets.UTF_8)
+                        : List.of();
+                return new Reader(channel, buffer, players);
+            } catch (IOException | RuntimeException ex) {
+                channel.close();
+                throw ex;
+            }
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public List<String> players() {
+            return players;
+        }
+
+        public String player(int playerId) {
+            return playerId >= 0 && playerId < players.size() ? players.get(playerId) : "";
+        }
+
+        public void forEach(RecordVisitor visitor) {
+            int position = HEADER_SIZE;
+            for (int i = 0; i < size; i++, position += RECORD_SIZE) {
+                visitor.visit(
+                        buffer.getLong(position),
+                        buffer.getInt(position + 8),
+                        buffer.get(position + 12),
+                        buffer.getInt(position + 13),
+                        buffer.getInt(position + 17)
+                );
+            }
+        }
+
+        public DonationEntry entryAt(int index) {
+            int position = HEADER_SIZE + index * RECORD_SIZE;
+            return new DonationEntry(
+                    LocalDateTime.ofEpochSecond(
+                            Math.floorDiv(buffer.getLong(position), 1000L),
+                            (int) Math.floorMod(buffer.getLong(position), 1000L) * 1_000_000,
+                            ZoneOffset.UTC),
+                    buffer.getInt(position + 8),
+                    TYPES[buffer.get(position + 12)],
+                    player(buffer.getInt(position + 13)),
+                    buffer.getInt(position + 17)
+            );
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 3 && args[0].equals("import")) {
+            importCsv(Path.of(args[1]), Path.of(args[2]));
+        } else if (args.length == 3 && args[0].equals("export")) {
+            exportCsv(Path.of(args[1]), Path.of(args[2]));
+        } else {
+            System.err.println("Usage : BinaryLedgerFormat import <csv> <bin> | export <bin> <csv>");
+        }
+    }
+}
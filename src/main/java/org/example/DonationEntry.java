@@ -1,31 +1,48 @@
 package org.example;
 
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.Objects;
+import java.util.function.Consumer;
 
 /**
  * Immutable ledger entry representing either a donation, a bonus or a payout.
  * Persisted inside loterie-dons.csv using a semi-colon separated format.
+ * A {@link Type#SUPERSEDE} entry carries no amount: it voids the DON/BONUS rows written
+ * earlier for the same round.
  */
 public final class DonationEntry {
 
-    public enum Type { DON, BONUS, PAYOUT }
+    public enum Type { DON, BONUS, PAYOUT, SUPERSEDE }
 
     private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ISO_LOCAL_DATE_TIME;
+    private static final Type[] TYPES = Type.values();
 
     private final LocalDateTime timestamp;
     private final int roundId;
     private final Type type;
     private final String player;
     private final int amount;
+    private final int playerId;
 
     public DonationEntry(LocalDateTime timestamp, int roundId, Type type, String player, int amount) {
+        this(timestamp, roundId, type, player, amount, -1);
+    }
+
+    /**
+     * @param playerId {@link PlayerRegistry} id of the player, or {@code -1} when unresolved
+     */
+    public DonationEntry(LocalDateTime timestamp, int roundId, Type type, String player, int amount, int playerId) {
         this.timestamp = Objects.requireNonNull(timestamp, "timestamp");
         this.roundId = roundId;
         this.type = Objects.requireNonNull(type, "type");
         this.player = player == null ? "" : player;
         this.amount = amount;
+        this.playerId = playerId;
     }
 
     public LocalDateTime getTimestamp() {
@@ -48,6 +65,11 @@ public final class DonationEntry {
         return amount;
     }
 
+    /** Id of the player in the registry that produced this entry, {@code -1} otherwise. */
+    public int getPlayerId() {
+        return playerId;
+    }
+
     public String toCsv() {
         return FORMATTER.format(timestamp)
                 + ';' + roundId
@@ -57,19 +79,79 @@ public final class DonationEntry {
     }
 
     public static DonationEntry fromCsv(String line) {
-        String[] parts = line.split(";", -1);
-        if (parts.length < 5) {
-            throw new IllegalArgumentException("Invalid ledger line: " + line);
+        byte[] bytes = line.getBytes(StandardCharsets.UTF_8);
+        return parse(bytes, 0, bytes.length, null);
+    }
+
+    /**
+     * Parses one ledger row straight from its UTF-8 bytes, without splitting it into strings.
+     *
+     * @param decoder optional name cache shared by the rows of one read, may be {@code null}
+     * @throws IllegalArgumentException if the row is malformed
+     */
+    static DonationEntry parse(byte[] bytes, int start, int end, FieldDecoder decoder) {
+        int first = FieldDecoder.indexOf(bytes, start, end, (byte) ';');
+        int second = first < 0 ? -1 : FieldDecoder.indexOf(bytes, first + 1, end, (byte) ';');
+        int third = second < 0 ? -1 : FieldDecoder.indexOf(bytes, second + 1, end, (byte) ';');
+        int fourth = third < 0 ? -1 : FieldDecoder.indexOf(bytes, third + 1, end, (byte) ';');
+        if (fourth < 0) {
+            throw new IllegalArgumentException("Invalid ledger line: " + FieldDecoder.utf8(bytes, start, end));
         }
+        int fifthEnd = FieldDecoder.indexOf(bytes, fourth + 1, end, (byte) ';');
         return new DonationEntry(
-                LocalDateTime.parse(parts[0], FORMATTER),
-                Integer.parseInt(parts[1]),
-                Type.valueOf(parts[2]),
-                parts[3],
-                Integer.parseInt(parts[4])
+                FieldDecoder.parseTimestamp(bytes, start, first),
+                FieldDecoder.parseInt(bytes, first + 1, second),
+                parseType(bytes, second + 1, third),
+                decoder == null
+                        ? FieldDecoder.utf8(bytes, third + 1, fourth)
+                        : decoder.text(bytes, third + 1, fourth),
+                FieldDecoder.parseInt(bytes, fourth + 1, fifthEnd < 0 ? end : fifthEnd)
         );
     }
 
+    static Type parseType(byte[] bytes, int start, int end) {
+        for (Type type : TYPES) {
+            if (FieldDecoder.matches(bytes, start, end, type.name())) {
+                return type;
+            }
+        }
+        return Type.valueOf(FieldDecoder.utf8(bytes, start, end));
+    }
+
+    /**
+     * Streams the rows of a ledger file, header excluded, in file order. Malformed rows are skipped.
+     */
+    public static void forEach(ReadableByteChannel channel, Consumer<DonationEntry> sink) throws IOException {
+        LineReader.forEachLine(channel, rowHandler(sink));
+    }
+
+    /** Same as {@link #forEach(ReadableByteChannel, Consumer)} for a character source. */
+    public static void forEach(Reader reader, Consumer<DonationEntry> sink) throws IOException {
+        LineReader.forEachLine(reader, rowHandler(sink));
+    }
+
+    private static LineReader.LineHandler rowHandler(Consumer<DonationEntry> sink) {
+        FieldDecoder decoder = new FieldDecoder();
+        boolean[] header = {true};
+        return (bytes, start, end) -> {
+            if (header[0]) {
+                header[0] = false;
+                return;
+            }
+            if (FieldDecoder.isBlank(bytes, start, end)) {
+                return;
+            }
+            DonationEntry entry;
+            try {
+                entry = parse(bytes, start, end, decoder);
+            } catch (RuntimeException ex) {
+                System.err.println("Ligne de ledger ignorée : " + FieldDecoder.utf8(bytes, start, end));
+                return;
+            }
+            sink.accept(entry);
+        };
+    }
+
     private static String sanitize(String raw) {
         return raw == null ? "" : raw.replace(";", " ");
     }
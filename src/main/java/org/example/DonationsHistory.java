@@ -1,21 +1,27 @@
 package org.example;
 
+import javafx.application.Platform;
 import javafx.beans.binding.Bindings;
 import javafx.beans.property.ReadOnlyIntegerProperty;
 import javafx.beans.property.SimpleIntegerProperty;
 import javafx.beans.property.SimpleStringProperty;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
+import javafx.collections.transformation.FilteredList;
 import javafx.geometry.Insets;
 import javafx.scene.Scene;
+import javafx.scene.control.Button;
 import javafx.scene.control.Label;
 import javafx.scene.control.TableColumn;
 import javafx.scene.control.TableView;
+import javafx.scene.control.TextField;
 import javafx.scene.control.TitledPane;
 import javafx.scene.layout.VBox;
 import javafx.stage.Stage;
 
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.List;
 import java.util.Objects;
 import java.util.Map;
@@ -23,25 +29,74 @@ import java.util.stream.Collectors;
 
 /**
  * Window that aggregates ledger entries by round so operators can sanity check pots, winners,
- * and per-player contributions without digging through the raw CSV.
+ * and per-player contributions without digging through the raw CSV. Rows of archived rounds are
+ * only read when the operator asks for them.
+ * <p>
+ * The tables are loaded once, when the {@link WindowManager} first opens the window, then kept live
+ * by the ledger feed: each change touches the rows of its own round only. While the window is
+ * hidden the changes are only queued, and applied in one pass before it is shown again.
+ * <p>
+ * Rounds can be filtered by player: a {@link SearchIndex} maps the donors and winner of every round
+ * to its id, fed by the same events, so prefix queries answer without walking the records.
  */
-public final class DonationsHistory extends Stage {
+public final class DonationsHistory extends Stage implements WindowManager.Refreshable {
 
     private static final DateTimeFormatter FORMAT =
             DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
 
+    private final ObservableList<DonationsLedger.RoundRecord> rounds;
+    private final ObservableList<DonationEntry> liveRows;
+    private final FilteredList<DonationsLedger.RoundRecord> visibleRounds;
+    private final SearchIndex roundIndex = new SearchIndex();
+    private final TextField playerFilter = new TextField();
+    /** Ledger changes received while the window was hidden. */
+    private final List<LedgerFeed.Event> hiddenChanges = new ArrayList<>();
+
     public DonationsHistory(DonationsLedger ledger, ReadOnlyIntegerProperty currentPot) {
         setTitle("Historique des dons");
         Objects.requireNonNull(currentPot, "currentPot");
 
-        ObservableList<DonationsLedger.RoundRecord> rounds =
-                FXCollections.observableArrayList(ledger.getRoundRecords());
-        TableView<DonationsLedger.RoundRecord> roundsTable = buildRoundTable(rounds);
+        ledger.feed().subscribe(this::receive);
+        rounds = FXCollections.observableArrayList(ledger.getRoundRecords());
+        liveRows = FXCollections.observableArrayList(ledger.loadAll());
+        rounds.forEach(this::indexRound);
+        visibleRounds = new FilteredList<>(rounds);
+        TableView<DonationsLedger.RoundRecord> roundsTable = buildRoundTable(visibleRounds);
         TableView<Map.Entry<String, Integer>> participantsTable = buildParticipantsTable();
-        TableView<DonationEntry> ledgerTable = buildLedgerTable(ledger);
+        TableView<DonationEntry> ledgerTable = buildLedgerTable(liveRows);
+
+        Button archivedButton = new Button("Voir les lignes archivées");
+        Theme.styleButton(archivedButton);
+        archivedButton.setDisable(true);
+        // The archive is read on the persistence writer; answers for a round no longer selected are dropped.
+        archivedButton.setOnAction(e -> {
+            DonationsLedger.RoundRecord selected = roundsTable.getSelectionModel().getSelectedItem();
+            if (selected == null) {
+                return;
+            }
+            ledger.archivedEntriesAsync(selected.roundId()).whenComplete((rows, ex) -> Platform.runLater(() -> {
+                if (ex != null) {
+                    System.err.println("Lecture de l'archive impossible : " + ex.getMessage());
+                } else if (roundsTable.getSelectionModel().getSelectedItem() == selected) {
+                    ledgerTable.setItems(FXCollections.observableArrayList(rows));
+                }
+            }));
+        });
 
         roundsTable.getSelectionModel().selectedItemProperty().addListener(
-                (obs, old, selected) -> refreshParticipants(participantsTable, selected)
+                (obs, old, selected) -> {
+                    refreshParticipants(participantsTable, selected);
+                    ledgerTable.setItems(liveRows);
+                    archivedButton.setDisable(true);
+                    if (selected == null) {
+                        return;
+                    }
+                    ledger.isArchivedAsync(selected.roundId()).thenAccept(archived -> Platform.runLater(() -> {
+                        if (roundsTable.getSelectionModel().getSelectedItem() == selected) {
+                            archivedButton.setDisable(!archived);
+                        }
+                    }));
+                }
         );
         if (!rounds.isEmpty()) {
             roundsTable.getSelectionModel().selectLast();
@@ -56,8 +111,13 @@ public final class DonationsHistory extends Stage {
         ));
         Theme.styleCapsuleLabel(potLabel, "#4776e6", "#8e54e9");
 
-        TitledPane roundsPane = createSection("Tours enregistrés", roundsTable);
-        TitledPane detailPane = createSection("Détails du tour sélectionné", participantsTable);
+        playerFilter.setPromptText("Filtrer par joueur…");
+        Theme.styleTextField(playerFilter);
+        playerFilter.textProperty().addListener((obs, old, query) -> refreshFilter());
+
+        TitledPane roundsPane = createSection("Tours enregistrés", new VBox(8, playerFilter, roundsTable));
+        TitledPane detailPane = createSection("Détails du tour sélectionné",
+                new VBox(8, participantsTable, archivedButton));
         TitledPane rawPane = createSection("Journal brut (debug)", ledgerTable);
 
         VBox root = new VBox(12, potLabel, roundsPane, detailPane, rawPane);
@@ -68,6 +128,148 @@ public final class DonationsHistory extends Stage {
         setScene(scene);
     }
 
+    private void receive(List<LedgerFeed.Event> events) {
+        if (isShowing()) {
+            apply(events);
+            return;
+        }
+        for (LedgerFeed.Event event : events) {
+            if (event.kind() == LedgerFeed.Kind.RESET) {
+                // Nothing queued before a reset survives it.
+                hiddenChanges.clear();
+            }
+            hiddenChanges.add(event);
+        }
+    }
+
+    /** Applies the changes queued while the window was hidden. */
+    @Override
+    public void beforeShow() {
+        if (hiddenChanges.isEmpty()) {
+            return;
+        }
+        List<LedgerFeed.Event> queued = new ArrayList<>(hiddenChanges);
+        hiddenChanges.clear();
+        apply(queued);
+    }
+
+    /**
+     * Applies a batch of ledger changes. Events already reflected by the initial load, published
+     * between the subscription and the reads, are applied again harmlessly: round records are
+     * replaced and appended rows are skipped when the tail already holds them.
+     */
+    private void apply(List<LedgerFeed.Event> events) {
+        for (LedgerFeed.Event event : events) {
+            switch (event.kind()) {
+                case APPENDED -> {
+                    upsertRound(event.round());
+                    appendRows(event.rows());
+                }
+                case SUPERSEDED -> {
+                    upsertRound(event.round());
+                    removeSnapshotRows(event.roundId());
+                }
+                case ARCHIVED -> liveRows.removeIf(row -> row.getRoundId() == event.roundId());
+                case RESET -> {
+                    rounds.clear();
+                    liveRows.clear();
+                    roundIndex.clear();
+                }
+            }
+        }
+        if (!playerFilter.getText().isBlank()) {
+            refreshFilter();
+        }
+    }
+
+    /**
+     * Indexes the donors and winner of a round. A superseded snapshot may leave a former donor
+     * indexed; the filter then still lists that round, which only widens the result.
+     */
+    private void indexRound(DonationsLedger.RoundRecord record) {
+        StringBuilder names = new StringBuilder();
+        record.donations().keySet().forEach(name -> names.append(name).append(' '));
+        if (record.winner() != null) {
+            names.append(record.winner());
+        }
+        roundIndex.add(record.roundId(), names.toString());
+    }
+
+    private void refreshFilter() {
+        String query = playerFilter.getText();
+        if (query == null || query.isBlank()) {
+            visibleRounds.setPredicate(null);
+            return;
+        }
+        BitSet matches = new BitSet();
+        for (int roundId : roundIndex.search(query, Integer.MAX_VALUE)) {
+            matches.set(roundId);
+        }
+        visibleRounds.setPredicate(record -> matches.get(record.roundId()));
+    }
+
+    /** Replaces the record of its round, found by binary search since rounds are sorted by id. */
+    private void upsertRound(DonationsLedger.RoundRecord record) {
+        if (record == null) {
+            return;
+        }
+        indexRound(record);
+        int lo = 0;
+        int hi = rounds.size();
+        while (lo < hi) {
+            int middle = (lo + hi) >>> 1;
+            if (rounds.get(middle).roundId() < record.roundId()) {
+                lo = middle + 1;
+            } else {
+                hi = middle;
+            }
+        }
+        if (lo < rounds.size() && rounds.get(lo).roundId() == record.roundId()) {
+            rounds.set(lo, record);
+        } else {
+            rounds.add(lo, record);
+        }
+    }
+
+    private void appendRows(List<DonationEntry> rows) {
+        if (rows.isEmpty()) {
+            return;
+        }
+        int tail = liveRows.size() - rows.size();
+        if (tail >= 0 && liveRows.subList(tail, liveRows.size()).stream()
+                .map(DonationEntry::toCsv)
+                .toList()
+                .equals(rows.stream().map(DonationEntry::toCsv).toList())) {
+            return;
+        }
+        liveRows.addAll(rows);
+    }
+
+    /**
+     * Drops the DON/BONUS rows of a superseded round. The round being played sits at the end of
+     * the table, so only its trailing run is walked; older rounds fall back to a full scan.
+     */
+    private void removeSnapshotRows(int roundId) {
+        int end = liveRows.size();
+        int start = end;
+        while (start > 0 && liveRows.get(start - 1).getRoundId() == roundId) {
+            start--;
+        }
+        if (start == end) {
+            liveRows.removeIf(row -> row.getRoundId() == roundId && isSnapshotRow(row));
+            return;
+        }
+        List<DonationEntry> kept = liveRows.subList(start, end).stream()
+                .filter(row -> !isSnapshotRow(row))
+                .toList();
+        liveRows.remove(start, end);
+        liveRows.addAll(kept);
+    }
+
+    private static boolean isSnapshotRow(DonationEntry row) {
+        return row.getType() == DonationEntry.Type.DON || row.getType() == DonationEntry.Type.BONUS;
+    }
+
     private static TableView<DonationsLedger.RoundRecord> buildRoundTable(
             ObservableList<DonationsLedger.RoundRecord> rounds) {
 
@@ -131,8 +333,7 @@ public final class DonationsHistory extends Stage {
         return table;
     }
 
-    private static TableView<DonationEntry> buildLedgerTable(DonationsLedger ledger) {
-        ObservableList<DonationEntry> data = FXCollections.observableArrayList(ledger.loadAll());
+    private static TableView<DonationEntry> buildLedgerTable(ObservableList<DonationEntry> data) {
         TableView<DonationEntry> table = new TableView<>(data);
         Theme.styleTableView(table);
 
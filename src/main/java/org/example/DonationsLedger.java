@@ -3,57 +3,199 @@ package org.example;
 import javafx.collections.ObservableList;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.nio.file.StandardOpenOption;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
-import java.util.Comparator;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.TreeMap;
-import java.util.stream.Collectors;
 
 /**
  * Append-only ledger used as the single source of truth for donations and payouts between launches.
+ * <p>
+ * The parsed rows stay resident in a {@link LedgerStore} together with the byte offset the file was
+ * read up to.
+ * Each query only parses the bytes appended since the previous one; the ledger is reloaded from
+ * scratch only when the file shrinks or its header no longer matches what was read first.
+ * Round snapshots are appended as well: a {@code SUPERSEDE} row voids the earlier DON/BONUS rows
+ * of its round, so the per-spin write cost does not depend on the size of the ledger.
+ * Older history lives in closed segments (see {@link LedgerSegments}) whose summaries are stacked
+ * under the aggregates of the active file.
+ * <p>
+ * Appends go through a {@link LedgerWriteAheadLog}: rows reach the file immediately and the fsync
+ * is group-committed according to {@code -Dloterie.ledger.durability}. A torn trailing row left by
+ * a crash is truncated when the ledger is first read. A {@link LedgerRoundIndex} sidecar lets
+ * {@link #findRoundRecord(int)} read a single round without loading the rest of the file.
+ * <p>
+ * A {@link LedgerCheckpoint} of the aggregates is written every
+ * {@link LedgerCheckpoint#INTERVAL_BYTES} appended bytes and on {@link #close()}. A launch restores
+ * the latest valid checkpoint and only parses the rows after it; the rows before it are parsed on
+ * demand, by {@link #loadAll()}, {@link #compact()} or a segment roll. Full loads of large files
+ * go through the {@link LedgerParallelLoader}.
+ * <p>
+ * Paid-out rounds never change again: {@link #archiveSettledRounds()} moves their rows into a
+ * compressed {@link LedgerArchive} whose summary is stacked under the aggregates like a closed
+ * segment, and {@link #archivedEntries(int)} reads them back on demand. It only runs when asked
+ * to; {@link #query()} keeps reading archived rows, so filtered results do not change with it.
+ * <p>
+ * Writes made through the ledger are published on its {@link LedgerFeed}, see {@link #feed()}.
  */
 public final class DonationsLedger {
 
-    private static final String HEADER = "ts;round;type;player;amount";
+    static final String HEADER = "ts;round;type;player;amount";
     private static final Path LEDGER_FILE = Path.of("loterie-dons.csv");
+    static final int COMPACTION_THRESHOLD = 512;
+
+    private final Path ledgerFile;
+    private final LedgerSegments segments;
+    private final PersistenceService persistence;
+    private final LedgerWriteAheadLog log;
+    private final LedgerRoundIndex index;
+    private final LedgerCheckpoint checkpoint;
+    private final LedgerArchive archive;
+    private final LedgerFeed feed = new LedgerFeed();
+    private final FieldDecoder decoder = new FieldDecoder();
+    private boolean recovered;
+    private final AtomicInteger lastReservedRoundId = new AtomicInteger();
+    private volatile int knownMaxRoundId;
+    /** Set once {@link #knownMaxRoundId} reflects the whole ledger. */
+    private volatile boolean roundIdsKnown;
+    private final PlayerRegistry registry;
+    private LedgerStore store;
+    private final LedgerAggregates aggregates;
+    /** Last live DON/BONUS row of each round; earlier ones are chained through {@link #previousSnapshotRow}. */
+    private final Map<Integer, Integer> lastSnapshotRow = new HashMap<>();
+    private int[] previousSnapshotRow = new int[1024];
+    private BitSet superseded = new BitSet();
+    /** DON and PAYOUT rows of each player id, and rows of each type, for {@link LedgerQuery}. */
+    private LedgerPostings playerRows = new LedgerPostings();
+    private LedgerPostings typeRows = new LedgerPostings();
+    private boolean timestampsSorted = true;
+    private int supersededRows;
+    private final Set<Integer> activeRounds = new HashSet<>();
+    private byte[] headerBytes;
+    private long readOffset;
+    /** Offset of the first resident row: non-zero after a checkpoint restore, until the rows are loaded. */
+    private long residentFrom;
+    private long checkpointOffset;
+    private LocalDateTime firstActive;
+
+    public DonationsLedger() {
+        this(LEDGER_FILE);
+    }
+
+    public DonationsLedger(PersistenceService persistence) {
+        this(persistence, new PlayerRegistry());
+    }
+
+    public DonationsLedger(PersistenceService persistence, PlayerRegistry registry) {
+        this(LEDGER_FILE, LedgerSegments.Policy.monthly(), persistence, registry);
+    }
+
+    DonationsLedger(Path ledgerFile) {
+        this(ledgerFile, LedgerSegments.Policy.monthly());
+    }
+
+    DonationsLedger(Path ledgerFile, LedgerSegments.Policy segmentPolicy) {
+        this(ledgerFile, segmentPolicy, null);
+    }
+
+    DonationsLedger(Path ledgerFile, LedgerSegments.Policy segmentPolicy, PersistenceService persistence) {
+        this(ledgerFile, segmentPolicy, persistence, new PlayerRegistry());
+    }
+
+    DonationsLedger(Path ledgerFile,
+                    LedgerSegments.Policy segmentPolicy,
+                    PersistenceService persistence,
+                    PlayerRegistry registry) {
+        this.ledgerFile = ledgerFile;
+        this.registry = registry;
+        this.store = new LedgerStore(registry);
+        this.aggregates = new LedgerAggregates(registry);
+        this.segments = new LedgerSegments(ledgerFile, segmentPolicy, registry);
+        this.persistence = persistence;
+        this.log = new LedgerWriteAheadLog(
+                ledgerFile,
+                LedgerWriteAheadLog.Durability.fromSystemProperty(),
+                LedgerWriteAheadLog.DEFAULT_INTERVAL_MILLIS
+        );
+        this.index = new LedgerRoundIndex(ledgerFile);
+        this.checkpoint = new LedgerCheckpoint(ledgerFile);
+        this.archive = new LedgerArchive(ledgerFile, registry);
+    }
 
     private void ensureHeader() throws IOException {
-        if (Files.exists(LEDGER_FILE)) {
+        if (Files.exists(ledgerFile)) {
             return;
         }
         Files.writeString(
-                LEDGER_FILE,
+                ledgerFile,
                 HEADER + System.lineSeparator(),
                 StandardCharsets.UTF_8,
                 StandardOpenOption.CREATE_NEW
         );
     }
 
-    public synchronized void upsertRoundSnapshot(int roundId,
-                                                 ObservableList<Participant> participants,
-                                                 int bonus) throws IOException {
-        ensureHeader();
-        List<DonationEntry> allEntries = new ArrayList<>(loadAll());
-        allEntries.removeIf(entry ->
-                entry.getRoundId() == roundId
-                        && (entry.getType() == DonationEntry.Type.DON
-                        || entry.getType() == DonationEntry.Type.BONUS));
+    /**
+     * Records the current stakes of a round. When the round already has DON/BONUS rows, a
+     * {@link DonationEntry.Type#SUPERSEDE} marker is appended first so readers drop the older rows:
+     * the file is only ever appended to, and rewritten by {@link #compact()} once enough rows
+     * have been superseded.
+     */
+    public void upsertRoundSnapshot(int roundId,
+                                    ObservableList<Participant> participants,
+                                    int bonus) throws IOException {
+        awaitDurable(writeRoundSnapshot(roundId, buildSnapshot(roundId, participants, bonus)));
+    }
+
+    /**
+     * Same as {@link #upsertRoundSnapshot} but only reads the participants on the calling thread;
+     * the write happens on the persistence writer.
+     *
+     * The writer moves on to the next command while the fsync is pending, so consecutive
+     * snapshots and payouts share a group commit.
+     *
+     * @return the carry-over once the snapshot is durable
+     */
+    public CompletableFuture<Integer> upsertRoundSnapshotAsync(int roundId,
+                                                               List<Participant> participants,
+                                                               int bonus) {
+        List<DonationEntry> snapshot = buildSnapshot(roundId, participants, bonus);
+        return persistence().submit("snapshot tour #" + roundId, () -> {
+            long offset = writeRoundSnapshot(roundId, snapshot);
+            int carryOver = computeCarryOver();
+            return log.durable(offset).thenApply(ignored -> carryOver);
+        }).thenCompose(durable -> durable);
+    }
 
+    private static List<DonationEntry> buildSnapshot(int roundId, List<Participant> participants, int bonus) {
         LocalDateTime now = LocalDateTime.now();
+        List<DonationEntry> snapshot = new ArrayList<>();
 
         for (Participant participant : participants) {
             int amount = Math.max(0, participant.getKamas());
             if (amount <= 0) {
                 continue;
             }
-            allEntries.add(new DonationEntry(
+            snapshot.add(new DonationEntry(
                     now,
                     roundId,
                     DonationEntry.Type.DON,
@@ -63,7 +205,7 @@ public final class DonationsLedger {
         }
 
         if (bonus > 0) {
-            allEntries.add(new DonationEntry(
+            snapshot.add(new DonationEntry(
                     now,
                     roundId,
                     DonationEntry.Type.BONUS,
@@ -71,11 +213,69 @@ public final class DonationsLedger {
                     bonus
             ));
         }
+        return snapshot;
+    }
+
+    private synchronized long writeRoundSnapshot(int roundId, List<DonationEntry> snapshot) throws IOException {
+        refresh();
+        LocalDateTime now = snapshot.isEmpty() ? LocalDateTime.now() : snapshot.get(0).getTimestamp();
+        rollSegmentIfNeeded(roundId, now);
+        ensureHeader();
+
+        List<DonationEntry> rows = new ArrayList<>(snapshot.size() + 1);
+        if (aggregates.hasSnapshot(roundId)) {
+            rows.add(new DonationEntry(
+                    now,
+                    roundId,
+                    DonationEntry.Type.SUPERSEDE,
+                    "",
+                    0
+            ));
+        }
+        rows.addAll(snapshot);
+
+        long offset = append(rows);
+        if (rows.size() > snapshot.size()) {
+            publish(LedgerFeed.Kind.SUPERSEDED, roundId, List.of());
+        }
+        publish(LedgerFeed.Kind.APPENDED, roundId, snapshot);
+        if (supersededRows >= COMPACTION_THRESHOLD) {
+            compact();
+        }
+        return offset;
+    }
 
-        writeAll(allEntries);
+    /**
+     * Closes the active segment before the first row of a new round when the segment policy asks
+     * for it. Pending superseded rows are compacted away first so closed segments hold live rows.
+     */
+    private void rollSegmentIfNeeded(int roundId, LocalDateTime now) throws IOException {
+        if (!segments.policy().enabled()
+                || activeRounds.contains(roundId)
+                || !segments.policy().shouldRoll(
+                        firstActive, activeRounds.size(), now)) {
+            return;
+        }
+        if (supersededRows > 0) {
+            compact();
+        }
+        loadRows();
+        LedgerAggregates activeSummary = new LedgerAggregates(registry);
+        for (LedgerStore.Cursor cursor = store.cursor(); cursor.next(); ) {
+            activeSummary.apply(cursor.roundId(), cursor.type(), cursor.playerId(), cursor.amount(), cursor.epochNanos());
+        }
+        log.release();
+        index.invalidate();
+        dropCheckpoint();
+        segments.roll(activeSummary);
+        clearResident();
     }
 
-    public synchronized void appendPayout(int roundId, String winner, int amount) throws IOException {
+    public void appendPayout(int roundId, String winner, int amount) throws IOException {
+        awaitDurable(writePayout(roundId, winner, amount));
+    }
+
+    private synchronized long writePayout(int roundId, String winner, int amount) throws IOException {
         ensureHeader();
         DonationEntry entry = new DonationEntry(
                 LocalDateTime.now(),
@@ -84,129 +284,695 @@ public final class DonationsLedger {
                 winner,
                 amount
         );
-        Files.writeString(
-                LEDGER_FILE,
-                entry.toCsv() + System.lineSeparator(),
-                StandardCharsets.UTF_8,
-                StandardOpenOption.APPEND
-        );
+        long offset = append(List.of(entry));
+        publish(LedgerFeed.Kind.APPENDED, roundId, List.of(entry));
+        return offset;
     }
 
-    public synchronized List<DonationEntry> loadAll() {
-        if (!Files.exists(LEDGER_FILE)) {
-            return List.of();
+    /**
+     * Queues a payout on the persistence writer.
+     *
+     * @return the carry-over once the payout is durable
+     */
+    public CompletableFuture<Integer> appendPayoutAsync(int roundId, String winner, int amount) {
+        return appendPayoutAsync(roundId, winner, amount, CompletableFuture.completedFuture(null));
+    }
+
+    /**
+     * Queues a payout that is only written if {@code snapshot}, the round snapshot queued before
+     * it, was written; otherwise the returned future fails and the ledger is left as it is. The
+     * writer runs commands in order, so the snapshot outcome is known by the time the payout runs.
+     *
+     * @return the carry-over once the payout is durable
+     */
+    public CompletableFuture<Integer> appendPayoutAsync(int roundId, String winner, int amount,
+                                                        CompletableFuture<?> snapshot) {
+        return persistence().submit("payout tour #" + roundId, () -> {
+            if (snapshot.isCompletedExceptionally()) {
+                throw new IOException("Round " + roundId + " snapshot was not written, payout dropped");
+            }
+            long offset = writePayout(roundId, winner, amount);
+            int carryOver = computeCarryOver();
+            return log.durable(offset).thenApply(ignored -> carryOver);
+        }).thenCompose(durable -> durable);
+    }
+
+    /**
+     * Hands out the id of the next round without touching the disk nor waiting for pending writes,
+     * so a spin can start while earlier snapshots are still being written. Until the ledger has been
+     * read once, the largest known id is not known either: the ledger is loaded first.
+     *
+     * @throws IllegalStateException if the ledger cannot be read, rather than reusing an existing id
+     */
+    public int reserveNextRoundId() {
+        if (!roundIdsKnown) {
+            synchronized (this) {
+                refresh();
+            }
+            if (!roundIdsKnown) {
+                throw new IllegalStateException("Ledger unreadable, cannot allocate a round id");
+            }
         }
+        return lastReservedRoundId.accumulateAndGet(knownMaxRoundId, (reserved, known) -> Math.max(reserved, known) + 1);
+    }
+
+    /**
+     * Queues {@link #resetCarryOver()}; round id reservations restart from scratch once the writes
+     * queued before it are done.
+     */
+    public CompletableFuture<Void> resetCarryOverAsync() {
+        return persistence().submit("RAZ ledger", () -> {
+            resetCarryOver();
+            return null;
+        });
+    }
+
+    private PersistenceService persistence() {
+        if (persistence == null) {
+            throw new IllegalStateException("No persistence service attached to this ledger");
+        }
+        return persistence;
+    }
+
+    /**
+     * Writes the rows in a single append.
+     *
+     * @return the offset to wait on for durability
+     */
+    private long append(List<DonationEntry> newEntries) throws IOException {
+        if (newEntries.isEmpty()) {
+            return 0;
+        }
+        Telemetry.LedgerWrite event = new Telemetry.LedgerWrite();
+        event.begin();
+        List<byte[]> lines = new ArrayList<>(newEntries.size());
+        int total = 0;
+        for (DonationEntry entry : newEntries) {
+            byte[] line = (entry.toCsv() + System.lineSeparator()).getBytes(StandardCharsets.UTF_8);
+            lines.add(line);
+            total += line.length;
+        }
+        ByteBuffer bytes = ByteBuffer.allocate(total);
+        lines.forEach(bytes::put);
+        long offset = log.write(bytes.array());
+        event.end();
+        if (event.shouldCommit()) {
+            event.rows = newEntries.size();
+            event.bytes = total;
+            event.commit();
+        }
+        try {
+            index.recordAppend(newEntries, lines, offset - total);
+        } catch (IOException ex) {
+            System.err.println("Impossible de mettre à jour l'index du ledger : " + ex.getMessage());
+        }
+        refresh();
+        if (readOffset - checkpointOffset >= LedgerCheckpoint.INTERVAL_BYTES) {
+            writeCheckpoint();
+        }
+        return offset;
+    }
+
+    /** Publishes a change with the round record and carry-over it left; the caller holds the lock. */
+    private void publish(LedgerFeed.Kind kind, int roundId, List<DonationEntry> rows) {
+        if (feed.hasSubscribers()) {
+            feed.publish(new LedgerFeed.Event(kind, roundId, rows, aggregates.roundRecord(roundId), aggregates.carryOver()));
+        }
+    }
+
+    private void awaitDurable(long offset) throws IOException {
         try {
-            return Files.readAllLines(LEDGER_FILE, StandardCharsets.UTF_8)
-                    .stream()
-                    .skip(1)
-                    .filter(line -> !line.isBlank())
-                    .map(DonationEntry::fromCsv)
-                    .collect(Collectors.toList());
+            log.durable(offset).join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof IOException io) {
+                throw io;
+            }
+            throw ex;
+        }
+    }
+
+    /** Forces pending appends, checkpoints the aggregates and closes the ledger file. */
+    public void close() throws IOException {
+        log.close();
+        synchronized (this) {
+            if (recovered) {
+                refresh();
+                if (readOffset > checkpointOffset) {
+                    writeCheckpoint();
+                }
+            }
+        }
+    }
+
+    private void writeCheckpoint() {
+        if (headerBytes == null) {
+            return;
+        }
+        try {
+            checkpoint.write(readOffset, storageFingerprint(), firstActive, supersededRows, activeRounds, aggregates);
+            checkpointOffset = readOffset;
+        } catch (IOException ex) {
+            System.err.println("Impossible d'écrire le checkpoint du ledger : " + ex.getMessage());
+        }
+    }
+
+    /** Identifies the closed segments and archive blocks the aggregates were stacked on. */
+    private String storageFingerprint() {
+        return segments.fingerprint() + "/" + archive.fingerprint();
+    }
+
+    private void dropCheckpoint() throws IOException {
+        checkpoint.delete();
+        checkpointOffset = 0;
+    }
+
+    /**
+     * Restores the aggregates from the checkpoint, if one is valid, so the next refresh only
+     * parses the rows appended after it.
+     */
+    private void restoreCheckpoint() {
+        LedgerCheckpoint.State state = checkpoint.read(storageFingerprint(), registry);
+        if (state == null) {
+            return;
+        }
+        clearResident();
+        aggregates.clear();
+        aggregates.merge(state.aggregates());
+        activeRounds.addAll(state.activeRounds());
+        firstActive = state.firstActive();
+        supersededRows = state.supersededRows();
+        headerBytes = state.header();
+        readOffset = state.offset();
+        residentFrom = state.offset();
+        checkpointOffset = state.offset();
+    }
+
+    /**
+     * Makes every row of the active file resident, replaying it from the start when the ledger
+     * was restored from a checkpoint.
+     */
+    private void loadRows() {
+        refresh();
+        if (residentFrom > 0) {
+            clearResident();
+            refresh();
+        }
+    }
+
+    /**
+     * Returns the live entries in file order, without superseded rows nor supersede markers.
+     * Rows of the active segment are materialized lazily, when the returned list is read. Rows of
+     * archived rounds are left out; see {@link #archivedEntries(int)} or {@link #query()}.
+     */
+    public synchronized List<DonationEntry> loadAll() {
+        loadRows();
+        int[] liveRows = new int[store.size() - supersededRows];
+        int count = 0;
+        for (int row = superseded.nextClearBit(0); row < store.size(); row = superseded.nextClearBit(row + 1)) {
+            liveRows[count++] = row;
+        }
+        List<DonationEntry> active = store.view(liveRows, count);
+        List<DonationEntry> closed = segments.readClosedEntries();
+        if (closed.isEmpty()) {
+            return active;
+        }
+        List<DonationEntry> live = new ArrayList<>(closed.size() + count);
+        live.addAll(closed);
+        live.addAll(active);
+        return Collections.unmodifiableList(live);
+    }
+
+    /**
+     * Live rows of a ledger file read as is: no repair of a torn row, no index, checkpoint or
+     * summary written. Malformed rows are skipped. For files that must not change, such as closed
+     * segments or the source of an export.
+     */
+    static List<DonationEntry> readLiveRows(Path file) throws IOException {
+        List<DonationEntry> rows = new ArrayList<>();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            DonationEntry.forEach(channel, rows::add);
+        }
+        return withoutSuperseded(rows);
+    }
+
+    /**
+     * Drops the supersede markers and the DON and BONUS rows each of them voids, i.e. the rows of
+     * its round written before it.
+     */
+    static List<DonationEntry> withoutSuperseded(List<DonationEntry> rows) {
+        BitSet voided = new BitSet(rows.size());
+        Map<Integer, List<Integer>> snapshotRows = new HashMap<>();
+        for (int row = 0; row < rows.size(); row++) {
+            DonationEntry entry = rows.get(row);
+            switch (entry.getType()) {
+                case SUPERSEDE -> {
+                    List<Integer> replaced = snapshotRows.remove(entry.getRoundId());
+                    if (replaced != null) {
+                        replaced.forEach(voided::set);
+                    }
+                    voided.set(row);
+                }
+                case DON, BONUS -> snapshotRows.computeIfAbsent(entry.getRoundId(), id -> new ArrayList<>()).add(row);
+                default -> {
+                }
+            }
+        }
+        if (voided.isEmpty()) {
+            return rows;
+        }
+        List<DonationEntry> live = new ArrayList<>(rows.size() - voided.cardinality());
+        for (int row = voided.nextClearBit(0); row < rows.size(); row = voided.nextClearBit(row + 1)) {
+            live.add(rows.get(row));
+        }
+        return live;
+    }
+
+    /**
+     * Loads the closed segments and the archive, repairs a torn trailing row and restores the
+     * latest checkpoint the first time the ledger is used.
+     */
+    private void open() {
+        if (!segments.isLoaded()) {
+            segments.load();
+            archive.load();
+            clearResident();
+        }
+        if (!recovered) {
+            recovered = true;
+            try {
+                long dropped = LedgerWriteAheadLog.recover(ledgerFile);
+                if (dropped > 0) {
+                    System.err.println("Ligne incomplète retirée du ledger (" + dropped + " octets)");
+                }
+            } catch (IOException ex) {
+                System.err.println("Impossible de réparer le ledger : " + ex.getMessage());
+            }
+            restoreCheckpoint();
+        }
+    }
+
+    /**
+     * Brings the resident entries up to date with the file: only the bytes appended since the last
+     * call are parsed, unless the file shrank or its header changed, which forces a full reload.
+     */
+    private void refresh() {
+        open();
+        if (!Files.exists(ledgerFile)) {
+            clearResident();
+            knownMaxRoundId = aggregates.maxRoundId();
+            roundIdsKnown = true;
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(ledgerFile, StandardOpenOption.READ)) {
+            long size = channel.size();
+            Telemetry.LedgerRead event = new Telemetry.LedgerRead();
+            event.begin();
+            if (size < readOffset || !headerUnchanged(channel)) {
+                clearResident();
+                event.full = true;
+            }
+            if (size > readOffset) {
+                long fromOffset = readOffset;
+                int fromRows = store.size();
+                event.parallel = readTail(channel, size);
+                if (event.shouldCommit()) {
+                    event.bytes = readOffset - fromOffset;
+                    event.rows = store.size() - fromRows;
+                    event.full |= fromOffset == 0;
+                    event.commit();
+                }
+            }
+            roundIdsKnown = true;
         } catch (Exception ex) {
             System.err.println("Impossible de lire le ledger : " + ex.getMessage());
-            return List.of();
         }
+        knownMaxRoundId = aggregates.maxRoundId();
     }
 
-    public int computeCarryOver() {
-        long incoming = 0;
-        long outgoing = 0;
+    private boolean headerUnchanged(FileChannel channel) throws IOException {
+        if (headerBytes == null) {
+            return true;
+        }
+        ByteBuffer current = ByteBuffer.allocate(headerBytes.length);
+        while (current.hasRemaining() && channel.read(current, current.position()) > 0) {
+            // keep reading until the header length is covered or EOF is reached
+        }
+        return !current.hasRemaining() && Arrays.equals(current.array(), headerBytes);
+    }
 
-        for (DonationEntry entry : loadAll()) {
-            switch (entry.getType()) {
-                case DON, BONUS -> incoming += entry.getAmount();
-                case PAYOUT -> outgoing += entry.getAmount();
+    /** @return whether the rows were loaded in parallel */
+    private boolean readTail(FileChannel channel, long size) throws IOException {
+        if (readOffset == 0 && size >= LedgerParallelLoader.THRESHOLD && loadInParallel(channel, size)) {
+            return true;
+        }
+        long length = size - readOffset;
+        if (length > Integer.MAX_VALUE) {
+            throw new IOException("Ledger tail too large: " + length + " bytes");
+        }
+        ByteBuffer buffer = ByteBuffer.allocate((int) length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, readOffset + buffer.position()) < 0) {
+                break;
             }
         }
+        byte[] bytes = buffer.array();
+        int limit = buffer.position();
 
-        long carry = incoming - outgoing;
-        if (carry < 0) {
-            carry = 0;
-        } else if (carry > Integer.MAX_VALUE) {
-            carry = Integer.MAX_VALUE;
+        int lineStart = 0;
+        for (int i = 0; i < limit; i++) {
+            if (bytes[i] != '\n') {
+                continue;
+            }
+            if (readOffset == 0 && headerBytes == null) {
+                headerBytes = Arrays.copyOfRange(bytes, 0, i + 1);
+            } else {
+                parseLine(bytes, lineStart, i);
+            }
+            lineStart = i + 1;
         }
-        return (int) carry;
+        // A trailing line without terminator is still being written: leave it for the next refresh.
+        readOffset += lineStart;
+        return false;
     }
 
-    public int getNextRoundId() {
-        return loadAll().stream()
-                .mapToInt(DonationEntry::getRoundId)
-                .max()
-                .orElse(0) + 1;
+    /**
+     * Full load of a large ledger on every core; the per-chunk aggregates are merged in file order
+     * and the rows are then indexed for supersede tracking in a single sequential pass.
+     */
+    private boolean loadInParallel(FileChannel channel, long size) throws IOException {
+        LedgerParallelLoader.Result result =
+                LedgerParallelLoader.load(channel, size, registry, LedgerParallelLoader.CHUNK_SIZE);
+        if (result == null) {
+            return false;
+        }
+        store = result.store();
+        result.partials().forEach(aggregates::merge);
+        for (int row = 0; row < store.size(); row++) {
+            track(row);
+        }
+        headerBytes = result.header();
+        readOffset = result.consumed();
+        return true;
     }
 
-    public Map<String, Integer> cumulativeByPlayer() {
-        Map<String, Integer> totals = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
-        for (DonationEntry entry : loadAll()) {
-            if (entry.getType() == DonationEntry.Type.DON) {
-                totals.merge(entry.getPlayer(), entry.getAmount(), Integer::sum);
+    private void parseLine(byte[] bytes, int start, int end) {
+        if (end > start && bytes[end - 1] == '\r') {
+            end--;
+        }
+        if (FieldDecoder.isBlank(bytes, start, end)) {
+            return;
+        }
+        int row;
+        try {
+            row = store.addCsv(bytes, start, end, decoder);
+        } catch (RuntimeException ex) {
+            System.err.println("Ligne de ledger ignorée : " + FieldDecoder.utf8(bytes, start, end));
+            return;
+        }
+        aggregates.apply(store, row);
+        track(row);
+    }
+
+    /** Records a resident row for segment rolls and supersede tracking. */
+    private void track(int row) {
+        int roundId = store.roundId(row);
+        if (firstActive == null) {
+            firstActive = store.timestamp(row);
+        } else if (timestampsSorted && row > 0 && store.epochNanos(row) < store.epochNanos(row - 1)) {
+            timestampsSorted = false;
+        }
+        activeRounds.add(roundId);
+        playerRows.add(store.playerId(row), row);
+        typeRows.add(store.type(row).ordinal(), row);
+        switch (store.type(row)) {
+            case DON, BONUS -> {
+                if (row >= previousSnapshotRow.length) {
+                    previousSnapshotRow = Arrays.copyOf(previousSnapshotRow,
+                            Math.max(row + 1, previousSnapshotRow.length + (previousSnapshotRow.length >> 1)));
+                }
+                Integer previous = lastSnapshotRow.put(roundId, row);
+                previousSnapshotRow[row] = previous == null ? -1 : previous;
+            }
+            case SUPERSEDE -> {
+                Integer replaced = lastSnapshotRow.remove(roundId);
+                for (int i = replaced == null ? -1 : replaced; i >= 0; i = previousSnapshotRow[i]) {
+                    superseded.set(i);
+                    supersededRows++;
+                }
+                superseded.set(row);
+                supersededRows++;
+            }
+            case PAYOUT -> {
             }
         }
+    }
+
+    private void clearResident() {
+        store = new LedgerStore(registry);
+        aggregates.clear();
+        aggregates.merge(segments.baseline());
+        aggregates.merge(archive.summary());
+        activeRounds.clear();
+        lastSnapshotRow.clear();
+        // Fresh instances rather than clear(): running queries keep reading the previous rows.
+        superseded = new BitSet();
+        supersededRows = 0;
+        playerRows = new LedgerPostings();
+        typeRows = new LedgerPostings();
+        timestampsSorted = true;
+        headerBytes = null;
+        readOffset = 0;
+        residentFrom = 0;
+        firstActive = null;
+    }
+
+    public synchronized int computeCarryOver() {
+        refresh();
+        return aggregates.carryOver();
+    }
+
+    public synchronized int getNextRoundId() {
+        refresh();
+        return aggregates.maxRoundId() + 1;
+    }
+
+    public synchronized Map<String, Integer> cumulativeByPlayer() {
+        refresh();
+        Map<String, Integer> totals = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        totals.putAll(aggregates.playerTotals());
         return totals;
     }
 
-    public synchronized List<RoundRecord> getRoundRecords() {
-        Map<Integer, RoundAccumulator> perRound = new TreeMap<>();
-        for (DonationEntry entry : loadAll()) {
-            RoundAccumulator accumulator = perRound.computeIfAbsent(
-                    entry.getRoundId(),
-                    RoundAccumulator::new
-            );
-            accumulator.touch(entry);
+    /** Changes made through this ledger, for views that follow it. */
+    public LedgerFeed feed() {
+        return feed;
+    }
+
+    /** Starts a query over the live rows, closed segments and archived rounds included. */
+    public LedgerQuery query() {
+        return new LedgerQuery(this);
+    }
+
+    /** Current rows and indexes for a query; rows before a restored checkpoint are loaded first. */
+    synchronized LedgerQuery.Snapshot snapshot() {
+        open();
+        loadRows();
+        List<DonationEntry> archived;
+        try {
+            archived = archive.liveEntries();
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Cannot read the ledger archive", ex);
+        }
+        return new LedgerQuery.Snapshot(store, store.size(), superseded, playerRows, typeRows, timestampsSorted,
+                firstActive, segments.closedFiles(), archived, registry);
+    }
+
+    /** Live rows of a closed segment listed in a {@link #snapshot()}. */
+    synchronized List<DonationEntry> closedSegmentEntries(Path segment) {
+        try {
+            return segments.entries(segment);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Cannot read ledger segment " + segment, ex);
         }
-        return perRound.values().stream()
-                .map(RoundAccumulator::toRecord)
-                .collect(Collectors.toList());
     }
 
+    public synchronized List<RoundRecord> getRoundRecords() {
+        refresh();
+        return aggregates.roundRecords();
+    }
+
+    /**
+     * Looks a single round up through the round index: only that round's bytes are read from the
+     * active file, and rounds of closed segments or of the archive come from their summaries.
+     * Rounds never span segments since a segment is only closed when a new round starts.
+     */
     public synchronized Optional<RoundRecord> findRoundRecord(int roundId) {
-        RoundAccumulator accumulator = null;
-        for (DonationEntry entry : loadAll()) {
-            if (entry.getRoundId() != roundId) {
-                continue;
-            }
-            if (accumulator == null) {
-                accumulator = new RoundAccumulator(roundId);
+        open();
+        try {
+            index.catchUp();
+            if (!index.contains(roundId)) {
+                return Optional.ofNullable(archive.contains(roundId)
+                        ? archive.summary().roundRecord(roundId)
+                        : segments.baseline().roundRecord(roundId));
             }
-            accumulator.touch(entry);
+            LedgerAggregates round = new LedgerAggregates(registry);
+            index.readRound(roundId).forEach(round::apply);
+            return Optional.ofNullable(round.roundRecord(roundId));
+        } catch (IOException | RuntimeException ex) {
+            System.err.println("Index du ledger inutilisable : " + ex.getMessage());
+            refresh();
+            return Optional.ofNullable(aggregates.roundRecord(roundId));
         }
-        if (accumulator == null) {
-            return Optional.empty();
-        }
-        return Optional.of(accumulator.toRecord());
     }
 
     /**
-     * Clears the ledger so the carry-over resets to zero while preserving the CSV header.
+     * Clears the ledger, closed segments and archive included, so the carry-over resets to zero
+     * while preserving the CSV header. Round ids are handed out from 1 again.
      */
     public synchronized void resetCarryOver() throws IOException {
+        if (!segments.isLoaded()) {
+            segments.load();
+            archive.load();
+        }
+        segments.deleteAll();
+        archive.deleteAll();
+        log.release();
+        index.invalidate();
+        dropCheckpoint();
         Files.writeString(
-                LEDGER_FILE,
+                ledgerFile,
                 HEADER + System.lineSeparator(),
                 StandardCharsets.UTF_8,
                 StandardOpenOption.CREATE,
                 StandardOpenOption.TRUNCATE_EXISTING
         );
+        clearResident();
+        knownMaxRoundId = 0;
+        lastReservedRoundId.set(0);
+        publish(LedgerFeed.Kind.RESET, 0, List.of());
     }
 
-    private void writeAll(List<DonationEntry> entries) throws IOException {
-        ensureHeader();
-        List<String> lines = new ArrayList<>();
-        lines.add(HEADER);
-        entries.stream()
-                .filter(entry -> entry != null)
-                .sorted(Comparator.comparing(DonationEntry::getTimestamp))
-                .map(DonationEntry::toCsv)
-                .forEach(lines::add);
-        Files.write(
-                LEDGER_FILE,
-                (String.join(System.lineSeparator(), lines) + System.lineSeparator())
-                        .getBytes(StandardCharsets.UTF_8),
-                StandardOpenOption.TRUNCATE_EXISTING,
-                StandardOpenOption.WRITE,
-                StandardOpenOption.CREATE
-        );
+    /**
+     * Rewrites the ledger with its live rows only, dropping superseded rows and their markers.
+     * The new content is written to a temporary file first and then moved over the ledger so a
+     * crash never leaves a half-written file behind.
+     */
+    public synchronized void compact() throws IOException {
+        loadRows();
+        if (supersededRows == 0 || !Files.exists(ledgerFile)) {
+            return;
+        }
+        StringBuilder sb = new StringBuilder(HEADER).append(System.lineSeparator());
+        for (int row = superseded.nextClearBit(0); row < store.size(); row = superseded.nextClearBit(row + 1)) {
+            sb.append(store.entryAt(row).toCsv()).append(System.lineSeparator());
+        }
+        Path temp = stage(sb);
+        log.release();
+        index.invalidate();
+        dropCheckpoint();
+        replaceLedger(temp);
+        clearResident();
+        refresh();
+    }
+
+    /**
+     * Moves the rows of every paid-out round of the active file into the archive and rewrites the
+     * file with the remaining rows. Superseded rows of the moved rounds go along so the archive
+     * keeps the full trail; their summaries keep feeding the carry-over and player totals.
+     *
+     * @return the number of rounds archived
+     */
+    public synchronized int archiveSettledRounds() throws IOException {
+        loadRows();
+        Set<Integer> settled = new HashSet<>();
+        for (int roundId : activeRounds) {
+            if (aggregates.isSettled(roundId)) {
+                settled.add(roundId);
+            }
+        }
+        if (settled.isEmpty() || !Files.exists(ledgerFile)) {
+            return 0;
+        }
+        LedgerAggregates archived = new LedgerAggregates(registry);
+        StringBuilder kept = new StringBuilder(HEADER).append(System.lineSeparator());
+        StringBuilder moved = new StringBuilder();
+        for (int row = 0; row < store.size(); row++) {
+            if (settled.contains(store.roundId(row))) {
+                moved.append(store.entryAt(row).toCsv()).append(System.lineSeparator());
+                archived.apply(store, row);
+            } else {
+                kept.append(store.entryAt(row).toCsv()).append(System.lineSeparator());
+            }
+        }
+        Path temp = stage(kept);
+        archive.stage(moved.toString().getBytes(StandardCharsets.UTF_8), settled, archived);
+        log.release();
+        index.invalidate();
+        dropCheckpoint();
+        try {
+            replaceLedger(temp);
+        } catch (IOException ex) {
+            archive.abort();
+            throw ex;
+        }
+        archive.commit();
+        clearResident();
+        refresh();
+        for (int roundId : settled) {
+            publish(LedgerFeed.Kind.ARCHIVED, roundId, List.of());
+        }
+        return settled.size();
+    }
+
+    /** Queues {@link #archiveSettledRounds()} on the persistence writer. */
+    public CompletableFuture<Integer> archiveSettledRoundsAsync() {
+        return persistence().submit("archivage ledger", this::archiveSettledRounds);
+    }
+
+    public synchronized boolean isArchived(int roundId) {
+        open();
+        return archive.contains(roundId);
+    }
+
+    /**
+     * Reads back the rows of an archived round, superseded rows and supersede markers included.
+     * Returns an empty list for rounds that were never archived.
+     */
+    public synchronized List<DonationEntry> archivedEntries(int roundId) throws IOException {
+        open();
+        return archive.readRound(roundId);
+    }
+
+    /** {@link #isArchived(int)} on the persistence writer, for callers on the JavaFX thread. */
+    public CompletableFuture<Boolean> isArchivedAsync(int roundId) {
+        return persistence().submit("lecture archive tour #" + roundId, () -> isArchived(roundId));
+    }
+
+    /** {@link #archivedEntries(int)} on the persistence writer, for callers on the JavaFX thread. */
+    public CompletableFuture<List<DonationEntry>> archivedEntriesAsync(int roundId) {
+        return persistence().submit("lecture archive tour #" + roundId, () -> archivedEntries(roundId));
+    }
+
+    /** Writes a rewritten ledger next to the active file and forces it to disk. */
+    private Path stage(CharSequence content) throws IOException {
+        Path temp = LedgerArchive.stagedLedgerFile(ledgerFile);
+        try (FileChannel channel = FileChannel.open(temp,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.wrap(content.toString().getBytes(StandardCharsets.UTF_8));
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(false);
+        }
+        return temp;
+    }
+
+    private void replaceLedger(Path temp) throws IOException {
+        try {
+            Files.move(temp, ledgerFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException ex) {
+            Files.move(temp, ledgerFile, StandardCopyOption.REPLACE_EXISTING);
+        }
     }
 
     public static final class RoundRecord {
@@ -217,12 +983,12 @@ public final class DonationsLedger {
         private final String winner;
         private final int payout;
 
-        private RoundRecord(int roundId,
-                            LocalDateTime timestamp,
-                            Map<String, Integer> donations,
-                            int bonus,
-                            String winner,
-                            int payout) {
+        RoundRecord(int roundId,
+                    LocalDateTime timestamp,
+                    Map<String, Integer> donations,
+                    int bonus,
+                    String winner,
+                    int payout) {
             this.roundId = roundId;
             this.timestamp = timestamp;
             this.donations = Map.copyOf(donations);
@@ -264,38 +1030,4 @@ public final class DonationsLedger {
             return winner != null && !winner.isBlank();
         }
     }
-
-    private static final class RoundAccumulator {
-        private final int roundId;
-        private final Map<String, Integer> donations = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
-        private int bonus;
-        private String winner;
-        private int payout;
-        private LocalDateTime timestamp;
-
-        private RoundAccumulator(int roundId) {
-            this.roundId = roundId;
-        }
-
-        private void touch(DonationEntry entry) {
-            if (entry.getTimestamp() != null) {
-                if (timestamp == null || entry.getTimestamp().isAfter(timestamp)) {
-                    timestamp = entry.getTimestamp();
-                }
-            }
-            switch (entry.getType()) {
-                case DON -> donations.put(entry.getPlayer(), entry.getAmount());
-                case BONUS -> bonus = entry.getAmount();
-                case PAYOUT -> {
-                    winner = entry.getPlayer();
-                    payout = entry.getAmount();
-                }
-            }
-        }
-
-        private RoundRecord toRecord() {
-            LocalDateTime ts = timestamp == null ? LocalDateTime.now() : timestamp;
-            return new RoundRecord(roundId, ts, donations, bonus, winner, payout);
-        }
-    }
 }
@@ -0,0 +1,296 @@
+package org.example;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+
+/**
+ * Decodes delimited fields straight from UTF-8 bytes: integers and ISO-8601 timestamps are read in
+ * place, Base64 goes through a reusable scratch buffer and repeated names (players, winners) are
+ * served from a small cache instead of being rebuilt line after line.
+ * <p>
+ * An instance keeps mutable scratch state and must be confined to one thread.
+ */
+final class FieldDecoder {
+
+    /** Returned by {@link #parseLong} when the field is not a number. */
+    static final long INVALID = Long.MIN_VALUE;
+
+    private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ISO_LOCAL_DATE_TIME;
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+    private static final int CACHE_SLOTS = 512;
+    private static final int MAX_CACHED_LENGTH = 64;
+    private static final byte[] BASE64 = new byte[128];
+
+    static {
+        Arrays.fill(BASE64, (byte) -1);
+        String alphabet = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/";
+        for (int i = 0; i < alphabet.length(); i++) {
+            BASE64[alphabet.charAt(i)] = (byte) i;
+        }
+    }
+
+    private final byte[][] cachedBytes = new byte[CACHE_SLOTS][];
+    private final String[] cachedStrings = new String[CACHE_SLOTS];
+    private byte[] scratch = new byte[256];
+
+    static int indexOf(byte[] bytes, int from, int end, byte separator) {
+        for (int i = from; i < end; i++) {
+            if (bytes[i] == separator) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    static boolean isBlank(byte[] bytes, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (bytes[i] != ' ' && bytes[i] != '\t' && bytes[i] != '\r') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static boolean matches(byte[] bytes, int start, int end, String ascii) {
+        if (end - start != ascii.length()) {
+            return false;
+        }
+        for (int i = 0; i < ascii.length(); i++) {
+            if (bytes[start + i] != ascii.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Parses an optionally signed decimal, or returns {@link #INVALID}. */
+    static long parseLong(byte[] bytes, int start, int end) {
+        if (start >= end) {
+            return INVALID;
+        }
+        boolean negative = bytes[start] == '-';
+        int i = negative || bytes[start] == '+' ? start + 1 : start;
+        if (i >= end || end - i > 18) {
+            return INVALID;
+        }
+        long value = 0;
+        for (; i < end; i++) {
+            int digit = bytes[i] - '0';
+            if (digit < 0 || digit > 9) {
+                return INVALID;
+            }
+            value = value * 10 + digit;
+        }
+        return negative ? -value : value;
+    }
+
+    /** Parses an int field, throwing like {@link Integer#parseInt} on malformed input. */
+    static int parseInt(byte[] bytes, int start, int end) {
+        long value = parseLong(bytes, start, end);
+        if (value == INVALID || value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+            throw new NumberFormatException("For input string: \"" + utf8(bytes, start, end) + '"');
+        }
+        return (int) value;
+    }
+
+    /**
+     * Reads {@code yyyy-MM-ddTHH:mm[:ss[.fffffffff]]} digit by digit. Anything outside that fixed
+     * layout goes through {@link LocalDateTime#parse} so the accepted syntax stays ISO_LOCAL_DATE_TIME.
+     */
+    static LocalDateTime parseTimestamp(byte[] bytes, int start, int end) {
+        return parseTimestamp(bytes, start, end, (byte) 'T', FORMATTER);
+    }
+
+    /**
+     * Same fixed-layout fast path with another date/time separator, e.g. a space for
+     * {@code yyyy-MM-dd HH:mm:ss}; other layouts are handed to {@code formatter}.
+     */
+    static LocalDateTime parseTimestamp(byte[] bytes, int start, int end,
+                                        byte separator, DateTimeFormatter formatter) {
+        long nanos = fastEpochNanos(bytes, start, end, separator);
+        if (nanos != INVALID) {
+            return fromEpochNanos(nanos);
+        }
+        return LocalDateTime.parse(utf8(bytes, start, end), formatter);
+    }
+
+    /**
+     * Parses an ISO_LOCAL_DATE_TIME field as nanoseconds since the epoch (wall clock read as UTC),
+     * without creating a {@link LocalDateTime} for the usual fixed layout.
+     */
+    static long parseEpochNanos(byte[] bytes, int start, int end) {
+        long nanos = fastEpochNanos(bytes, start, end, (byte) 'T');
+        if (nanos != INVALID) {
+            return nanos;
+        }
+        return toEpochNanos(LocalDateTime.parse(utf8(bytes, start, end), FORMATTER));
+    }
+
+    /** Same as {@link #parseTimestamp} but returns {@code null} instead of throwing. */
+    static LocalDateTime parseTimestampOrNull(byte[] bytes, int start, int end,
+                                              byte separator, DateTimeFormatter formatter) {
+        if (isBlank(bytes, start, end)) {
+            return null;
+        }
+        try {
+            return parseTimestamp(bytes, start, end, separator, formatter);
+        } catch (DateTimeParseException ex) {
+            return null;
+        }
+    }
+
+    static long toEpochNanos(LocalDateTime timestamp) {
+        return Math.addExact(Math.multiplyExact(timestamp.toEpochSecond(ZoneOffset.UTC), NANOS_PER_SECOND),
+                timestamp.getNano());
+    }
+
+    static LocalDateTime fromEpochNanos(long epochNanos) {
+        return LocalDateTime.ofEpochSecond(
+                Math.floorDiv(epochNanos, NANOS_PER_SECOND),
+                (int) Math.floorMod(epochNanos, NANOS_PER_SECOND),
+                ZoneOffset.UTC);
+    }
+
+    /**
+     * Decodes the fixed layout into epoch nanoseconds, or returns {@link #INVALID} so the caller
+     * falls back to a formatter (other layouts, out-of-range fields, years outside 1678-2261).
+     */
+    private static long fastEpochNanos(byte[] bytes, int start, int end, byte separator) {
+        int length = end - start;
+        if (length < 16
+                || bytes[start + 4] != '-' || bytes[start + 7] != '-' || bytes[start + 10] != separator
+                || bytes[start + 13] != ':') {
+            return INVALID;
+        }
+        int year = digits(bytes, start, 4);
+        int month = digits(bytes, start + 5, 2);
+        int day = digits(bytes, start + 8, 2);
+        int hour = digits(bytes, start + 11, 2);
+        int minute = digits(bytes, start + 14, 2);
+        int second = 0;
+        int nanos = 0;
+        if (length > 16) {
+            if (length < 19 || bytes[start + 16] != ':') {
+                return INVALID;
+            }
+            second = digits(bytes, start + 17, 2);
+            if (length > 19) {
+                int fraction = length - 20;
+                if (bytes[start + 19] != '.' || fraction < 1 || fraction > 9) {
+                    return INVALID;
+                }
+                nanos = digits(bytes, start + 20, fraction);
+                for (int i = fraction; nanos >= 0 && i < 9; i++) {
+                    nanos *= 10;
+                }
+            }
+        }
+        if (year < 1678 || year > 2261 || month < 1 || month > 12 || day < 1 || day > monthLength(year, month)
+                || hour < 0 || hour > 23 || minute < 0 || minute > 59 || second < 0 || second > 59 || nanos < 0) {
+            return INVALID;
+        }
+        long seconds = epochDay(year, month, day) * 86_400L + hour * 3_600L + minute * 60L + second;
+        return seconds * NANOS_PER_SECOND + nanos;
+    }
+
+    private static int monthLength(int year, int month) {
+        return switch (month) {
+            case 2 -> (year % 4 == 0 && (year % 100 != 0 || year % 400 == 0)) ? 29 : 28;
+            case 4, 6, 9, 11 -> 30;
+            default -> 31;
+        };
+    }
+
+    /** Days since 1970-01-01 of a proleptic Gregorian date. */
+    private static long epochDay(int year, int month, int day) {
+        long y = month <= 2 ? year - 1 : year;
+        long era = Math.floorDiv(y, 400);
+        long yearOfEra = y - era * 400;
+        long dayOfYear = (153L * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+        long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146_097 + dayOfEra - 719_468;
+    }
+
+    private static int digits(byte[] bytes, int start, int count) {
+        int value = 0;
+        for (int i = start; i < start + count; i++) {
+            int digit = bytes[i] - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    static String utf8(byte[] bytes, int start, int end) {
+        return new String(bytes, start, end - start, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Returns the field as a string, reusing the instance built for the same bytes earlier when
+     * it is still in the cache.
+     */
+    String text(byte[] bytes, int start, int end) {
+        int length = end - start;
+        if (length == 0) {
+            return "";
+        }
+        if (length > MAX_CACHED_LENGTH) {
+            return utf8(bytes, start, end);
+        }
+        int hash = 1;
+        for (int i = start; i < end; i++) {
+            hash = 31 * hash + bytes[i];
+        }
+        int slot = (hash ^ (hash >>> 16)) & (CACHE_SLOTS - 1);
+        byte[] cached = cachedBytes[slot];
+        if (cached != null && Arrays.equals(cached, 0, cached.length, bytes, start, end)) {
+            return cachedStrings[slot];
+        }
+        String value = utf8(bytes, start, end);
+        cachedBytes[slot] = Arrays.copyOfRange(bytes, start, end);
+        cachedStrings[slot] = value;
+        return value;
+    }
+
+    /**
+     * Decodes a standard Base64 field (padding optional) as UTF-8 text.
+     *
+     * @return the decoded text, or {@code null} when the field is not valid Base64
+     */
+    String base64(byte[] bytes, int start, int end) {
+        int length = end - start;
+        while (length > 0 && bytes[start + length - 1] == '=') {
+            length--;
+        }
+        if (length % 4 == 1 || end - start - length > 2) {
+            return null;
+        }
+        int capacity = length / 4 * 3 + 2;
+        if (scratch.length < capacity) {
+            scratch = new byte[Math.max(capacity, scratch.length * 2)];
+        }
+        int out = 0;
+        int bits = 0;
+        int accumulator = 0;
+        for (int i = start; i < start + length; i++) {
+            int c = bytes[i];
+            int value = c >= 0 && c < 128 ? BASE64[c] : -1;
+            if (value < 0) {
+                return null;
+            }
+            accumulator = ((accumulator << 6) | value) & 0xFFFFFF;
+            bits += 6;
+            if (bits >= 8) {
+                bits -= 8;
+                scratch[out++] = (byte) (accumulator >> bits);
+            }
+        }
+        return text(scratch, 0, out);
+    }
+}
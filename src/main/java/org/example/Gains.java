@@ -26,6 +26,7 @@ public class Gains {
     private final ObservableList<String> objets;
     private final SimpleIntegerProperty extraKamas;
     private final SimpleIntegerProperty carryOver = new SimpleIntegerProperty(0);
+    private boolean carryOverPublished;
     private final ReadOnlyIntegerWrapper totalKamas = new ReadOnlyIntegerWrapper(0);
     private final Map<Participant, ChangeListener<Number>> kamasListeners = new IdentityHashMap<>();
     private final Map<Participant, ChangeListener<String>> donationListeners = new IdentityHashMap<>();
@@ -256,6 +257,25 @@ public class Gains {
         txtExtra.clear();
     }
 
+    /**
+     * Suit le report du ledger : l'abonnement est pris tout de suite et chaque lot d'événements
+     * applique le report publié en dernier. La lecture initiale est faite ailleurs puis remise à
+     * {@link #setInitialCarryOver(int)}.
+     */
+    LedgerFeed.Subscription subscribeCarryOver(DonationsLedger ledger) {
+        return ledger.feed().subscribe(events -> {
+            carryOverPublished = true;
+            setCarryOver(events.get(events.size() - 1).carryOver());
+        });
+    }
+
+    /** Report lu au démarrage ; ignoré si le ledger en a publié un plus récent entre-temps. */
+    void setInitialCarryOver(int value) {
+        if (!carryOverPublished) {
+            setCarryOver(value);
+        }
+    }
+
     public void setCarryOver(int value) {
         carryOver.set(Math.max(0, value));
     }
@@ -268,6 +288,10 @@ public class Gains {
         return carryOver;
     }
 
+    public ReadOnlyIntegerProperty extraKamasProperty() {
+        return extraKamas;
+    }
+
     public ReadOnlyIntegerProperty totalKamasProperty() {
         return totalKamas.getReadOnlyProperty();
     }
@@ -1,56 +1,139 @@
 package org.example;
 
 import javafx.animation.PauseTransition;
+import javafx.application.Platform;
 import javafx.collections.FXCollections;
-import javafx.collections.ListChangeListener;
 import javafx.collections.ObservableList;
 import javafx.geometry.Insets;
+import javafx.geometry.Orientation;
 import javafx.geometry.Pos;
+import javafx.scene.Node;
 import javafx.scene.Scene;
 import javafx.scene.control.Button;
 import javafx.scene.control.ListCell;
 import javafx.scene.control.ListView;
+import javafx.scene.control.ScrollBar;
+import javafx.scene.control.TextField;
 import javafx.scene.control.Tooltip;
 import javafx.scene.input.MouseButton;
 import javafx.scene.layout.HBox;
 import javafx.scene.layout.VBox;
 import javafx.stage.Stage;
+import javafx.stage.WindowEvent;
 import javafx.util.Duration;
 
-import java.io.IOException;
-import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
 import java.nio.file.Path;
+import java.time.DateTimeException;
 import java.time.LocalDateTime;
+import java.time.ZoneOffset;
 import java.time.format.DateTimeFormatter;
-import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
-import java.util.Base64;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 /**
  * Fenêtre affichant l'historique des tirages.
- * Chaque tirage est ajouté sous forme de ligne descriptive.
+ * Chaque tirage est ajouté sous forme de ligne descriptive et enregistré dans un
+ * {@link HistoryJournal} : un ajout ou une suppression n'écrit qu'un enregistrement.
+ * <p>
+ * La fenêtre n'est construite qu'au premier affichage, par le {@link WindowManager}, et l'historique
+ * n'est lu qu'alors, par pages de {@link #PAGE_SIZE} tirages : les plus récents d'abord, puis les
+ * plus anciens à mesure que la liste est remontée. Les tirages enregistrés entre-temps sont
+ * seulement ajoutés à la liste déjà chargée.
+ * <p>
+ * Une zone de recherche interroge un {@link SearchIndex} des résumés, gagnants et participants de
+ * tous les tirages, lus ou non : il est tenu à jour à chaque tirage et enregistré à côté de
+ * l'historique ({@code .search}), si bien qu'au démarrage seuls les tirages enregistrés depuis sa
+ * dernière sauvegarde sont relus.
  */
-public class Historique extends Stage {
+public class Historique extends Stage implements WindowManager.Refreshable {
 
     private final ObservableList<HistoryEntry> lignes = FXCollections.observableArrayList();
-    private final ListView<HistoryEntry> listView;
+    /** Tirages trouvés par la recherche en cours, affichés à la place de {@link #lignes}. */
+    private final ObservableList<HistoryEntry> resultats = FXCollections.observableArrayList();
+    private final TextField recherche = new TextField();
+    /** Construite au premier affichage, par {@link #beforeShow()}. */
+    private ListView<HistoryEntry> listView;
     private final Gains gains;
     private final DonationsLedger ledger;
+    private final HistoryJournal journal;
+    private final PersistenceService persistence;
+    private final PlayerRegistry registry;
+    private final SearchIndex searchIndex = new SearchIndex();
+    private int unsavedSearchEntries;
+    /** Incrémenté à chaque recherche : seule la réponse à la dernière est affichée. */
+    private int searchGeneration;
+    /** Numéro de ligne dans le journal de chaque tirage affiché. */
+    private final Map<HistoryEntry, Integer> journalLines = new IdentityHashMap<>();
+    /** Tours déjà consultés ou publiés par le ledger, tenus à jour par son flux de changements. */
+    private final Map<Integer, DonationsLedger.RoundRecord> rounds = new HashMap<>();
+    /** Tirages enregistrés pendant la lecture de la première page, affichés à son arrivée. */
+    private final List<HistoryEntry> pendingEntries = new ArrayList<>();
     private Tooltip activeTooltip;
 
+    // Pagination : rien n'est lu avant le premier affichage.
+    private boolean loadRequested;
+    private boolean loaded;
+    private boolean pageInFlight;
+    private boolean exhausted;
+    private boolean scrollWatched;
+    /** Numéro de ligne du plus ancien tirage affiché ; les pages suivantes sont lues avant lui. */
+    private int oldestLine = Integer.MAX_VALUE;
+
+    static final int PAGE_SIZE = 200;
+    /** Distance au haut de la liste, en part de la barre, qui déclenche la lecture de la page suivante. */
+    private static final double PREFETCH_THRESHOLD = 0.05;
+    static final int SEARCH_LIMIT = 500;
+    /** Nombre de tirages indexés au-delà duquel l'index de recherche est réenregistré. */
+    private static final int SEARCH_SAVE_EVERY = 32;
+
     private static final Path FILE = Path.of("loterie-historique.txt");
+    private static final Path SEARCH_FILE = Path.of("loterie-historique.txt.search");
     private static final DateTimeFormatter FORMATTER =
             DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
 
-    public Historique(Gains gains, DonationsLedger ledger) {
+    public Historique(Gains gains, DonationsLedger ledger, PersistenceService persistence, PlayerRegistry registry) {
         this.gains = gains;
         this.ledger = ledger;
+        FieldDecoder legacyDecoder = new FieldDecoder();
+        this.journal = new HistoryJournal(FILE, persistence, (bytes, start, end) ->
+                HistoryEntry.parseLegacy(bytes, start, end, legacyDecoder, registry).encode());
+        this.persistence = persistence;
+        this.registry = registry;
         setTitle("Historique des tirages");
 
+        setOnHidden(e -> {
+            hideActiveTooltip();
+            if (unsavedSearchEntries > 0) {
+                saveSearchIndex();
+            }
+        });
+
+        // L'historique n'est lu qu'au premier affichage de la fenêtre
+        addEventHandler(WindowEvent.WINDOW_SHOWING, e -> loadFirstPage());
+        addEventHandler(WindowEvent.WINDOW_SHOWN, e -> watchScrollBar());
+
+        ledger.feed().subscribe(this::applyLedgerChanges);
+    }
+
+    /** Construit la fenêtre au premier affichage ; ensuite, elle est seulement réaffichée. */
+    @Override
+    public void beforeShow() {
+        if (listView != null) {
+            return;
+        }
+        recherche.setPromptText("Rechercher un joueur, un gain, une date…");
+        Theme.styleTextField(recherche);
+        recherche.textProperty().addListener((obs, ov, nv) -> runSearch(nv));
+
         listView = new ListView<>(lignes);
         Theme.styleListView(listView);
         listView.setCellFactory(lv -> new ListCell<>() {
@@ -73,9 +156,9 @@ public class Historique extends Stage {
         Button btnSuppr = new Button("Supprimer");
         Theme.styleButton(btnSuppr);
         btnSuppr.setOnAction(e -> {
-            int idx = listView.getSelectionModel().getSelectedIndex();
-            if (idx >= 0) {
-                lignes.remove(idx);
+            HistoryEntry selected = listView.getSelectionModel().getSelectedItem();
+            if (selected != null) {
+                removeEntry(selected);
                 hideActiveTooltip();
             }
         });
@@ -84,19 +167,32 @@ public class Historique extends Stage {
         actions.setAlignment(Pos.CENTER_RIGHT);
         actions.setPadding(new Insets(4, 0, 0, 0));
 
-        VBox root = new VBox(12, listView, actions);
+        VBox root = new VBox(12, recherche, listView, actions);
         root.setPadding(new Insets(14));
         Theme.styleDialogRoot(root);
         Scene scene = new Scene(root, 400, 300);
         setScene(scene);
+    }
 
-        setOnHidden(e -> hideActiveTooltip());
-
-        // Charge l'historique depuis le fichier s'il existe
-        loadHistory();
-
-        // Sauvegarde automatique à chaque modification
-        lignes.addListener((ListChangeListener<HistoryEntry>) c -> saveHistory());
+    /**
+     * Met à jour les tours connus avec les changements du ledger, sur le thread JavaFX : les
+     * détails d'un tirage n'ont plus à relire le ledger.
+     */
+    private void applyLedgerChanges(List<LedgerFeed.Event> events) {
+        for (LedgerFeed.Event event : events) {
+            switch (event.kind()) {
+                case APPENDED, SUPERSEDED -> {
+                    if (event.round() != null) {
+                        rounds.put(event.roundId(), event.round());
+                    } else {
+                        rounds.remove(event.roundId());
+                    }
+                }
+                case ARCHIVED -> {
+                }
+                case RESET -> rounds.clear();
+            }
+        }
     }
 
     /**
@@ -119,47 +215,259 @@ public class Historique extends Stage {
             sb.append("Perdu");
         }
 
-        List<String> cleanedParticipants = participants == null
-                ? List.of()
+        int[] participantIds = participants == null
+                ? new int[0]
                 : participants.stream()
                 .filter(Objects::nonNull)
                 .map(String::trim)
                 .filter(s -> !s.isEmpty())
-                .collect(Collectors.toUnmodifiableList());
+                .mapToInt(registry::idOf)
+                .distinct()
+                .toArray();
 
         HistoryEntry entry = new HistoryEntry(
                 now,
                 sb.toString(),
-                pseudo,
+                pseudo == null || pseudo.isBlank() ? -1 : registry.idOf(pseudo),
                 Math.max(0, potKamas),
-                cleanedParticipants,
+                participantIds,
                 roundId
         );
-        lignes.add(entry);
+        // Le tirage est écrit tout de suite ; avant le premier affichage, la première page le lira.
+        byte[] encoded = entry.encode();
+        int line = journal.append(encoded);
+        saveEvent("tirage", encoded.length);
+        indexEntry(line, entry);
+        if (isSearching()) {
+            runSearch(recherche.getText());
+        }
+        if (!loadRequested) {
+            return;
+        }
+        journalLines.put(entry, line);
+        if (loaded) {
+            lignes.add(entry);
+        } else {
+            pendingEntries.add(entry);
+        }
+    }
+
+    /**
+     * Annule dans le journal un tirage retiré de la liste, puis compacte si besoin. Le même tirage
+     * peut être affiché deux fois, dans l'historique et dans les résultats : les deux sont retirés.
+     */
+    private void removeEntry(HistoryEntry entry) {
+        Integer line = journalLines.get(entry);
+        if (line == null) {
+            return;
+        }
+        Predicate<HistoryEntry> sameLine = candidate -> line.equals(journalLines.get(candidate));
+        lignes.removeIf(sameLine);
+        resultats.removeIf(sameLine);
+        journalLines.values().removeIf(line::equals);
+        journal.delete(line);
+        if (journal.needsCompaction()) {
+            journal.compact();
+        }
+    }
+
+    /**
+     * Prépare l'historique au démarrage, hors du thread JavaFX : ouverture du journal et index de
+     * recherche. Les tirages eux-mêmes ne sont lus qu'au premier affichage.
+     *
+     * @return l'index à jour, rendu sur le thread JavaFX
+     */
+    public CompletableFuture<SearchIndex> preload() {
+        return loadSearchIndex();
+    }
+
+    /**
+     * Charge l'index de recherche enregistré puis y ajoute les tirages écrits depuis. Un index qui
+     * couvre plus de tirages que le journal n'en compte ne lui correspond plus : il est reconstruit.
+     * Le journal s'ouvre sur le thread de persistance dès sa construction : cette lecture passe après.
+     */
+    private CompletableFuture<SearchIndex> loadSearchIndex() {
+        CompletableFuture<SearchIndex> ready = new CompletableFuture<>();
+        Telemetry.HistoryLoad event = loadEvent("index");
+        persistence.submit("historique (index de recherche)", () -> {
+            SearchIndex saved = SearchIndex.read(SEARCH_FILE);
+            return saved.covered() <= journal.lines() ? saved : null;
+        }).thenCompose(saved -> {
+            SearchIndex usable = saved != null ? saved : new SearchIndex();
+            return journal.since(usable.covered(), HistoryEntry::decode)
+                    .thenAccept(records -> Platform.runLater(() -> {
+                        searchIndex.addAll(usable);
+                        records.forEach(record -> indexEntry(record.line(), record.value()));
+                        if (!records.isEmpty() || saved == null) {
+                            saveSearchIndex();
+                        }
+                        event.records = searchIndex.covered();
+                        event.commit();
+                        ready.complete(searchIndex);
+                    }));
+        }).exceptionally(ex -> {
+            ready.completeExceptionally(ex);
+            return null;
+        });
+        return ready;
+    }
+
+    private void indexEntry(int line, HistoryEntry entry) {
+        StringBuilder text = new StringBuilder(entry.summary() == null ? "" : entry.summary());
+        if (entry.winnerId() >= 0) {
+            text.append(' ').append(registry.nameOf(entry.winnerId()));
+        }
+        for (int id : entry.participantIds()) {
+            text.append(' ').append(registry.nameOf(id));
+        }
+        if (entry.roundId() != null) {
+            text.append(' ').append(entry.roundId());
+        }
+        searchIndex.add(line, text.toString());
+        if (++unsavedSearchEntries >= SEARCH_SAVE_EVERY) {
+            saveSearchIndex();
+        }
+    }
+
+    /** Fige l'index sur le thread JavaFX et l'écrit sur le thread de persistance. */
+    private void saveSearchIndex() {
+        unsavedSearchEntries = 0;
+        byte[] bytes = searchIndex.encode();
+        saveEvent("index", bytes.length);
+        persistence.submit("historique (index de recherche)", () -> {
+            SearchIndex.write(SEARCH_FILE, bytes);
+            return null;
+        });
+    }
+
+    private static Telemetry.HistoryLoad loadEvent(String kind) {
+        Telemetry.HistoryLoad event = new Telemetry.HistoryLoad();
+        event.kind = kind;
+        event.begin();
+        return event;
+    }
+
+    private static void saveEvent(String kind, int bytes) {
+        Telemetry.HistorySave event = new Telemetry.HistorySave();
+        if (event.isEnabled()) {
+            event.kind = kind;
+            event.bytes = bytes;
+            event.commit();
+        }
     }
 
-    private void loadHistory() {
-        try {
-            if (Files.exists(FILE)) {
-                List<HistoryEntry> loaded = Files.readAllLines(FILE).stream()
-                        .map(HistoryEntry::deserialize)
-                        .filter(Objects::nonNull)
-                        .collect(Collectors.toList());
-                lignes.setAll(loaded);
+    private boolean isSearching() {
+        return listView != null && listView.getItems() == resultats;
+    }
+
+    /**
+     * Affiche les tirages correspondant à la recherche, les plus récents d'abord ; une recherche
+     * vide rend l'historique paginé.
+     */
+    private void runSearch(String query) {
+        int generation = ++searchGeneration;
+        if (query == null || query.isBlank()) {
+            resultats.forEach(journalLines::remove);
+            resultats.clear();
+            listView.setItems(lignes);
+            return;
+        }
+        Telemetry.HistoryLoad event = loadEvent("recherche");
+        int[] matches = searchIndex.search(query, SEARCH_LIMIT);
+        journal.read(matches, HistoryEntry::decode).thenAccept(records -> Platform.runLater(() -> {
+            if (generation != searchGeneration) {
+                return;
+            }
+            event.records = records.size();
+            event.commit();
+            resultats.forEach(journalLines::remove);
+            List<HistoryEntry> found = new ArrayList<>(records.size());
+            for (int i = records.size() - 1; i >= 0; i--) {
+                HistoryJournal.Record<HistoryEntry> record = records.get(i);
+                found.add(record.value());
+                journalLines.put(record.value(), record.line());
             }
-        } catch (IOException ex) {
-            System.err.println("Impossible de relire l'historique : " + ex.getMessage());
+            resultats.setAll(found);
+            listView.setItems(resultats);
+        }));
+    }
+
+    /** Demande les tirages les plus récents ; les écritures déjà en file passent avant la lecture. */
+    private void loadFirstPage() {
+        if (loadRequested) {
+            return;
         }
+        loadRequested = true;
+        requestPage(page -> {
+            loaded = true;
+            lignes.addAll(page);
+            lignes.addAll(pendingEntries);
+            pendingEntries.clear();
+            if (!lignes.isEmpty() && !isSearching()) {
+                listView.scrollTo(lignes.size() - 1);
+            }
+            if (journal.needsCompaction()) {
+                journal.compact();
+            }
+        });
     }
 
-    private void saveHistory() {
-        try {
-            List<String> serialized = lignes.stream()
-                    .map(HistoryEntry::serialize)
-                    .collect(Collectors.toList());
-            Files.write(FILE, serialized);
-        } catch (IOException ex) {
-            System.err.println("Impossible de sauvegarder l'historique : " + ex.getMessage());
+    /** Insère la page précédente en tête de liste sans déplacer les lignes visibles. */
+    private void loadOlderPage() {
+        if (!loaded || exhausted || pageInFlight || isSearching()) {
+            return;
+        }
+        requestPage(page -> {
+            lignes.addAll(0, page);
+            listView.scrollTo(page.size());
+        });
+    }
+
+    /**
+     * Lit sur le thread de persistance la page précédant {@link #oldestLine} et la remet au thread
+     * JavaFX ; une page incomplète signale le début de l'historique.
+     */
+    private void requestPage(Consumer<List<HistoryEntry>> apply) {
+        pageInFlight = true;
+        Telemetry.HistoryLoad event = loadEvent("page");
+        journal.<HistoryEntry>page(oldestLine, PAGE_SIZE, HistoryEntry::decode)
+                .whenComplete((records, ex) -> Platform.runLater(() -> {
+                    pageInFlight = false;
+                    if (ex != null) {
+                        // Déjà signalé par le service de persistance.
+                        return;
+                    }
+                    event.records = records.size();
+                    event.commit();
+                    exhausted = records.size() < PAGE_SIZE;
+                    List<HistoryEntry> page = new ArrayList<>(records.size());
+                    for (HistoryJournal.Record<HistoryEntry> record : records) {
+                        page.add(record.value());
+                        journalLines.put(record.value(), record.line());
+                    }
+                    if (!records.isEmpty()) {
+                        oldestLine = records.get(0).line();
+                    }
+                    apply.accept(page);
+                }));
+    }
+
+    /** Lit la page suivante quand la barre de défilement approche du haut de la liste. */
+    private void watchScrollBar() {
+        if (scrollWatched) {
+            return;
+        }
+        for (Node node : listView.lookupAll(".scroll-bar")) {
+            if (node instanceof ScrollBar bar && bar.getOrientation() == Orientation.VERTICAL) {
+                bar.valueProperty().addListener((obs, ov, nv) -> {
+                    double range = bar.getMax() - bar.getMin();
+                    if (nv.doubleValue() <= bar.getMin() + range * PREFETCH_THRESHOLD) {
+                        loadOlderPage();
+                    }
+                });
+                scrollWatched = true;
+                return;
+            }
         }
     }
 
@@ -208,7 +516,13 @@ public class Historique extends Stage {
 
         DonationsLedger.RoundRecord roundRecord = null;
         if (entry.roundId() != null) {
-            roundRecord = ledger.findRoundRecord(entry.roundId()).orElse(null);
+            roundRecord = rounds.get(entry.roundId());
+            if (roundRecord == null) {
+                roundRecord = ledger.findRoundRecord(entry.roundId()).orElse(null);
+                if (roundRecord != null) {
+                    rounds.put(entry.roundId(), roundRecord);
+                }
+            }
         }
 
         if (entry.timestamp() != null) {
@@ -251,7 +565,7 @@ public class Historique extends Stage {
 
         String winner = roundRecord != null && roundRecord.hasWinner()
                 ? roundRecord.winner()
-                : entry.winner();
+                : entry.winnerId() < 0 ? null : registry.nameOf(entry.winnerId());
         sb.append("\nGagnant : ");
         if (winner != null && !winner.isBlank()) {
             sb.append(winner);
@@ -263,158 +577,180 @@ public class Historique extends Stage {
             sb.append("\nContributions :");
             roundRecord.donations().forEach((name, amount) ->
                     sb.append("\n  - ").append(name).append(" : ").append(Kamas.formatFr(amount)).append(" k"));
-        } else if (!entry.participants().isEmpty()) {
-            sb.append("\nParticipants : ").append(String.join(", ", entry.participants()));
+        } else if (entry.participantIds().length > 0) {
+            sb.append("\nParticipants : ").append(Arrays.stream(entry.participantIds())
+                    .mapToObj(registry::nameOf)
+                    .collect(Collectors.joining(", ")));
         }
 
         return sb.toString();
     }
 
+    /**
+     * Tirage de l'historique. Le gagnant et les participants sont des identifiants du
+     * {@link PlayerRegistry}. Il est enregistré en binaire : un octet de présence (horodatage,
+     * gagnant, tour), l'horodatage en varint signé, le résumé en UTF-8 précédé de sa longueur, puis
+     * le gagnant, le pot, les participants et le tour en varints. Les anciennes lignes texte,
+     * tabulées et en Base64, ne sont plus lues que pour la conversion du fichier.
+     */
     private record HistoryEntry(LocalDateTime timestamp,
                                 String summary,
-                                String winner,
+                                int winnerId,
                                 int potKamas,
-                                List<String> participants,
+                                int[] participantIds,
                                 Integer roundId) {
 
-        private static final String FIELD_SEPARATOR = "\t";
-        private static final String LIST_SEPARATOR = ",";
-
-        private static HistoryEntry deserialize(String rawLine) {
-            if (rawLine == null) {
-                return null;
+        private static final int HAS_TIMESTAMP = 1;
+        private static final int HAS_WINNER = 2;
+        private static final int HAS_ROUND = 4;
+        private static final byte FIELD_BYTE = '\t';
+        private static final byte LIST_BYTE = ',';
+        private static final byte ID_BYTE = '#';
+        private static final int[] NO_PLAYERS = new int[0];
+
+        private byte[] encode() {
+            int flags = (timestamp != null ? HAS_TIMESTAMP : 0)
+                    | (winnerId >= 0 ? HAS_WINNER : 0)
+                    | (roundId != null ? HAS_ROUND : 0);
+            BinaryFields.Writer writer = new BinaryFields.Writer().putByte(flags);
+            if (timestamp != null) {
+                writer.putSignedVarLong(timestamp.toEpochSecond(ZoneOffset.UTC));
             }
-            String[] parts = rawLine.split(FIELD_SEPARATOR, -1);
-
-            if (parts.length == 1) {
-                String summary = parts[0];
-                LocalDateTime ts = tryExtractTimestamp(summary);
-                return new HistoryEntry(ts, summary, null, 0, List.of(), null);
+            writer.putString(summary);
+            if (winnerId >= 0) {
+                writer.putVarInt(winnerId);
             }
-
-            LocalDateTime timestamp = parseTimestamp(parts[0]);
-            String summary = decodeOrFallback(parts, 1, rawLine);
-            String winner = decodeOrNull(parts, 2);
-            int pot = parseIntSafe(parts, 3);
-            List<String> participants = parseParticipants(parts);
-            Integer roundId = parseIntegerOrNull(parts, 5);
-
-            return new HistoryEntry(timestamp, summary, winner, pot, participants, roundId);
-        }
-
-        private String serialize() {
-            String timestampToken = timestamp != null ? timestamp.format(FORMATTER) : "";
-            String summaryToken = encode(summary);
-            String winnerToken = encode(winner);
-            String potToken = Integer.toString(Math.max(0, potKamas));
-            String participantsToken = participants.isEmpty()
-                    ? ""
-                    : participants.stream()
-                    .map(HistoryEntry::encode)
-                    .collect(Collectors.joining(LIST_SEPARATOR));
-            String roundIdToken = roundId == null ? "" : Integer.toString(Math.max(0, roundId));
-
-            return String.join(FIELD_SEPARATOR,
-                    timestampToken,
-                    summaryToken,
-                    winnerToken,
-                    potToken,
-                    participantsToken,
-                    roundIdToken
-            );
-        }
-
-        private static String encode(String value) {
-            if (value == null || value.isEmpty()) {
-                return "";
+            writer.putVarInt(Math.max(0, potKamas)).putVarInt(participantIds.length);
+            for (int id : participantIds) {
+                writer.putVarInt(id);
             }
-            return Base64.getEncoder()
-                    .encodeToString(value.getBytes(StandardCharsets.UTF_8));
+            if (roundId != null) {
+                writer.putVarInt(Math.max(0, roundId));
+            }
+            return writer.toByteArray();
         }
 
-        private static String decode(String value) {
-            if (value == null || value.isEmpty()) {
-                return "";
-            }
+        /** Relit un tirage enregistré par {@link #encode()} ; des octets en trop sont ignorés. */
+        private static HistoryEntry decode(byte[] bytes, int start, int end) {
+            BinaryFields.Reader reader = new BinaryFields.Reader(bytes, start, end);
             try {
-                return new String(Base64.getDecoder().decode(value), StandardCharsets.UTF_8);
-            } catch (IllegalArgumentException ex) {
-                return value;
+                int flags = reader.getByte();
+                LocalDateTime timestamp = (flags & HAS_TIMESTAMP) != 0
+                        ? LocalDateTime.ofEpochSecond(reader.getSignedVarLong(), 0, ZoneOffset.UTC)
+                        : null;
+                String summary = reader.getString();
+                int winnerId = (flags & HAS_WINNER) != 0 ? reader.getVarInt() : -1;
+                int pot = reader.getVarInt();
+                int count = reader.getVarInt();
+                int[] participantIds = count == 0 ? NO_PLAYERS : new int[Math.min(count, end - start)];
+                for (int i = 0; i < participantIds.length; i++) {
+                    participantIds[i] = reader.getVarInt();
+                }
+                Integer roundId = (flags & HAS_ROUND) != 0 ? reader.getVarInt() : null;
+                return new HistoryEntry(timestamp, summary, winnerId, pot, participantIds, roundId);
+            } catch (IllegalArgumentException | DateTimeException ex) {
+                return new HistoryEntry(null, "Tirage illisible", -1, 0, NO_PLAYERS, null);
             }
         }
 
-        private static String decodeOrNull(String[] parts, int index) {
-            if (index >= parts.length || parts[index].isEmpty()) {
-                return null;
+        /**
+         * Lit une ligne de l'ancien fichier texte directement depuis ses octets UTF-8 : les champs
+         * sont repérés par leurs tabulations et décodés sur place, sans découpage en chaînes.
+         */
+        private static HistoryEntry parseLegacy(byte[] bytes, int start, int end, FieldDecoder decoder,
+                                          PlayerRegistry registry) {
+            int tab = FieldDecoder.indexOf(bytes, start, end, FIELD_BYTE);
+            if (tab < 0) {
+                String summary = FieldDecoder.utf8(bytes, start, end);
+                LocalDateTime ts = end - start < 19
+                        ? null
+                        : FieldDecoder.parseTimestampOrNull(bytes, start, start + 19, (byte) ' ', FORMATTER);
+                return new HistoryEntry(ts, summary, -1, 0, NO_PLAYERS, null);
             }
-            return decode(parts[index]);
-        }
 
-        private static String decodeOrFallback(String[] parts, int index, String fallback) {
-            if (index >= parts.length || parts[index].isEmpty()) {
-                return fallback;
-            }
-            return decode(parts[index]);
+            LocalDateTime timestamp = FieldDecoder.parseTimestampOrNull(bytes, start, tab, (byte) ' ', FORMATTER);
+            int summaryStart = tab + 1;
+            int summaryEnd = fieldEnd(bytes, summaryStart, end);
+            String summary = summaryStart < summaryEnd
+                    ? decodeBase64(bytes, summaryStart, summaryEnd, decoder)
+                    : FieldDecoder.utf8(bytes, start, end);
+            int winnerStart = summaryEnd + 1;
+            int winnerEnd = fieldEnd(bytes, winnerStart, end);
+            int winnerId = playerId(bytes, winnerStart, winnerEnd, decoder, registry);
+            int potStart = winnerEnd + 1;
+            int potEnd = fieldEnd(bytes, potStart, end);
+            long pot = FieldDecoder.parseLong(bytes, potStart, potEnd);
+            int participantsStart = potEnd + 1;
+            int participantsEnd = fieldEnd(bytes, participantsStart, end);
+            int[] participantIds = parseParticipants(bytes, participantsStart, participantsEnd, decoder, registry);
+            int roundStart = participantsEnd + 1;
+            long roundId = FieldDecoder.parseLong(bytes, roundStart, fieldEnd(bytes, roundStart, end));
+
+            return new HistoryEntry(
+                    timestamp,
+                    summary,
+                    winnerId,
+                    pot == FieldDecoder.INVALID || pot != (int) pot ? 0 : (int) pot,
+                    participantIds,
+                    roundId == FieldDecoder.INVALID || roundId != (int) roundId ? null : (int) roundId
+            );
         }
 
-        private static LocalDateTime parseTimestamp(String raw) {
-            if (raw == null || raw.isBlank()) {
-                return null;
-            }
-            try {
-                return LocalDateTime.parse(raw, FORMATTER);
-            } catch (DateTimeParseException ignored) {
-                return null;
+        /** Fin du champ commençant en {@code from} ; un champ absent donne une plage vide. */
+        private static int fieldEnd(byte[] bytes, int from, int end) {
+            if (from > end) {
+                return from;
             }
+            int tab = FieldDecoder.indexOf(bytes, from, end, FIELD_BYTE);
+            return tab < 0 ? end : tab;
         }
 
-        private static int parseIntSafe(String[] parts, int index) {
-            if (index >= parts.length || parts[index].isBlank()) {
-                return 0;
-            }
-            try {
-                return Integer.parseInt(parts[index]);
-            } catch (NumberFormatException ex) {
-                return 0;
+        private static String decodeBase64(byte[] bytes, int start, int end, FieldDecoder decoder) {
+            if (start >= end) {
+                return "";
             }
+            String decoded = decoder.base64(bytes, start, end);
+            return decoded != null ? decoded : FieldDecoder.utf8(bytes, start, end);
         }
 
-        private static List<String> parseParticipants(String[] parts) {
-            if (parts.length <= 4 || parts[4].isEmpty()) {
-                return List.of();
+        /**
+         * Identifiant d'un joueur écrit {@code #id}, ou pseudo Base64 d'une ligne antérieure au
+         * registre ; {@code -1} pour un champ vide.
+         */
+        private static int playerId(byte[] bytes, int start, int end, FieldDecoder decoder, PlayerRegistry registry) {
+            if (start >= end) {
+                return -1;
             }
-            String[] tokens = parts[4].split(LIST_SEPARATOR, -1);
-            List<String> participants = new ArrayList<>(tokens.length);
-            for (String token : tokens) {
-                if (token.isEmpty()) {
-                    continue;
+            if (bytes[start] == ID_BYTE) {
+                long id = FieldDecoder.parseLong(bytes, start + 1, end);
+                if (id >= 0 && id <= Integer.MAX_VALUE) {
+                    return (int) id;
                 }
-                participants.add(decode(token));
             }
-            return List.copyOf(participants);
+            return registry.idOf(decodeBase64(bytes, start, end, decoder));
         }
 
-        private static Integer parseIntegerOrNull(String[] parts, int index) {
-            if (index >= parts.length || parts[index].isBlank()) {
-                return null;
+        private static int[] parseParticipants(byte[] bytes, int start, int end, FieldDecoder decoder,
+                                               PlayerRegistry registry) {
+            if (start >= end) {
+                return NO_PLAYERS;
             }
-            try {
-                return Integer.valueOf(parts[index]);
-            } catch (NumberFormatException ex) {
-                return null;
+            int[] ids = new int[8];
+            int count = 0;
+            int tokenStart = start;
+            for (int i = start; i <= end; i++) {
+                if (i == end || bytes[i] == LIST_BYTE) {
+                    if (i > tokenStart) {
+                        if (count == ids.length) {
+                            ids = Arrays.copyOf(ids, count * 2);
+                        }
+                        ids[count++] = playerId(bytes, tokenStart, i, decoder, registry);
+                    }
+                    tokenStart = i + 1;
+                }
             }
+            return Arrays.copyOf(ids, count);
         }
 
-        private static LocalDateTime tryExtractTimestamp(String summary) {
-            if (summary == null || summary.length() < 19) {
-                return null;
-            }
-            String prefix = summary.substring(0, 19);
-            try {
-                return LocalDateTime.parse(prefix, FORMATTER);
-            } catch (DateTimeParseException ignored) {
-                return null;
-            }
-        }
     }
 }
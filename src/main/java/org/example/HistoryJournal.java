@@ -0,0 +1,711 @@
+package org.example;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.zip.CRC32;
+
+/**
+ * Journal binaire en ajout seul de l'historique des tirages, lu par pages depuis la fin.
+ * <p>
+ * Le fichier commence par un en-tête de 8 octets (magique {@code HJRB}, version) suivi
+ * d'enregistrements : un octet de nature, la longueur du contenu en varint, le contenu puis le
+ * CRC32 de la nature et du contenu. Un tirage ({@code DRAW}) porte le contenu fourni par
+ * l'appelant ; une suppression ({@code TOMBSTONE}) porte en varint le numéro du tirage qu'elle
+ * annule (numéroté à partir de 0) ; un tirage effacé par le compactage devient un enregistrement
+ * vide ({@code VOID}) qui garde sa place, si bien que la numérotation ne change jamais.
+ * Enregistrer ou supprimer un tirage coûte donc un seul enregistrement. Quand les suppressions
+ * dépassent {@link #COMPACTION_RATIO} des tirages, le fichier est réécrit sans elles.
+ * <p>
+ * Un index ({@code <fichier>.idx}) donne la position de chaque enregistrement : un en-tête de 24
+ * octets (magique, version, octets couverts, nombre de tirages, nombre de suppressions) puis 8
+ * octets par enregistrement, la position d'un tirage, {@code -1 - n} pour la suppression du tirage
+ * n, ou {@link Long#MIN_VALUE} pour un tirage vide. L'ouverture ne lit que l'en-tête et les octets
+ * ajoutés depuis ; les positions ne sont chargées qu'à la lecture de la première page.
+ * <p>
+ * Un ancien historique texte (une ligne par tirage, {@code ~del<TAB>n} pour une suppression) est
+ * converti une fois pour toutes à l'ouverture, ligne pour ligne, par le {@link LegacyConverter}
+ * fourni : les numéros de ligne deviennent les numéros d'enregistrement.
+ * <p>
+ * L'ouverture (conversion éventuelle et mise à jour de l'index) est la première tâche soumise au
+ * {@link PersistenceService}, dès la construction ; les écritures et les lectures de pages passent
+ * ensuite par lui, dans l'ordre où elles sont demandées. Les numéros de tirage sont attribués
+ * immédiatement, sur le thread appelant, qui attend pour cela la fin de l'ouverture ; ils peuvent
+ * l'être depuis n'importe quel thread.
+ */
+final class HistoryJournal {
+
+    /** Part de tirages supprimés à partir de laquelle le fichier est compacté. */
+    static final double COMPACTION_RATIO = 0.25;
+    /** En dessous, les suppressions sont laissées dans le journal quel que soit le ratio. */
+    static final int COMPACTION_MIN_TOMBSTONES = 16;
+
+    static final int FILE_MAGIC = 0x42524A48; // "HJRB"
+    static final short FILE_VERSION = 1;
+    static final int FILE_HEADER_SIZE = 4 + 2 + 2;
+
+    private static final byte DRAW = 1;
+    private static final byte TOMBSTONE = 2;
+    private static final byte VOID = 3;
+    /** Au-delà, une longueur lue ne peut venir que d'un enregistrement abîmé. */
+    private static final int MAX_PAYLOAD = 1 << 20;
+
+    private static final byte[] LEGACY_TOMBSTONE = "~del\t".getBytes(StandardCharsets.UTF_8);
+    private static final int INDEX_MAGIC = 0x484A4958; // "HJIX"
+    private static final short INDEX_VERSION = 2;
+    private static final int INDEX_HEADER_SIZE = 4 + 2 + 2 + 8 + 4 + 4;
+    private static final long BLANK = Long.MIN_VALUE;
+    /** Écart de numéros au-delà duquel deux tirages demandés sont lus séparément. */
+    private static final int READ_GAP = 64;
+
+    /** Décode le contenu d'un tirage ; la plage d'octets n'est valable que pendant l'appel. */
+    @FunctionalInterface
+    interface RecordParser<T> {
+        T parse(byte[] bytes, int start, int end);
+    }
+
+    /** Convertit une ligne de tirage de l'ancien format texte en contenu d'enregistrement. */
+    @FunctionalInterface
+    interface LegacyConverter {
+        byte[] convert(byte[] bytes, int start, int end);
+    }
+
+    /** Tirage encore présent, avec son numéro dans le journal. */
+    record Record<T>(int line, T value) {}
+
+    /** Tirages et suppressions comptés à l'ouverture. */
+    private record Counts(int lines, int tombstones) {}
+
+    /** Enregistrement rencontré lors d'un parcours ; {@code intact} est faux si son CRC diffère. */
+    @FunctionalInterface
+    private interface RecordVisitor {
+        void visit(byte kind, int start, int payloadStart, int payloadEnd, boolean intact);
+    }
+
+    private final Path file;
+    private final Path indexFile;
+    private final PersistenceService persistence;
+    private final LegacyConverter legacy;
+    private final CompletableFuture<Counts> opening;
+
+    // Sous le verrou du journal : numérotation et décision de compactage.
+    private boolean seeded;
+    private int lines;
+    private int tombstones;
+
+    // Thread de persistance : état de l'index.
+    private long covered;
+    private int indexedLines;
+    private int indexedTombstones;
+    /** Positions des tirages, chargées à la première page ; {@code null} avant. */
+    private long[] offsets;
+    private int residentLines;
+    private BitSet deleted;
+
+    HistoryJournal(Path file, PersistenceService persistence, LegacyConverter legacy) {
+        this.file = file;
+        this.indexFile = file.resolveSibling(file.getFileName() + ".idx");
+        this.persistence = persistence;
+        this.legacy = legacy;
+        this.opening = persistence.submit("historique (ouverture)", this::open);
+    }
+
+    /**
+     * Ajoute un tirage au journal.
+     *
+     * @return son numéro, à passer à {@link #delete(int)}
+     */
+    synchronized int append(byte[] payload) {
+        seed();
+        int number = lines++;
+        byte[] bytes = frame(DRAW, payload);
+        persistence.submit("historique", () -> {
+            long offset = write(bytes);
+            index(offset);
+            return null;
+        });
+        return number;
+    }
+
+    /** Annule le tirage indiqué. */
+    synchronized void delete(int line) {
+        seed();
+        tombstones++;
+        byte[] bytes = frame(TOMBSTONE, new BinaryFields.Writer().putVarInt(line).toByteArray());
+        persistence.submit("historique (suppression)", () -> {
+            write(bytes);
+            index(-1L - line);
+            return null;
+        });
+    }
+
+    /** Nombre de tirages numérotés, supprimés compris. */
+    synchronized int lines() {
+        seed();
+        return lines;
+    }
+
+    synchronized boolean needsCompaction() {
+        seed();
+        return tombstones >= COMPACTION_MIN_TOMBSTONES && tombstones >= lines * COMPACTION_RATIO;
+    }
+
+    /**
+     * Lit, sur le thread de persistance, jusqu'à {@code count} tirages encore présents parmi ceux
+     * numérotés avant {@code before}, les plus récents d'abord retenus, rendus dans l'ordre du
+     * fichier. Une page plus courte que {@code count} est la dernière.
+     */
+    <T> CompletableFuture<List<Record<T>>> page(int before, int count, RecordParser<T> parser) {
+        return persistence.submit("historique (lecture)", () -> readPage(before, count, parser));
+    }
+
+    /** Lit les tirages encore présents numérotés à partir de {@code first}, dans l'ordre du fichier. */
+    <T> CompletableFuture<List<Record<T>>> since(int first, RecordParser<T> parser) {
+        return persistence.submit("historique (lecture)", () -> {
+            loadOffsets();
+            int[] picked = new int[Math.max(0, residentLines - first)];
+            int found = 0;
+            for (int line = residentLines - 1; line >= Math.max(0, first); line--) {
+                if (!deleted.get(line)) {
+                    picked[found++] = line;
+                }
+            }
+            return readLines(picked, found, parser);
+        });
+    }
+
+    /**
+     * Lit les tirages indiqués, par exemple les résultats d'une recherche, rendus dans l'ordre du
+     * fichier ; ceux supprimés depuis sont omis.
+     */
+    <T> CompletableFuture<List<Record<T>>> read(int[] lines, RecordParser<T> parser) {
+        int[] wanted = lines.clone();
+        return persistence.submit("historique (lecture)", () -> {
+            loadOffsets();
+            Arrays.sort(wanted);
+            int[] picked = new int[wanted.length];
+            int found = 0;
+            for (int i = wanted.length - 1; i >= 0; i--) {
+                int line = wanted[i];
+                if (line >= 0 && line < residentLines && !deleted.get(line)
+                        && (found == 0 || picked[found - 1] != line)) {
+                    picked[found++] = line;
+                }
+            }
+            return readLines(picked, found, parser);
+        });
+    }
+
+    /**
+     * Réécrit le journal sans ses suppressions. Les tirages supprimés deviennent des
+     * enregistrements vides ; le fichier est remplacé d'un bloc et l'index, retiré pendant
+     * l'échange, est réécrit ensuite.
+     */
+    synchronized void compact() {
+        seed();
+        tombstones = 0;
+        persistence.submit("historique (compactage)", () -> {
+            rewrite();
+            return null;
+        });
+    }
+
+    /**
+     * Reprend, à la première demande, les compteurs établis par l'ouverture, en l'attendant si
+     * besoin. Sur le thread de persistance, l'ouverture est déjà faite : elle passe la première.
+     */
+    private void seed() {
+        if (seeded) {
+            return;
+        }
+        Counts counts = opening.exceptionally(ex -> new Counts(0, 0)).join();
+        lines = counts.lines();
+        tombstones = counts.tombstones();
+        seeded = true;
+    }
+
+    /**
+     * Convertit un ancien historique texte, lit l'en-tête de l'index et indexe les octets ajoutés
+     * depuis sa dernière mise à jour. Première tâche du thread de persistance pour ce journal.
+     */
+    private Counts open() {
+        try {
+            migrateLegacy();
+        } catch (IOException ex) {
+            System.err.println("Impossible de convertir l'ancien historique : " + ex.getMessage());
+        }
+        try {
+            readHeader();
+            catchUp();
+        } catch (IOException ex) {
+            System.err.println("Index de l'historique illisible, reconstruction : " + ex.getMessage());
+            covered = 0;
+            indexedLines = 0;
+            indexedTombstones = 0;
+            try {
+                Files.deleteIfExists(indexFile);
+                catchUp();
+            } catch (IOException again) {
+                System.err.println("Impossible d'indexer l'historique : " + again.getMessage());
+            }
+        }
+        return new Counts(indexedLines, indexedTombstones);
+    }
+
+    /** Réécrit au format binaire un historique texte, ligne pour ligne ; ne fait rien sinon. */
+    private void migrateLegacy() throws IOException {
+        if (!Files.exists(file)) {
+            return;
+        }
+        byte[] content = Files.readAllBytes(file);
+        if (content.length == 0 || isBinary(content)) {
+            return;
+        }
+        ByteBuffer head = ByteBuffer.wrap(content).order(ByteOrder.LITTLE_ENDIAN);
+        if (content.length >= FILE_HEADER_SIZE && head.getInt(0) == FILE_MAGIC) {
+            throw new IOException("version " + head.getShort(4) + " du format inconnue");
+        }
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel target = FileChannel.open(temp,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer out = ByteBuffer.allocate(64 * 1024);
+            out.put(fileHeader());
+            IOException[] failure = {null};
+            LineReader.forEachLine(content, 0, content.length, (bytes, from, to) -> {
+                byte[] record;
+                if (isLegacyTombstone(bytes, from, to)) {
+                    long voided = FieldDecoder.parseLong(bytes, from + LEGACY_TOMBSTONE.length, to);
+                    if (voided < 0 || voided > Integer.MAX_VALUE) {
+                        return;
+                    }
+                    record = frame(TOMBSTONE, new BinaryFields.Writer().putVarInt((int) voided).toByteArray());
+                } else if (FieldDecoder.isBlank(bytes, from, to)) {
+                    record = frame(VOID, new byte[0]);
+                } else {
+                    record = frame(DRAW, legacy.convert(bytes, from, to));
+                }
+                try {
+                    if (out.remaining() < record.length) {
+                        write(target, out.flip(), target.size());
+                        out.clear();
+                    }
+                    if (record.length > out.capacity()) {
+                        write(target, ByteBuffer.wrap(record), target.size());
+                    } else {
+                        out.put(record);
+                    }
+                } catch (IOException ex) {
+                    failure[0] = ex;
+                }
+            });
+            if (failure[0] != null) {
+                throw failure[0];
+            }
+            write(target, out.flip(), target.size());
+            target.force(false);
+        }
+        Files.deleteIfExists(indexFile);
+        replace(temp);
+    }
+
+    /**
+     * Vrai pour un fichier au format binaire, ou pour un en-tête binaire interrompu par un arrêt
+     * brutal : seul un fichier sans en-tête est un ancien historique texte.
+     */
+    private static boolean isBinary(byte[] content) {
+        if (content.length >= FILE_HEADER_SIZE) {
+            ByteBuffer head = ByteBuffer.wrap(content).order(ByteOrder.LITTLE_ENDIAN);
+            return head.getInt(0) == FILE_MAGIC && head.getShort(4) == FILE_VERSION;
+        }
+        byte[] header = fileHeader().array();
+        return Arrays.equals(content, 0, content.length, header, 0, content.length);
+    }
+
+    private void readHeader() throws IOException {
+        covered = 0;
+        indexedLines = 0;
+        indexedTombstones = 0;
+        if (!Files.exists(indexFile)) {
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(indexFile, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer header = ByteBuffer.allocate(INDEX_HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            read(channel, header, 0);
+            header.flip();
+            if (header.remaining() < INDEX_HEADER_SIZE || header.getInt() != INDEX_MAGIC
+                    || header.getShort() != INDEX_VERSION) {
+                throw new IOException("en-tête invalide");
+            }
+            header.getShort();
+            long claimed = header.getLong();
+            int claimedLines = header.getInt();
+            int claimedTombstones = header.getInt();
+            long records = (long) claimedLines + claimedTombstones;
+            if (claimedLines < 0 || claimedTombstones < 0 || channel.size() < INDEX_HEADER_SIZE + records * 8) {
+                throw new IOException("index tronqué");
+            }
+            if (!Files.exists(file) || Files.size(file) < claimed) {
+                throw new IOException("historique plus court que son index");
+            }
+            // Positions écrites après la dernière mise à jour de l'en-tête : les enregistrements seront rescannés.
+            channel.truncate(INDEX_HEADER_SIZE + records * 8);
+            covered = claimed;
+            indexedLines = claimedLines;
+            indexedTombstones = claimedTombstones;
+        }
+    }
+
+    /** Indexe les enregistrements complets situés après les octets couverts. */
+    private void catchUp() throws IOException {
+        if (!Files.exists(file)) {
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long from = Math.max(covered, FILE_HEADER_SIZE);
+            if (size <= from) {
+                return;
+            }
+            if (size - from > Integer.MAX_VALUE) {
+                throw new IOException("historique trop volumineux");
+            }
+            ByteBuffer tail = ByteBuffer.allocate((int) (size - from));
+            read(channel, tail, from);
+            List<Long> records = new ArrayList<>();
+            int end = scan(tail.array(), 0, tail.position(), (kind, start, payloadStart, payloadEnd, intact) -> {
+                if (!intact) {
+                    System.err.println("Tirage illisible dans l'historique (CRC), ignoré à la position " + (from + start));
+                    if (kind != TOMBSTONE) {
+                        records.add(BLANK);
+                    }
+                } else if (kind == DRAW) {
+                    records.add(from + start);
+                } else if (kind == VOID) {
+                    records.add(BLANK);
+                } else {
+                    long target = tombstoneTarget(tail.array(), payloadStart, payloadEnd);
+                    if (target >= 0) {
+                        records.add(-1L - target);
+                    }
+                }
+            });
+            // Un dernier enregistrement incomplet est un reste d'écriture interrompue : la prochaine le recouvre.
+            persist(records, from + end);
+        }
+    }
+
+    /**
+     * Parcourt les enregistrements complets de {@code [from, end)} et rend la position qui suit le
+     * dernier ; un enregistrement tronqué ou de nature inconnue arrête le parcours.
+     */
+    private static int scan(byte[] bytes, int from, int end, RecordVisitor visitor) {
+        int position = from;
+        CRC32 crc = new CRC32();
+        while (position < end) {
+            byte kind = bytes[position];
+            if (kind != DRAW && kind != TOMBSTONE && kind != VOID) {
+                return position;
+            }
+            int length = 0;
+            int cursor = position + 1;
+            int shift = 0;
+            while (true) {
+                if (cursor >= end || shift > 28) {
+                    return position;
+                }
+                byte b = bytes[cursor++];
+                length |= (b & 0x7F) << shift;
+                if (b >= 0) {
+                    break;
+                }
+                shift += 7;
+            }
+            if (length < 0 || length > MAX_PAYLOAD || (long) cursor + length + 4 > end) {
+                return position;
+            }
+            int payloadEnd = cursor + length;
+            crc.reset();
+            crc.update(kind);
+            crc.update(bytes, cursor, length);
+            int stored = ByteBuffer.wrap(bytes, payloadEnd, 4).order(ByteOrder.LITTLE_ENDIAN).getInt();
+            visitor.visit(kind, position, cursor, payloadEnd, stored == (int) crc.getValue());
+            position = payloadEnd + 4;
+        }
+        return position;
+    }
+
+    private static long tombstoneTarget(byte[] bytes, int start, int end) {
+        try {
+            return new BinaryFields.Reader(bytes, start, end).getVarInt() & 0xFFFFFFFFL;
+        } catch (IllegalArgumentException ex) {
+            return -1;
+        }
+    }
+
+    private static byte[] frame(byte kind, byte[] payload) {
+        BinaryFields.Writer writer = new BinaryFields.Writer().putByte(kind).putVarInt(payload.length);
+        byte[] head = writer.toByteArray();
+        byte[] record = Arrays.copyOf(head, head.length + payload.length + 4);
+        System.arraycopy(payload, 0, record, head.length, payload.length);
+        CRC32 crc = new CRC32();
+        crc.update(kind);
+        crc.update(payload);
+        ByteBuffer.wrap(record, head.length + payload.length, 4).order(ByteOrder.LITTLE_ENDIAN)
+                .putInt((int) crc.getValue());
+        return record;
+    }
+
+    private static ByteBuffer fileHeader() {
+        ByteBuffer header = ByteBuffer.allocate(FILE_HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(FILE_MAGIC).putShort(FILE_VERSION).putShort((short) 0);
+        return header.flip();
+    }
+
+    /** Écrit un enregistrement à la fin des octets couverts, en écrasant un reste incomplet. */
+    private long write(byte[] bytes) throws IOException {
+        long offset = Math.max(covered, FILE_HEADER_SIZE);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            if (covered < FILE_HEADER_SIZE) {
+                write(channel, fileHeader(), 0);
+            }
+            write(channel, ByteBuffer.wrap(bytes), offset);
+            channel.truncate(offset + bytes.length);
+        }
+        covered = offset + bytes.length;
+        return offset;
+    }
+
+    private void index(long record) throws IOException {
+        persist(List.of(record), covered);
+    }
+
+    /** Ajoute des positions à l'index puis met l'en-tête à jour. */
+    private void persist(List<Long> records, long newCovered) throws IOException {
+        if (records.isEmpty() && newCovered == covered && Files.exists(indexFile)) {
+            return;
+        }
+        int addedLines = 0;
+        int addedTombstones = 0;
+        ByteBuffer buffer = ByteBuffer.allocate(records.size() * 8).order(ByteOrder.LITTLE_ENDIAN);
+        for (long record : records) {
+            buffer.putLong(record);
+            if (record >= 0 || record == BLANK) {
+                addedLines++;
+            } else {
+                addedTombstones++;
+            }
+        }
+        buffer.flip();
+        try (FileChannel channel = FileChannel.open(indexFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            long position = INDEX_HEADER_SIZE + ((long) indexedLines + indexedTombstones) * 8;
+            write(channel, buffer, position);
+            indexedLines += addedLines;
+            indexedTombstones += addedTombstones;
+            covered = newCovered;
+            write(channel, indexHeader(), 0);
+        }
+        if (offsets != null) {
+            for (long record : records) {
+                track(record);
+            }
+        }
+    }
+
+    private ByteBuffer indexHeader() {
+        ByteBuffer header = ByteBuffer.allocate(INDEX_HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(INDEX_MAGIC).putShort(INDEX_VERSION).putShort((short) 0)
+                .putLong(covered).putInt(indexedLines).putInt(indexedTombstones);
+        return header.flip();
+    }
+
+    /** Charge les positions de l'index la première fois qu'une page est demandée. */
+    private void loadOffsets() throws IOException {
+        if (offsets != null) {
+            return;
+        }
+        offsets = new long[Math.max(16, indexedLines)];
+        residentLines = 0;
+        deleted = new BitSet();
+        int records = indexedLines + indexedTombstones;
+        if (records == 0) {
+            return;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(records * 8).order(ByteOrder.LITTLE_ENDIAN);
+        try (FileChannel channel = FileChannel.open(indexFile, StandardOpenOption.READ)) {
+            read(channel, buffer, INDEX_HEADER_SIZE);
+        }
+        buffer.flip();
+        while (buffer.remaining() >= 8) {
+            track(buffer.getLong());
+        }
+    }
+
+    /** Reporte une position de l'index dans les tableaux résidents. */
+    private void track(long record) {
+        if (record >= 0 || record == BLANK) {
+            if (residentLines == offsets.length) {
+                offsets = Arrays.copyOf(offsets, offsets.length * 2);
+            }
+            offsets[residentLines] = record;
+            if (record == BLANK) {
+                deleted.set(residentLines);
+            }
+            residentLines++;
+        } else {
+            deleted.set((int) (-1L - record));
+        }
+    }
+
+    private <T> List<Record<T>> readPage(int before, int count, RecordParser<T> parser) throws IOException {
+        loadOffsets();
+        int[] picked = new int[Math.max(0, count)];
+        int found = 0;
+        for (int line = Math.min(before, residentLines) - 1; line >= 0 && found < picked.length; line--) {
+            if (!deleted.get(line)) {
+                picked[found++] = line;
+            }
+        }
+        return readLines(picked, found, parser);
+    }
+
+    /**
+     * Lit les tirages {@code picked[0..found)}, donnés du plus récent au plus ancien. Les tirages
+     * proches sont lus d'un seul bloc ; un écart de plus de {@link #READ_GAP} numéros en ouvre un
+     * nouveau, pour ne pas relire tout le fichier entre deux résultats éloignés.
+     */
+    private <T> List<Record<T>> readLines(int[] picked, int found, RecordParser<T> parser) throws IOException {
+        if (found == 0) {
+            return List.of();
+        }
+        List<Record<T>> result = new ArrayList<>(found);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            int next = found - 1;
+            while (next >= 0) {
+                int stop = next;
+                while (stop > 0 && picked[stop - 1] - picked[stop] <= READ_GAP) {
+                    stop--;
+                }
+                readBlock(channel, picked, next, stop, parser, result);
+                next = stop - 1;
+            }
+        }
+        return result;
+    }
+
+    /** Lit d'un bloc les tirages {@code picked[from]} (le plus ancien) à {@code picked[to]}. */
+    private <T> void readBlock(FileChannel channel, int[] picked, int from, int to, RecordParser<T> parser,
+                               List<Record<T>> result) throws IOException {
+        long start = offsets[picked[from]];
+        long end = covered;
+        for (int line = picked[to] + 1; line < residentLines; line++) {
+            if (offsets[line] != BLANK) {
+                end = offsets[line];
+                break;
+            }
+        }
+        // Les suppressions et tirages vides compris dans la plage sont lus puis ignorés.
+        ByteBuffer region = ByteBuffer.allocate((int) (end - start));
+        read(channel, region, start);
+        int[] next = {from};
+        scan(region.array(), 0, region.position(), (kind, at, payloadStart, payloadEnd, intact) -> {
+            if (next[0] < to || start + at != offsets[picked[next[0]]]) {
+                return;
+            }
+            if (intact) {
+                result.add(new Record<>(picked[next[0]], parser.parse(region.array(), payloadStart, payloadEnd)));
+            } else {
+                System.err.println("Tirage illisible dans l'historique (CRC), ignoré : n°" + picked[next[0]]);
+            }
+            next[0]--;
+        });
+    }
+
+    /** Réécrit le fichier sans les suppressions, les tirages supprimés remplacés par des enregistrements vides. */
+    private void rewrite() throws IOException {
+        loadOffsets();
+        if (!Files.exists(file) || covered <= FILE_HEADER_SIZE) {
+            return;
+        }
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        List<Long> records = new ArrayList<>(indexedLines);
+        byte[] voidRecord = frame(VOID, new byte[0]);
+        try (FileChannel source = FileChannel.open(file, StandardOpenOption.READ);
+             FileChannel target = FileChannel.open(temp,
+                     StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer content = ByteBuffer.allocate((int) covered);
+            read(source, content, 0);
+            ByteBuffer out = ByteBuffer.allocate((int) covered);
+            out.put(fileHeader());
+            int[] line = {0};
+            scan(content.array(), FILE_HEADER_SIZE, content.position(), (kind, from, payloadStart, payloadEnd, intact) -> {
+                if (kind == TOMBSTONE) {
+                    return;
+                }
+                if (kind == DRAW && intact && !deleted.get(line[0])) {
+                    records.add((long) out.position());
+                    out.put(content.array(), from, payloadEnd + 4 - from);
+                } else {
+                    records.add(BLANK);
+                    out.put(voidRecord);
+                }
+                line[0]++;
+            });
+            write(target, out.flip(), 0);
+            target.force(false);
+        }
+        Files.deleteIfExists(indexFile);
+        replace(temp);
+        long written = Files.size(file);
+        covered = 0;
+        indexedLines = 0;
+        indexedTombstones = 0;
+        offsets = new long[Math.max(16, records.size())];
+        residentLines = 0;
+        deleted = new BitSet();
+        persist(records, written);
+    }
+
+    private void replace(Path temp) throws IOException {
+        try {
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException ex) {
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static boolean isLegacyTombstone(byte[] bytes, int start, int end) {
+        if (end - start <= LEGACY_TOMBSTONE.length) {
+            return false;
+        }
+        for (int i = 0; i < LEGACY_TOMBSTONE.length; i++) {
+            if (bytes[start + i] != LEGACY_TOMBSTONE[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void read(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining() && channel.read(buffer, position + buffer.position()) > 0) {
+            // remplit la plage
+        }
+    }
+
+    private static void write(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+}
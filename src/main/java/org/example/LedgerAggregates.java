@@ -0,0 +1,416 @@
+package org.example;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Materialized view of the ledger totals, maintained entry by entry so the UI never has to rescan
+ * the CSV: running incoming/outgoing sums, per-player DON totals and one accumulator per round.
+ * <p>
+ * Players are grouped by {@link PlayerRegistry} id, so case variants and renamed players add up to
+ * the same totals; names are only looked up when a map is handed to the UI.
+ */
+final class LedgerAggregates {
+
+    private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ISO_LOCAL_DATE_TIME;
+    /** Timestamp of a round event that did not happen. */
+    private static final long NONE = Long.MIN_VALUE;
+
+    private final PlayerRegistry registry;
+    private final TreeMap<Integer, RoundAccumulator> rounds = new TreeMap<>();
+    /** DON totals indexed by player id. */
+    private int[] playerTotals = new int[64];
+    private long incoming;
+    private long outgoing;
+    private List<DonationsLedger.RoundRecord> recordsView;
+    private Map<String, Integer> playerTotalsView;
+    /**
+     * Rounds superseded by this partial, which also void the snapshots of the partials merged before
+     * it; {@code null} unless the aggregates cover a chunk of a larger file.
+     */
+    private final Set<Integer> supersededRounds;
+
+    LedgerAggregates(PlayerRegistry registry) {
+        this(registry, false);
+    }
+
+    LedgerAggregates(PlayerRegistry registry, boolean partial) {
+        this.registry = registry;
+        this.supersededRounds = partial ? new HashSet<>() : null;
+    }
+
+    /** Applies an entry built elsewhere; its player is resolved by name in this registry. */
+    void apply(DonationEntry entry) {
+        int playerId = switch (entry.getType()) {
+            case DON, PAYOUT -> registry.idOf(entry.getPlayer());
+            case BONUS, SUPERSEDE -> -1;
+        };
+        apply(entry.getRoundId(), entry.getType(), playerId, entry.getAmount(),
+                FieldDecoder.toEpochNanos(entry.getTimestamp()));
+    }
+
+    void apply(LedgerStore store, int row) {
+        apply(store.roundId(row), store.type(row), store.playerId(row), store.amount(row), store.epochNanos(row));
+    }
+
+    void apply(int roundId, DonationEntry.Type type, int playerId, int amount, long epochNanos) {
+        switch (type) {
+            case DON -> {
+                incoming += amount;
+                addPlayerTotal(playerId, amount);
+            }
+            case BONUS -> incoming += amount;
+            case PAYOUT -> outgoing += amount;
+            case SUPERSEDE -> {
+                retractSnapshot(roundId);
+                if (supersededRounds != null) {
+                    supersededRounds.add(roundId);
+                }
+                return;
+            }
+        }
+        rounds.computeIfAbsent(roundId, RoundAccumulator::new).touch(type, playerId, amount, epochNanos);
+        recordsView = null;
+    }
+
+    /**
+     * Removes the DON and BONUS rows of a round from every aggregate, as when a new snapshot of
+     * that round replaces the previous one. The payout, if any, is kept.
+     */
+    void retractSnapshot(int roundId) {
+        RoundAccumulator accumulator = rounds.get(roundId);
+        if (accumulator == null) {
+            return;
+        }
+        incoming -= accumulator.snapshotIncoming();
+        for (int i = 0; i < accumulator.donorCount; i++) {
+            addPlayerTotal(accumulator.donors[i], -accumulator.contributions[i]);
+        }
+        accumulator.clearSnapshot();
+        if (accumulator.isEmpty()) {
+            rounds.remove(roundId);
+        }
+        recordsView = null;
+    }
+
+    void clear() {
+        rounds.clear();
+        Arrays.fill(playerTotals, 0);
+        playerTotalsView = null;
+        incoming = 0;
+        outgoing = 0;
+        recordsView = null;
+    }
+
+    /**
+     * Adds another set of aggregates to this one, as when the summaries of closed ledger segments
+     * are stacked under the active segment. Rounds present on both sides are combined. Both sides
+     * must share the same registry.
+     * <p>
+     * When {@code other} is a partial that superseded some rounds, their snapshots are retracted
+     * from this side first, so partials merged in file order give the same result as one replay.
+     */
+    void merge(LedgerAggregates other) {
+        if (other.supersededRounds != null) {
+            other.supersededRounds.forEach(this::retractSnapshot);
+        }
+        incoming += other.incoming;
+        outgoing += other.outgoing;
+        for (int id = 0; id < other.playerTotals.length; id++) {
+            if (other.playerTotals[id] != 0) {
+                addPlayerTotal(id, other.playerTotals[id]);
+            }
+        }
+        other.rounds.forEach((roundId, source) ->
+                rounds.computeIfAbsent(roundId, RoundAccumulator::new).mergeFrom(source));
+        recordsView = null;
+    }
+
+    private void addPlayerTotal(int playerId, int amount) {
+        if (playerId < 0) {
+            return;
+        }
+        if (playerId >= playerTotals.length) {
+            playerTotals = Arrays.copyOf(playerTotals, Math.max(playerId + 1, playerTotals.length * 2));
+        }
+        playerTotals[playerId] += amount;
+        playerTotalsView = null;
+    }
+
+    boolean hasSnapshot(int roundId) {
+        RoundAccumulator accumulator = rounds.get(roundId);
+        return accumulator != null && accumulator.hasSnapshot;
+    }
+
+    /** Whether the round has been paid out, which settles it for good. */
+    boolean isSettled(int roundId) {
+        RoundAccumulator accumulator = rounds.get(roundId);
+        return accumulator != null && accumulator.payoutTimestamp != NONE;
+    }
+
+    boolean isEmpty() {
+        return rounds.isEmpty() && incoming == 0 && outgoing == 0;
+    }
+
+    int minRoundId() {
+        return rounds.isEmpty() ? 0 : rounds.firstKey();
+    }
+
+    /**
+     * Serializes the aggregates as semicolon separated lines, the format used by segment summaries.
+     * Players are written by name so a summary stays readable with another registry.
+     */
+    List<String> toSummaryLines() {
+        List<String> lines = new ArrayList<>();
+        lines.add("totals;" + incoming + ';' + outgoing + ';' + minRoundId() + ';' + maxRoundId());
+        for (int id = 0; id < playerTotals.length; id++) {
+            if (playerTotals[id] != 0) {
+                lines.add("player;" + registry.nameOf(id) + ';' + playerTotals[id]);
+            }
+        }
+        for (RoundAccumulator round : rounds.values()) {
+            lines.add("round;" + round.roundId
+                    + ';' + format(round.snapshotTimestamp)
+                    + ';' + format(round.payoutTimestamp)
+                    + ';' + (round.hasSnapshot ? 1 : 0)
+                    + ';' + round.bonus
+                    + ';' + round.bonusTotal
+                    + ';' + round.payout
+                    + ';' + (round.winner < 0 ? "" : registry.nameOf(round.winner)));
+            for (int i = 0; i < round.donorCount; i++) {
+                lines.add("don;" + round.roundId
+                        + ';' + registry.nameOf(round.donors[i])
+                        + ';' + round.donations[i]
+                        + ';' + round.contributions[i]);
+            }
+        }
+        return lines;
+    }
+
+    static LedgerAggregates fromSummaryLines(List<String> lines, PlayerRegistry registry) {
+        LedgerAggregates aggregates = new LedgerAggregates(registry);
+        for (String line : lines) {
+            if (line.isBlank()) {
+                continue;
+            }
+            String[] parts = line.split(";", -1);
+            switch (parts[0]) {
+                case "totals" -> {
+                    aggregates.incoming = Long.parseLong(parts[1]);
+                    aggregates.outgoing = Long.parseLong(parts[2]);
+                }
+                case "player" -> aggregates.addPlayerTotal(registry.idOf(parts[1]), Integer.parseInt(parts[2]));
+                case "round" -> {
+                    RoundAccumulator round = aggregates.new RoundAccumulator(Integer.parseInt(parts[1]));
+                    round.snapshotTimestamp = parse(parts[2]);
+                    round.payoutTimestamp = parse(parts[3]);
+                    round.hasSnapshot = parts[4].equals("1");
+                    round.bonus = Integer.parseInt(parts[5]);
+                    round.bonusTotal = Long.parseLong(parts[6]);
+                    round.payout = Integer.parseInt(parts[7]);
+                    round.winner = parts[8].isEmpty() ? -1 : registry.idOf(parts[8]);
+                    aggregates.rounds.put(round.roundId, round);
+                }
+                case "don" -> {
+                    RoundAccumulator round = aggregates.rounds.get(Integer.parseInt(parts[1]));
+                    if (round != null) {
+                        int slot = round.slot(registry.idOf(parts[2]));
+                        round.donations[slot] = Integer.parseInt(parts[3]);
+                        round.contributions[slot] += Integer.parseInt(parts[4]);
+                    }
+                }
+                default -> throw new IllegalArgumentException("Unknown summary line: " + line);
+            }
+        }
+        return aggregates;
+    }
+
+    private static String format(long epochNanos) {
+        return epochNanos == NONE ? "" : FORMATTER.format(FieldDecoder.fromEpochNanos(epochNanos));
+    }
+
+    private static long parse(String raw) {
+        return raw.isEmpty() ? NONE : FieldDecoder.toEpochNanos(LocalDateTime.parse(raw, FORMATTER));
+    }
+
+    int carryOver() {
+        long carry = incoming - outgoing;
+        if (carry < 0) {
+            carry = 0;
+        } else if (carry > Integer.MAX_VALUE) {
+            carry = Integer.MAX_VALUE;
+        }
+        return (int) carry;
+    }
+
+    int maxRoundId() {
+        return rounds.isEmpty() ? 0 : rounds.lastKey();
+    }
+
+    int playerTotal(int playerId) {
+        return playerId >= 0 && playerId < playerTotals.length ? playerTotals[playerId] : 0;
+    }
+
+    /** DON totals keyed by current player name, case-insensitively. */
+    Map<String, Integer> playerTotals() {
+        if (playerTotalsView == null) {
+            Map<String, Integer> totals = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+            for (int id = 0; id < playerTotals.length; id++) {
+                if (playerTotals[id] != 0) {
+                    totals.merge(registry.nameOf(id), playerTotals[id], Integer::sum);
+                }
+            }
+            playerTotalsView = Collections.unmodifiableMap(totals);
+        }
+        return playerTotalsView;
+    }
+
+    List<DonationsLedger.RoundRecord> roundRecords() {
+        if (recordsView == null) {
+            List<DonationsLedger.RoundRecord> records = new ArrayList<>(rounds.size());
+            for (RoundAccumulator accumulator : rounds.values()) {
+                records.add(accumulator.toRecord());
+            }
+            recordsView = Collections.unmodifiableList(records);
+        }
+        return recordsView;
+    }
+
+    DonationsLedger.RoundRecord roundRecord(int roundId) {
+        RoundAccumulator accumulator = rounds.get(roundId);
+        return accumulator == null ? null : accumulator.toRecord();
+    }
+
+    private final class RoundAccumulator {
+        private final int roundId;
+        /** Player ids of the round, with their latest DON amount and their summed contributions. */
+        private int[] donors = new int[8];
+        private int[] donations = new int[8];
+        private int[] contributions = new int[8];
+        private int donorCount;
+        private int bonus;
+        private long bonusTotal;
+        private boolean hasSnapshot;
+        private int winner = -1;
+        private int payout;
+        private long snapshotTimestamp = NONE;
+        private long payoutTimestamp = NONE;
+        private DonationsLedger.RoundRecord record;
+
+        private RoundAccumulator(int roundId) {
+            this.roundId = roundId;
+        }
+
+        /** Index of the player in the donor arrays, appended when absent. */
+        private int slot(int playerId) {
+            for (int i = 0; i < donorCount; i++) {
+                if (donors[i] == playerId) {
+                    return i;
+                }
+            }
+            if (donorCount == donors.length) {
+                donors = Arrays.copyOf(donors, donorCount * 2);
+                donations = Arrays.copyOf(donations, donorCount * 2);
+                contributions = Arrays.copyOf(contributions, donorCount * 2);
+            }
+            donors[donorCount] = playerId;
+            donations[donorCount] = 0;
+            contributions[donorCount] = 0;
+            return donorCount++;
+        }
+
+        private void touch(DonationEntry.Type type, int playerId, int amount, long ts) {
+            switch (type) {
+                case DON -> {
+                    int slot = slot(playerId);
+                    donations[slot] = amount;
+                    contributions[slot] += amount;
+                    snapshotTimestamp = Math.max(snapshotTimestamp, ts);
+                    hasSnapshot = true;
+                }
+                case BONUS -> {
+                    bonus = amount;
+                    bonusTotal += amount;
+                    snapshotTimestamp = Math.max(snapshotTimestamp, ts);
+                    hasSnapshot = true;
+                }
+                case PAYOUT -> {
+                    winner = playerId;
+                    payout = amount;
+                    payoutTimestamp = Math.max(payoutTimestamp, ts);
+                }
+                case SUPERSEDE -> {
+                }
+            }
+            record = null;
+        }
+
+        private void mergeFrom(RoundAccumulator other) {
+            for (int i = 0; i < other.donorCount; i++) {
+                int slot = slot(other.donors[i]);
+                donations[slot] = other.donations[i];
+                contributions[slot] += other.contributions[i];
+            }
+            if (other.hasSnapshot) {
+                bonus = other.bonus;
+            }
+            bonusTotal += other.bonusTotal;
+            hasSnapshot |= other.hasSnapshot;
+            if (other.payoutTimestamp != NONE) {
+                winner = other.winner;
+                payout = other.payout;
+            }
+            snapshotTimestamp = Math.max(snapshotTimestamp, other.snapshotTimestamp);
+            payoutTimestamp = Math.max(payoutTimestamp, other.payoutTimestamp);
+            record = null;
+        }
+
+        private long snapshotIncoming() {
+            long total = bonusTotal;
+            for (int i = 0; i < donorCount; i++) {
+                total += contributions[i];
+            }
+            return total;
+        }
+
+        private void clearSnapshot() {
+            donorCount = 0;
+            bonus = 0;
+            bonusTotal = 0;
+            hasSnapshot = false;
+            snapshotTimestamp = NONE;
+            record = null;
+        }
+
+        private boolean isEmpty() {
+            return !hasSnapshot && payoutTimestamp == NONE;
+        }
+
+        private DonationsLedger.RoundRecord toRecord() {
+            if (record == null) {
+                Map<String, Integer> byName = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+                for (int i = 0; i < donorCount; i++) {
+                    byName.put(registry.nameOf(donors[i]), donations[i]);
+                }
+                long ts = Math.max(snapshotTimestamp, payoutTimestamp);
+                record = new DonationsLedger.RoundRecord(
+                        roundId,
+                        ts == NONE ? LocalDateTime.now() : FieldDecoder.fromEpochNanos(ts),
+                        byName,
+                        bonus,
+                        winner < 0 ? null : registry.nameOf(winner),
+                        payout
+                );
+            }
+            return record;
+        }
+    }
+}
@@ -0,0 +1,479 @@
+package org.example;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Cold storage for the settled rounds of the donations ledger.
+ * <p>
+ * {@code <ledger>.archive} is a sequence of blocks, each holding the Deflate-compressed CSV rows of
+ * the rounds moved out of the active file by one {@link DonationsLedger#archiveSettledRounds()}
+ * run. Superseded rows and supersede markers are kept so the history stays auditable. A block
+ * starts with a text line ({@code DLGA;rawLength;length;crc32}) so the archive can be rescanned
+ * on its own.
+ * <p>
+ * {@code <ledger>.archive.idx} lists the blocks with the rounds they hold, then the summary of
+ * every archived round in the segment summary format, and ends with a CRC32 of the file. Only the
+ * index is read at startup; a block is inflated when one of its rounds is drilled into.
+ * <p>
+ * Archiving a run touches three files: the block is appended and the rewritten ledger is staged
+ * first, then the new index is written as {@code .pending}, then the ledger and the index are
+ * moved into place in that order. On the next launch a pending index is committed if the staged
+ * ledger was moved and dropped otherwise, so archived rounds are never counted twice nor lost.
+ * Bytes after the last indexed block, left by an interrupted run, are truncated.
+ */
+final class LedgerArchive {
+
+    private static final String MAGIC = "DLGA";
+    private static final int VERSION = 1;
+    /** Longest block header line accepted when the archive is rescanned. */
+    private static final int MAX_BLOCK_HEADER = 128;
+
+    /** One compressed run of archived rows; {@code offset} points at its compressed bytes. */
+    private record Block(long offset, int length, int rawLength, long crc, int[] rounds) {}
+
+    private final Path archiveFile;
+    private final Path indexFile;
+    private final Path pendingFile;
+    private final Path stagedLedger;
+    private final PlayerRegistry registry;
+    private final List<Block> blocks = new ArrayList<>();
+    /** Blocks of each round; a round gets a second block if rows were appended after it was archived. */
+    private final Map<Integer, List<Block>> byRound = new HashMap<>();
+    private LedgerAggregates summary;
+    private long end;
+    private boolean loaded;
+    private Block stagedBlock;
+    private LedgerAggregates stagedSummary;
+    /** Live rows of every block, read on first use; the blocks never change once written. */
+    private List<DonationEntry> live;
+
+    LedgerArchive(Path ledgerFile, PlayerRegistry registry) {
+        this.archiveFile = ledgerFile.resolveSibling(ledgerFile.getFileName() + ".archive");
+        this.indexFile = ledgerFile.resolveSibling(ledgerFile.getFileName() + ".archive.idx");
+        this.pendingFile = indexFile.resolveSibling(indexFile.getFileName() + ".pending");
+        this.stagedLedger = stagedLedgerFile(ledgerFile);
+        this.registry = registry;
+        this.summary = new LedgerAggregates(registry);
+    }
+
+    /** Where the ledger rewritten by an archive run is staged before it replaces the active file. */
+    static Path stagedLedgerFile(Path ledgerFile) {
+        return ledgerFile.resolveSibling(ledgerFile.getFileName() + ".tmp");
+    }
+
+    boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * Finishes or rolls back an interrupted run, then reads the index. A missing or unreadable
+     * index is rebuilt by rescanning the archive.
+     */
+    void load() {
+        loaded = true;
+        blocks.clear();
+        byRound.clear();
+        live = null;
+        summary = new LedgerAggregates(registry);
+        end = 0;
+        try {
+            recover();
+        } catch (IOException ex) {
+            System.err.println("Impossible de terminer l'archivage interrompu : " + ex.getMessage());
+        }
+        if (!Files.exists(archiveFile)) {
+            return;
+        }
+        if (!readIndex(indexFile)) {
+            rebuild();
+        }
+        try (FileChannel channel = FileChannel.open(archiveFile, StandardOpenOption.WRITE)) {
+            if (channel.size() > end) {
+                channel.truncate(end);
+            }
+        } catch (IOException ex) {
+            System.err.println("Impossible de tronquer l'archive du ledger : " + ex.getMessage());
+        }
+    }
+
+    /**
+     * Reads the committed blocks and leaves every file as it is: an interrupted run is neither
+     * finished nor rolled back, and a damaged index is worked around by scanning the blocks
+     * instead of being rewritten. For tools reading a ledger they must not change.
+     */
+    void loadReadOnly() {
+        loaded = true;
+        blocks.clear();
+        byRound.clear();
+        live = null;
+        summary = new LedgerAggregates(registry);
+        end = 0;
+        if (!Files.exists(archiveFile)) {
+            return;
+        }
+        // A pending index whose ledger was already moved into place is the committed one.
+        Path committed = Files.exists(pendingFile) && !Files.exists(stagedLedger) ? pendingFile : indexFile;
+        if (!readIndex(committed)) {
+            scan();
+        }
+    }
+
+    /** Aggregates of every archived round, stacked under the active file like a segment baseline. */
+    LedgerAggregates summary() {
+        return summary;
+    }
+
+    boolean contains(int roundId) {
+        return byRound.containsKey(roundId);
+    }
+
+    /** Identifies the archived content; it changes with every archive run. */
+    String fingerprint() {
+        return blocks.size() + ":" + end;
+    }
+
+    /**
+     * Inflates the blocks holding a round and returns its rows in the order they were written,
+     * superseded rows and supersede markers included.
+     */
+    List<DonationEntry> readRound(int roundId) throws IOException {
+        List<Block> holding = byRound.get(roundId);
+        if (holding == null) {
+            return List.of();
+        }
+        List<DonationEntry> rows = new ArrayList<>();
+        try (FileChannel channel = FileChannel.open(archiveFile, StandardOpenOption.READ)) {
+            for (Block block : holding) {
+                for (DonationEntry entry : parseRows(inflate(block, read(channel, block.offset(), block.length())))) {
+                    if (entry.getRoundId() == roundId) {
+                        rows.add(entry);
+                    }
+                }
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Rows of every archived round in the order they were written, without superseded rows nor
+     * supersede markers. A marker voids the DON and BONUS rows of its round written before it,
+     * including those of an earlier block.
+     */
+    List<DonationEntry> liveEntries() throws IOException {
+        if (live != null) {
+            return live;
+        }
+        List<DonationEntry> rows = new ArrayList<>();
+        if (!blocks.isEmpty()) {
+            try (FileChannel channel = FileChannel.open(archiveFile, StandardOpenOption.READ)) {
+                for (Block block : blocks) {
+                    rows.addAll(parseRows(inflate(block, read(channel, block.offset(), block.length()))));
+                }
+            }
+        }
+        live = Collections.unmodifiableList(DonationsLedger.withoutSuperseded(rows));
+        return live;
+    }
+
+    /**
+     * Appends the rows of a run as a new block and writes the index that includes it as
+     * {@code .pending}. The ledger rewritten without these rows must already be staged; it is
+     * moved into place by the caller before {@link #commit()}.
+     *
+     * @param rows     CSV rows of the archived rounds, each terminated by a line separator
+     * @param rounds   the archived round ids
+     * @param archived aggregates of the archived rows
+     */
+    void stage(byte[] rows, Set<Integer> rounds, LedgerAggregates archived) throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update(rows);
+        byte[] compressed = deflate(rows);
+        byte[] header = (MAGIC + ';' + rows.length + ';' + compressed.length + ';' + crc.getValue() + '\n')
+                .getBytes(StandardCharsets.UTF_8);
+        try (FileChannel channel = FileChannel.open(archiveFile,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.allocate(header.length + compressed.length).put(header).put(compressed).flip();
+            long position = end;
+            while (buffer.hasRemaining()) {
+                position += channel.write(buffer, position);
+            }
+            channel.truncate(position);
+            channel.force(false);
+        }
+        int[] roundIds = rounds.stream().mapToInt(Integer::intValue).sorted().toArray();
+        stagedBlock = new Block(end + header.length, compressed.length, rows.length, crc.getValue(), roundIds);
+        stagedSummary = new LedgerAggregates(registry);
+        stagedSummary.merge(summary);
+        stagedSummary.merge(archived);
+        List<Block> next = new ArrayList<>(blocks);
+        next.add(stagedBlock);
+        writeIndex(pendingFile, next, stagedBlock.offset() + stagedBlock.length(), stagedSummary);
+    }
+
+    /** Publishes the staged run once the rewritten ledger has replaced the active file. */
+    void commit() throws IOException {
+        move(pendingFile, indexFile);
+        add(stagedBlock);
+        live = null;
+        end = stagedBlock.offset() + stagedBlock.length();
+        summary = stagedSummary;
+        stagedBlock = null;
+        stagedSummary = null;
+    }
+
+    /** Forgets a staged run whose ledger could not be moved into place. */
+    void abort() throws IOException {
+        Files.deleteIfExists(pendingFile);
+        stagedBlock = null;
+        stagedSummary = null;
+    }
+
+    void deleteAll() throws IOException {
+        Files.deleteIfExists(pendingFile);
+        Files.deleteIfExists(indexFile);
+        Files.deleteIfExists(archiveFile);
+        blocks.clear();
+        byRound.clear();
+        live = null;
+        summary = new LedgerAggregates(registry);
+        end = 0;
+    }
+
+    private void recover() throws IOException {
+        if (!Files.exists(pendingFile)) {
+            return;
+        }
+        if (Files.exists(stagedLedger)) {
+            // The ledger still holds the rows: the run never happened.
+            Files.delete(stagedLedger);
+            Files.delete(pendingFile);
+        } else {
+            move(pendingFile, indexFile);
+        }
+    }
+
+    private boolean readIndex(Path source) {
+        if (!Files.exists(source)) {
+            return false;
+        }
+        try {
+            byte[] bytes = Files.readAllBytes(source);
+            int trailer = bytes.length - 1;
+            while (trailer > 0 && bytes[trailer - 1] != '\n') {
+                trailer--;
+            }
+            String crcLine = new String(bytes, trailer, bytes.length - trailer, StandardCharsets.UTF_8).strip();
+            CRC32 crc = new CRC32();
+            crc.update(bytes, 0, trailer);
+            if (!crcLine.equals("crc;" + crc.getValue())) {
+                throw new IOException("somme de contrôle invalide");
+            }
+            List<String> lines = Arrays.asList(new String(bytes, 0, trailer, StandardCharsets.UTF_8).split("\n"));
+            String[] header = lines.get(0).split(";", -1);
+            if (header.length != 3 || !header[0].equals(MAGIC) || Integer.parseInt(header[1]) != VERSION) {
+                throw new IOException("en-tête invalide");
+            }
+            long indexedEnd = Long.parseLong(header[2]);
+            if (Files.size(archiveFile) < indexedEnd) {
+                throw new IOException("archive tronquée");
+            }
+            int first = 1;
+            while (first < lines.size() && lines.get(first).startsWith("block;")) {
+                String[] parts = lines.get(first++).split(";", -1);
+                int[] rounds = parts[5].isEmpty() ? new int[0]
+                        : Arrays.stream(parts[5].split(",")).mapToInt(Integer::parseInt).toArray();
+                add(new Block(Long.parseLong(parts[1]), Integer.parseInt(parts[2]),
+                        Integer.parseInt(parts[3]), Long.parseLong(parts[4]), rounds));
+            }
+            summary = LedgerAggregates.fromSummaryLines(lines.subList(first, lines.size()), registry);
+            end = indexedEnd;
+            return true;
+        } catch (IOException | RuntimeException ex) {
+            System.err.println("Index de l'archive illisible, reconstruction : " + ex.getMessage());
+            blocks.clear();
+            byRound.clear();
+            return false;
+        }
+    }
+
+    /** Rebuilds the index from the blocks themselves, stopping at the first damaged one. */
+    private void rebuild() {
+        scan();
+        try {
+            writeIndex(indexFile, blocks, end, summary);
+        } catch (IOException ex) {
+            System.err.println("Impossible d'écrire l'index de l'archive : " + ex.getMessage());
+        }
+    }
+
+    /** Reads the blocks one after the other up to the first damaged one. */
+    private void scan() {
+        LedgerAggregates rebuilt = new LedgerAggregates(registry);
+        List<Block> found = new ArrayList<>();
+        long position = 0;
+        try (FileChannel channel = FileChannel.open(archiveFile, StandardOpenOption.READ)) {
+            long size = channel.size();
+            while (position < size) {
+                byte[] window = read(channel, position, (int) Math.min(MAX_BLOCK_HEADER, size - position));
+                int newline = FieldDecoder.indexOf(window, 0, window.length, (byte) '\n');
+                if (newline < 0) {
+                    break;
+                }
+                String[] header = new String(window, 0, newline, StandardCharsets.UTF_8).split(";", -1);
+                if (header.length != 4 || !header[0].equals(MAGIC)) {
+                    break;
+                }
+                long offset = position + newline + 1;
+                int length = Integer.parseInt(header[2]);
+                if (offset + length > size) {
+                    break;
+                }
+                Block block = new Block(offset, length, Integer.parseInt(header[1]), Long.parseLong(header[3]), null);
+                List<DonationEntry> rows = parseRows(inflate(block, read(channel, offset, length)));
+                rows.forEach(rebuilt::apply);
+                int[] rounds = rows.stream().mapToInt(DonationEntry::getRoundId).distinct().sorted().toArray();
+                found.add(new Block(offset, length, block.rawLength(), block.crc(), rounds));
+                position = offset + length;
+            }
+        } catch (IOException | RuntimeException ex) {
+            System.err.println("Bloc d'archive illisible, lecture arrêtée à " + position + " octets : " + ex.getMessage());
+        }
+        found.forEach(this::add);
+        summary = rebuilt;
+        end = position;
+    }
+
+    private static List<DonationEntry> parseRows(byte[] raw) {
+        List<DonationEntry> rows = new ArrayList<>();
+        FieldDecoder decoder = new FieldDecoder();
+        LineReader.forEachLine(raw, 0, raw.length, (bytes, start, stop) -> {
+            if (!FieldDecoder.isBlank(bytes, start, stop)) {
+                rows.add(DonationEntry.parse(bytes, start, stop, decoder));
+            }
+        });
+        return rows;
+    }
+
+    private void add(Block block) {
+        blocks.add(block);
+        for (int roundId : block.rounds()) {
+            byRound.computeIfAbsent(roundId, id -> new ArrayList<>(1)).add(block);
+        }
+    }
+
+    private static void writeIndex(Path target, List<Block> blocks, long end, LedgerAggregates summary)
+            throws IOException {
+        StringBuilder sb = new StringBuilder();
+        sb.append(MAGIC).append(';').append(VERSION).append(';').append(end).append('\n');
+        for (Block block : blocks) {
+            sb.append("block;").append(block.offset())
+                    .append(';').append(block.length())
+                    .append(';').append(block.rawLength())
+                    .append(';').append(block.crc())
+                    .append(';').append(Arrays.stream(block.rounds())
+                            .mapToObj(String::valueOf)
+                            .collect(Collectors.joining(",")))
+                    .append('\n');
+        }
+        for (String line : summary.toSummaryLines()) {
+            sb.append(line).append('\n');
+        }
+        byte[] body = sb.toString().getBytes(StandardCharsets.UTF_8);
+        CRC32 crc = new CRC32();
+        crc.update(body);
+        byte[] trailer = ("crc;" + crc.getValue() + '\n').getBytes(StandardCharsets.UTF_8);
+
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.allocate(body.length + trailer.length).put(body).put(trailer).flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(false);
+        }
+        move(temp, target);
+    }
+
+    private static byte[] deflate(byte[] raw) {
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        try {
+            deflater.setInput(raw);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, raw.length / 4));
+            byte[] chunk = new byte[8192];
+            while (!deflater.finished()) {
+                out.write(chunk, 0, deflater.deflate(chunk));
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] inflate(Block block, byte[] compressed) throws IOException {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(compressed);
+            byte[] raw = new byte[block.rawLength()];
+            int length = 0;
+            while (length < raw.length && !inflater.finished()) {
+                int inflated = inflater.inflate(raw, length, raw.length - length);
+                if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                length += inflated;
+            }
+            CRC32 crc = new CRC32();
+            crc.update(raw, 0, length);
+            if (length != raw.length || crc.getValue() != block.crc()) {
+                throw new IOException("bloc d'archive corrompu à l'offset " + block.offset());
+            }
+            return raw;
+        } catch (DataFormatException ex) {
+            throw new IOException("bloc d'archive corrompu à l'offset " + block.offset(), ex);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private static byte[] read(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining() && channel.read(buffer, position + buffer.position()) > 0) {
+            // keep reading until the range is covered or EOF is reached
+        }
+        if (buffer.hasRemaining()) {
+            throw new IOException("archive tronquée à l'offset " + position);
+        }
+        return buffer.array();
+    }
+
+    private static void move(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException ex) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package org.example;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.zip.CRC32;
+
+/**
+ * Checkpoint file ({@code <ledger>.ckpt}) holding the ledger aggregates as of a byte offset of the
+ * active file, so a launch only replays the rows appended after it.
+ * <p>
+ * The file is text: a header line (magic, version, offset covered, fingerprint of the ledger,
+ * closed segments it was taken with, first active timestamp, superseded row count), the active
+ * round ids, the aggregates in the segment summary format and a final CRC32 of everything before
+ * it. The ledger fingerprint is a CRC32 of the CSV header line and of the bytes right before the
+ * offset; a checkpoint whose fingerprint, segments or checksum do not match is ignored.
+ */
+final class LedgerCheckpoint {
+
+    /** Bytes appended to the active file between two checkpoints. */
+    static final long INTERVAL_BYTES = 256 * 1024;
+
+    private static final String MAGIC = "DLGC";
+    private static final int VERSION = 1;
+    /** Bytes before the covered offset included in the ledger fingerprint. */
+    private static final int TAIL_WINDOW = 64;
+    private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ISO_LOCAL_DATE_TIME;
+
+    /** Ledger state restored from a checkpoint. */
+    record State(long offset,
+                 byte[] header,
+                 LocalDateTime firstActive,
+                 int supersededRows,
+                 Set<Integer> activeRounds,
+                 LedgerAggregates aggregates) {}
+
+    private final Path ledgerFile;
+    private final Path file;
+
+    LedgerCheckpoint(Path ledgerFile) {
+        this.ledgerFile = ledgerFile;
+        this.file = ledgerFile.resolveSibling(ledgerFile.getFileName() + ".ckpt");
+    }
+
+    /**
+     * Writes a checkpoint covering the first {@code offset} bytes of the ledger. The file is
+     * replaced atomically so a crash leaves either the previous checkpoint or the new one.
+     */
+    void write(long offset,
+               String segments,
+               LocalDateTime firstActive,
+               int supersededRows,
+               Set<Integer> activeRounds,
+               LedgerAggregates aggregates) throws IOException {
+        long fingerprint;
+        try (FileChannel ledger = FileChannel.open(ledgerFile, StandardOpenOption.READ)) {
+            fingerprint = fingerprint(ledger, offset, readHeader(ledger));
+        }
+        StringBuilder sb = new StringBuilder();
+        sb.append(MAGIC).append(';').append(VERSION)
+                .append(';').append(offset)
+                .append(';').append(fingerprint)
+                .append(';').append(segments)
+                .append(';').append(firstActive == null ? "" : FORMATTER.format(firstActive))
+                .append(';').append(supersededRows)
+                .append('\n');
+        sb.append("active;").append(activeRounds.stream()
+                .sorted()
+                .map(String::valueOf)
+                .collect(Collectors.joining(","))).append('\n');
+        for (String line : aggregates.toSummaryLines()) {
+            sb.append(line).append('\n');
+        }
+        byte[] body = sb.toString().getBytes(StandardCharsets.UTF_8);
+        CRC32 crc = new CRC32();
+        crc.update(body);
+        byte[] trailer = ("crc;" + crc.getValue() + '\n').getBytes(StandardCharsets.UTF_8);
+
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.allocate(body.length + trailer.length).put(body).put(trailer).flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+        try {
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException ex) {
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Reads the checkpoint if it is intact and still describes the ledger file.
+     *
+     * @return the restored state, or {@code null} when the ledger has to be replayed from the start
+     */
+    State read(String segments, PlayerRegistry registry) {
+        if (!Files.exists(file) || !Files.exists(ledgerFile)) {
+            return null;
+        }
+        try {
+            byte[] bytes = Files.readAllBytes(file);
+            int trailer = bytes.length - 1;
+            while (trailer > 0 && bytes[trailer - 1] != '\n') {
+                trailer--;
+            }
+            String crcLine = new String(bytes, trailer, bytes.length - trailer, StandardCharsets.UTF_8).strip();
+            CRC32 crc = new CRC32();
+            crc.update(bytes, 0, trailer);
+            if (!crcLine.equals("crc;" + crc.getValue())) {
+                throw new IOException("somme de contrôle invalide");
+            }
+            List<String> lines = new ArrayList<>(Arrays.asList(
+                    new String(bytes, 0, trailer, StandardCharsets.UTF_8).split("\n")));
+            String[] header = lines.get(0).split(";", -1);
+            if (header.length != 7 || !header[0].equals(MAGIC) || Integer.parseInt(header[1]) != VERSION) {
+                throw new IOException("en-tête invalide");
+            }
+            if (!header[4].equals(segments)) {
+                return null;
+            }
+            long offset = Long.parseLong(header[2]);
+            byte[] ledgerHeader;
+            try (FileChannel ledger = FileChannel.open(ledgerFile, StandardOpenOption.READ)) {
+                ledgerHeader = readHeader(ledger);
+                if (ledger.size() < offset
+                        || ledgerHeader == null
+                        || fingerprint(ledger, offset, ledgerHeader) != Long.parseLong(header[3])) {
+                    return null;
+                }
+            }
+            Set<Integer> activeRounds = new HashSet<>();
+            String active = lines.get(1);
+            if (!active.startsWith("active;")) {
+                throw new IOException("rounds actifs absents");
+            }
+            for (String roundId : active.substring("active;".length()).split(",")) {
+                if (!roundId.isEmpty()) {
+                    activeRounds.add(Integer.parseInt(roundId));
+                }
+            }
+            return new State(
+                    offset,
+                    ledgerHeader,
+                    header[5].isEmpty() ? null : LocalDateTime.parse(header[5], FORMATTER),
+                    Integer.parseInt(header[6]),
+                    activeRounds,
+                    LedgerAggregates.fromSummaryLines(lines.subList(2, lines.size()), registry)
+            );
+        } catch (IOException | RuntimeException ex) {
+            System.err.println("Checkpoint du ledger ignoré : " + ex.getMessage());
+            return null;
+        }
+    }
+
+    /** Drops the checkpoint, as when the ledger file is compacted, rolled or reset. */
+    void delete() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    /** First line of the ledger, terminator included; {@code null} if it is not complete yet. */
+    private static byte[] readHeader(FileChannel ledger) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(ledger.size(), 4096));
+        while (buffer.hasRemaining() && ledger.read(buffer, buffer.position()) > 0) {
+            // fill the window
+        }
+        byte[] bytes = buffer.array();
+        for (int i = 0; i < buffer.position(); i++) {
+            if (bytes[i] == '\n') {
+                return Arrays.copyOf(bytes, i + 1);
+            }
+        }
+        return null;
+    }
+
+    private static long fingerprint(FileChannel ledger, long offset, byte[] header) throws IOException {
+        CRC32 crc = new CRC32();
+        if (header != null) {
+            crc.update(header);
+        }
+        long start = Math.max(0, offset - TAIL_WINDOW);
+        ByteBuffer window = ByteBuffer.allocate((int) (offset - start));
+        while (window.hasRemaining() && ledger.read(window, start + window.position()) > 0) {
+            // fill the window
+        }
+        crc.update(window.array(), 0, window.position());
+        return crc.getValue();
+    }
+}
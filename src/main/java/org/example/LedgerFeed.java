@@ -0,0 +1,113 @@
+package org.example;
+
+import javafx.application.Platform;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * Change feed of a {@link DonationsLedger}: every write publishes the rows it added and the state it
+ * left behind, so views apply deltas instead of reloading the ledger.
+ * <p>
+ * Events are published by the writing thread, usually the persistence writer, and handed to each
+ * subscriber on its executor, the JavaFX thread by default. Events that pile up before the executor
+ * gets to run are delivered together as one batch, in publication order, so a burst of writes costs
+ * a single UI update.
+ */
+public final class LedgerFeed {
+
+    public enum Kind {
+        /** Rows appended to a round: a snapshot or a payout. */
+        APPENDED,
+        /** The earlier DON/BONUS rows of a round were voided by a new snapshot, published next. */
+        SUPERSEDED,
+        /** The rows of a settled round moved to the archive; its record is unchanged. */
+        ARCHIVED,
+        /** The ledger was cleared, closed segments and archive included. */
+        RESET
+    }
+
+    /**
+     * One change of the ledger.
+     *
+     * @param roundId   the round concerned, 0 for {@link Kind#RESET}
+     * @param rows      the appended rows for {@link Kind#APPENDED}, empty otherwise
+     * @param round     the round record after the change, {@code null} when the round has no record
+     * @param carryOver the carry-over after the change
+     */
+    public record Event(Kind kind, int roundId, List<DonationEntry> rows, DonationsLedger.RoundRecord round,
+                        int carryOver) {}
+
+    /** Handle returned by {@link #subscribe}; closing it stops the deliveries. */
+    public interface Subscription extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+
+    /** Delivers batches of events on the JavaFX thread. */
+    public Subscription subscribe(Consumer<List<Event>> listener) {
+        return subscribe(listener, Platform::runLater);
+    }
+
+    Subscription subscribe(Consumer<List<Event>> listener, Executor executor) {
+        Subscriber subscriber = new Subscriber(listener, executor);
+        subscribers.add(subscriber);
+        return subscriber;
+    }
+
+    void publish(Event event) {
+        for (Subscriber subscriber : subscribers) {
+            subscriber.offer(event);
+        }
+    }
+
+    boolean hasSubscribers() {
+        return !subscribers.isEmpty();
+    }
+
+    private final class Subscriber implements Subscription {
+        private final Consumer<List<Event>> listener;
+        private final Executor executor;
+        private final ConcurrentLinkedQueue<Event> pending = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private volatile boolean closed;
+
+        private Subscriber(Consumer<List<Event>> listener, Executor executor) {
+            this.listener = listener;
+            this.executor = executor;
+        }
+
+        private void offer(Event event) {
+            pending.add(event);
+            if (scheduled.compareAndSet(false, true)) {
+                executor.execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            // Cleared first: an event offered while draining schedules the next batch.
+            scheduled.set(false);
+            List<Event> batch = new ArrayList<>();
+            for (Event event = pending.poll(); event != null; event = pending.poll()) {
+                batch.add(event);
+            }
+            if (!batch.isEmpty() && !closed) {
+                listener.accept(batch);
+            }
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+            subscribers.remove(this);
+            pending.clear();
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package org.example;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Full ledger load spread over the cores: the file is cut into chunks aligned on line ends, and
+ * each chunk is read with a positional read into its own heap buffer and parsed on the common
+ * {@link ForkJoinPool} into its own {@link LedgerStore} and partial {@link LedgerAggregates}.
+ * <p>
+ * The file is deliberately not memory-mapped. On Windows, a mapping that has not yet been
+ * garbage-collected blocks replacing or truncating the ledger (compaction, reset, recovery).
+ * <p>
+ * Partials record the rounds they supersede, so merging them in file order into the ledger
+ * aggregates retracts the snapshots of earlier chunks exactly like a sequential replay would: the
+ * latest snapshot of a round wins. Incremental reads of appended rows stay sequential.
+ */
+final class LedgerParallelLoader {
+
+    /** Files smaller than this are parsed sequentially; splitting them costs more than it saves. */
+    static final long THRESHOLD = 4L << 20;
+    static final int CHUNK_SIZE = 1 << 20;
+    /** Bytes read at a time while looking for the line end nearest a chunk boundary. */
+    private static final int SCAN_WINDOW = 8 << 10;
+
+    /**
+     * Parsed content of the ledger.
+     *
+     * @param header   the header line, terminator included
+     * @param consumed offset right after the last complete line
+     * @param store    every row, in file order
+     * @param partials aggregates of each chunk, in file order
+     */
+    record Result(byte[] header, long consumed, LedgerStore store, List<LedgerAggregates> partials) {}
+
+    private LedgerParallelLoader() {
+    }
+
+    /**
+     * @return the parsed ledger, or {@code null} when the file is too large for int offsets or has
+     * no complete header line yet
+     */
+    static Result load(FileChannel channel, long size, PlayerRegistry registry, int chunkSize) throws IOException {
+        if (size > Integer.MAX_VALUE) {
+            return null;
+        }
+        int limit = (int) size;
+        int headerEnd = indexOfNewline(channel, 0, limit);
+        int lastEnd = lastNewline(channel, limit);
+        if (headerEnd < 0) {
+            return null;
+        }
+
+        List<Chunk> chunks = new ArrayList<>();
+        int start = headerEnd + 1;
+        while (start <= lastEnd) {
+            int target = (int) Math.min((long) start + chunkSize, lastEnd + 1L);
+            int end = target > lastEnd ? lastEnd + 1 : indexOfNewline(channel, target - 1, lastEnd + 1) + 1;
+            chunks.add(new Chunk(channel, start, end, new LedgerStore(registry), new LedgerAggregates(registry, true)));
+            start = end;
+        }
+        CompletableFuture<?>[] parsing = new CompletableFuture<?>[chunks.size()];
+        for (int i = 0; i < parsing.length; i++) {
+            Chunk chunk = chunks.get(i);
+            parsing[i] = CompletableFuture.runAsync(() -> {
+                try {
+                    chunk.parse();
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+            }, ForkJoinPool.commonPool());
+        }
+        try {
+            CompletableFuture.allOf(parsing).join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof UncheckedIOException io) {
+                throw io.getCause();
+            }
+            throw ex;
+        }
+
+        LedgerStore store = new LedgerStore(registry);
+        List<LedgerAggregates> partials = new ArrayList<>(chunks.size());
+        for (Chunk chunk : chunks) {
+            store.addAll(chunk.store());
+            partials.add(chunk.aggregates());
+        }
+        return new Result(read(channel, 0, headerEnd + 1), lastEnd + 1L, store, partials);
+    }
+
+    /** Reads a range with a positional read, which leaves the channel position alone and is safe across threads. */
+    private static byte[] read(FileChannel channel, long from, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, from + buffer.position()) < 0) {
+                throw new EOFException("Ledger shrank while being read");
+            }
+        }
+        return buffer.array();
+    }
+
+    private static int indexOfNewline(FileChannel channel, int from, int to) throws IOException {
+        for (int window = from; window < to; window += SCAN_WINDOW) {
+            byte[] bytes = read(channel, window, Math.min(SCAN_WINDOW, to - window));
+            for (int i = 0; i < bytes.length; i++) {
+                if (bytes[i] == '\n') {
+                    return window + i;
+                }
+            }
+        }
+        return -1;
+    }
+
+    private static int lastNewline(FileChannel channel, int limit) throws IOException {
+        for (int windowEnd = limit; windowEnd > 0; windowEnd -= SCAN_WINDOW) {
+            int windowStart = Math.max(0, windowEnd - SCAN_WINDOW);
+            byte[] bytes = read(channel, windowStart, windowEnd - windowStart);
+            for (int i = bytes.length - 1; i >= 0; i--) {
+                if (bytes[i] == '\n') {
+                    return windowStart + i;
+                }
+            }
+        }
+        return -1;
+    }
+
+    private record Chunk(FileChannel channel, int start, int end, LedgerStore store, LedgerAggregates aggregates) {
+
+        private void parse() throws IOException {
+            byte[] bytes = read(channel, start, end - start);
+            FieldDecoder decoder = new FieldDecoder();
+            LineReader.forEachLine(bytes, 0, bytes.length, (line, from, to) -> {
+                if (FieldDecoder.isBlank(line, from, to)) {
+                    return;
+                }
+                int row;
+                try {
+                    row = store.addCsv(line, from, to, decoder);
+                } catch (RuntimeException ex) {
+                    System.err.println("Ligne de ledger ignorée : " + FieldDecoder.utf8(line, from, to));
+                    return;
+                }
+                aggregates.apply(store, row);
+            });
+        }
+    }
+}
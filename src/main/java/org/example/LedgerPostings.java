@@ -0,0 +1,46 @@
+package org.example;
+
+import java.util.Arrays;
+
+/**
+ * Append-only lists of ledger row numbers grouped by a small int key, such as a player id or a type
+ * ordinal. Rows are added in increasing order, so every list stays sorted.
+ * <p>
+ * A list only grows by copying, so an array obtained through {@link #rows(int)} keeps describing
+ * its first {@link #count(int)} rows as they were when both were read.
+ */
+final class LedgerPostings {
+
+    private static final int[] EMPTY = new int[0];
+
+    private int[][] rows = new int[16][];
+    private int[] counts = new int[16];
+
+    void add(int key, int row) {
+        if (key < 0) {
+            return;
+        }
+        if (key >= rows.length) {
+            int capacity = Math.max(key + 1, rows.length * 2);
+            rows = Arrays.copyOf(rows, capacity);
+            counts = Arrays.copyOf(counts, capacity);
+        }
+        int[] list = rows[key];
+        if (list == null) {
+            list = new int[8];
+            rows[key] = list;
+        } else if (counts[key] == list.length) {
+            list = Arrays.copyOf(list, list.length * 2);
+            rows[key] = list;
+        }
+        list[counts[key]++] = row;
+    }
+
+    int count(int key) {
+        return key >= 0 && key < counts.length ? counts[key] : 0;
+    }
+
+    int[] rows(int key) {
+        return key >= 0 && key < rows.length && rows[key] != null ? rows[key] : EMPTY;
+    }
+}
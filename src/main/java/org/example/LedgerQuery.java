@@ -0,0 +1,378 @@
+package org.example;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Filtered read over the live rows of a {@link DonationsLedger}, closed segments and archived rounds
+ * included, without
+ * materializing the ledger: obtained through {@link DonationsLedger#query()}, narrowed with
+ * {@link #between}, {@link #player} and {@link #types}, then consumed as an iterator or ranked with
+ * {@link #topDonors(int)} / {@link #topWinners(int)}.
+ * <p>
+ * Candidate rows come from the narrowest index available: the player posting list, the posting
+ * list of a single type, or the whole active file. Timestamps are appended in increasing order, so
+ * a time range is resolved by binary search over the timestamp column; if the file holds rows out
+ * of order (clock set back, hand edits) the range is checked row by row instead. Closed segments
+ * all predate the active file and are only read when the range starts before it; they are parsed
+ * once, read-only, and their rows filtered one by one. Archived rounds
+ * are read once per archive run and kept by the ledger, so archiving never changes a result; their
+ * rows come first, then the closed segments, then the active file.
+ * <p>
+ * Iterators see the rows present when they were created and may be consumed while the ledger keeps
+ * being written.
+ */
+public final class LedgerQuery implements Iterable<DonationEntry> {
+
+    /**
+     * Total of a player over the queried window; {@code count} is the number of rows summed, or 0
+     * when the total comes straight from the ledger aggregates.
+     */
+    public record Ranked(String player, long total, int count) {}
+
+    /** Resident rows of a ledger and their indexes, captured under the ledger lock. */
+    record Snapshot(LedgerStore store,
+                    int limit,
+                    BitSet superseded,
+                    LedgerPostings playerRows,
+                    LedgerPostings typeRows,
+                    boolean sorted,
+                    LocalDateTime firstActive,
+                    List<Path> closedSegments,
+                    List<DonationEntry> archived,
+                    PlayerRegistry registry) {}
+
+    private static final Comparator<Ranked> RANKING =
+            Comparator.comparingLong(Ranked::total).thenComparing(Ranked::player, String.CASE_INSENSITIVE_ORDER.reversed());
+
+    private final DonationsLedger ledger;
+    private LocalDateTime from;
+    private LocalDateTime to;
+    private String player;
+    private EnumSet<DonationEntry.Type> types =
+            EnumSet.of(DonationEntry.Type.DON, DonationEntry.Type.BONUS, DonationEntry.Type.PAYOUT);
+
+    LedgerQuery(DonationsLedger ledger) {
+        this.ledger = ledger;
+    }
+
+    /**
+     * Keeps the rows timestamped in {@code [from, to)}; either bound may be {@code null}.
+     */
+    public LedgerQuery between(LocalDateTime from, LocalDateTime to) {
+        this.from = from;
+        this.to = to;
+        return this;
+    }
+
+    /** Keeps the rows of one player, renamed or differently cased rows included. */
+    public LedgerQuery player(String name) {
+        this.player = Objects.requireNonNull(name, "name");
+        return this;
+    }
+
+    /** Keeps the rows of the given types. Supersede markers are never returned. */
+    public LedgerQuery types(DonationEntry.Type first, DonationEntry.Type... rest) {
+        types = EnumSet.of(first, rest);
+        types.remove(DonationEntry.Type.SUPERSEDE);
+        return this;
+    }
+
+    /** Live rows matching the filters: archived rounds, then each file in order. */
+    @Override
+    public Iterator<DonationEntry> iterator() {
+        Snapshot snapshot = ledger.snapshot();
+        List<Path> closed = readsClosedSegments(snapshot) ? snapshot.closedSegments() : List.of();
+        int playerId = playerId(snapshot);
+        return new Iterator<>() {
+            private int segment;
+            private boolean activeOpened;
+            private Iterator<DonationEntry> current = matching(snapshot.archived(), playerId, snapshot);
+
+            @Override
+            public boolean hasNext() {
+                while (!current.hasNext()) {
+                    if (segment < closed.size()) {
+                        current = matching(ledger.closedSegmentEntries(closed.get(segment++)), playerId, snapshot);
+                    } else if (!activeOpened) {
+                        activeOpened = true;
+                        current = activeEntries(snapshot);
+                    } else {
+                        return false;
+                    }
+                }
+                return true;
+            }
+
+            @Override
+            public DonationEntry next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return current.next();
+            }
+        };
+    }
+
+    public Stream<DonationEntry> stream() {
+        return StreamSupport.stream(
+                Spliterators.spliteratorUnknownSize(iterator(), Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+
+    /**
+     * Players with the largest DON totals over the window, largest first. Without time range nor
+     * player filter the ledger aggregates answer directly.
+     */
+    public Iterator<Ranked> topDonors(int n) {
+        if (from == null && to == null && player == null) {
+            List<Ranked> all = new ArrayList<>();
+            for (Map.Entry<String, Integer> total : ledger.cumulativeByPlayer().entrySet()) {
+                all.add(new Ranked(total.getKey(), total.getValue(), 0));
+            }
+            return top(all.iterator(), n);
+        }
+        return top(sumByPlayer(DonationEntry.Type.DON), n);
+    }
+
+    /**
+     * Players who won the most kamas over the window, largest first, with their number of wins.
+     * Without time range nor player filter the round records answer directly.
+     */
+    public Iterator<Ranked> topWinners(int n) {
+        if (from == null && to == null && player == null) {
+            Map<String, long[]> byWinner = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+            for (DonationsLedger.RoundRecord record : ledger.getRoundRecords()) {
+                if (record.hasWinner()) {
+                    long[] total = byWinner.computeIfAbsent(record.winner(), name -> new long[2]);
+                    total[0] += record.payout();
+                    total[1]++;
+                }
+            }
+            List<Ranked> all = new ArrayList<>(byWinner.size());
+            byWinner.forEach((name, total) -> all.add(new Ranked(name, total[0], (int) total[1])));
+            return top(all.iterator(), n);
+        }
+        return top(sumByPlayer(DonationEntry.Type.PAYOUT), n);
+    }
+
+    private Iterator<Ranked> sumByPlayer(DonationEntry.Type type) {
+        if (!types.contains(type)) {
+            return List.<Ranked>of().iterator();
+        }
+        Snapshot snapshot = ledger.snapshot();
+        PlayerRegistry registry = snapshot.registry();
+        EnumSet<DonationEntry.Type> wanted = EnumSet.of(type);
+        int playerId = playerId(snapshot);
+        // Rows read from the archive and closed segments carry names only.
+        List<DonationEntry> named = new ArrayList<>();
+        for (DonationEntry entry : snapshot.archived()) {
+            if (matches(entry, wanted, playerId, registry)) {
+                named.add(entry);
+            }
+        }
+        if (readsClosedSegments(snapshot)) {
+            for (Path segment : snapshot.closedSegments()) {
+                for (DonationEntry entry : ledger.closedSegmentEntries(segment)) {
+                    if (matches(entry, wanted, playerId, registry)) {
+                        named.add(entry);
+                    }
+                }
+            }
+        }
+        int[] namedIds = new int[named.size()];
+        for (int i = 0; i < namedIds.length; i++) {
+            namedIds[i] = registry.idOf(named.get(i).getPlayer());
+        }
+        // Sized once every name has an id.
+        long[] totals = new long[registry.size()];
+        int[] counts = new int[totals.length];
+        for (int i = 0; i < namedIds.length; i++) {
+            totals[namedIds[i]] += named.get(i).getAmount();
+            counts[namedIds[i]]++;
+        }
+        Rows rows = new Rows(ledger, snapshot, wanted);
+        for (int row = rows.next(); row >= 0; row = rows.next()) {
+            int id = snapshot.store().playerId(row);
+            if (id >= 0 && id < totals.length) {
+                totals[id] += snapshot.store().amount(row);
+                counts[id]++;
+            }
+        }
+        List<Ranked> ranked = new ArrayList<>();
+        for (int id = 0; id < totals.length; id++) {
+            if (counts[id] > 0) {
+                ranked.add(new Ranked(registry.nameOf(id), totals[id], counts[id]));
+            }
+        }
+        return ranked.iterator();
+    }
+
+    /** Rows of the archive or of a closed segment that pass the filters. */
+    private Iterator<DonationEntry> matching(List<DonationEntry> entries, int playerId, Snapshot snapshot) {
+        return entries.stream()
+                .filter(entry -> matches(entry, types, playerId, snapshot.registry()))
+                .iterator();
+    }
+
+    private int playerId(Snapshot snapshot) {
+        return player == null ? -1 : snapshot.registry().find(player);
+    }
+
+    /** Filters a row of the archive or of a closed segment, which have no index to narrow them down. */
+    private boolean matches(DonationEntry entry, EnumSet<DonationEntry.Type> wanted, int playerId,
+                            PlayerRegistry registry) {
+        if (!wanted.contains(entry.getType())
+                || from != null && entry.getTimestamp().isBefore(from)
+                || to != null && !entry.getTimestamp().isBefore(to)) {
+            return false;
+        }
+        return player == null || playerId >= 0 && registry.find(entry.getPlayer()) == playerId;
+    }
+
+    private static Iterator<Ranked> top(Iterator<Ranked> candidates, int n) {
+        if (n <= 0) {
+            return List.<Ranked>of().iterator();
+        }
+        PriorityQueue<Ranked> best = new PriorityQueue<>(n + 1, RANKING);
+        while (candidates.hasNext()) {
+            best.add(candidates.next());
+            if (best.size() > n) {
+                best.poll();
+            }
+        }
+        List<Ranked> ordered = new ArrayList<>(best);
+        ordered.sort(RANKING.reversed());
+        return ordered.iterator();
+    }
+
+    private boolean readsClosedSegments(Snapshot snapshot) {
+        return !snapshot.closedSegments().isEmpty()
+                && (from == null || snapshot.firstActive() == null || from.isBefore(snapshot.firstActive()));
+    }
+
+    private Iterator<DonationEntry> activeEntries(Snapshot snapshot) {
+        Rows rows = new Rows(ledger, snapshot, types);
+        return new Iterator<>() {
+            private int next = rows.next();
+
+            @Override
+            public boolean hasNext() {
+                return next >= 0;
+            }
+
+            @Override
+            public DonationEntry next() {
+                if (next < 0) {
+                    throw new NoSuchElementException();
+                }
+                DonationEntry entry;
+                synchronized (ledger) {
+                    entry = snapshot.store().entryAt(next);
+                }
+                next = rows.next();
+                return entry;
+            }
+        };
+    }
+
+    /** Matching row numbers of one ledger, produced on demand. */
+    private final class Rows {
+        private final Object lock;
+        private final Snapshot snapshot;
+        private final EnumSet<DonationEntry.Type> wanted;
+        /** Candidate rows, or {@code null} to walk every row. */
+        private final int[] candidates;
+        private final long fromNanos;
+        private final long toNanos;
+        private final boolean checkTime;
+        private final int playerId;
+        private int position;
+        private int end;
+
+        private Rows(Object lock, Snapshot snapshot, EnumSet<DonationEntry.Type> wanted) {
+            this.lock = lock;
+            this.snapshot = snapshot;
+            this.wanted = wanted;
+            this.fromNanos = from == null ? Long.MIN_VALUE : FieldDecoder.toEpochNanos(from);
+            this.toNanos = to == null ? Long.MAX_VALUE : FieldDecoder.toEpochNanos(to);
+            synchronized (lock) {
+                playerId = player == null ? -1 : snapshot.registry().find(player);
+                if (player != null) {
+                    candidates = snapshot.playerRows().rows(playerId);
+                    end = playerId < 0 ? 0 : snapshot.playerRows().count(playerId);
+                } else if (wanted.size() == 1) {
+                    int type = wanted.iterator().next().ordinal();
+                    candidates = snapshot.typeRows().rows(type);
+                    end = snapshot.typeRows().count(type);
+                } else {
+                    candidates = null;
+                    end = snapshot.limit();
+                }
+                while (end > 0 && row(end - 1) >= snapshot.limit()) {
+                    end--;
+                }
+                if (snapshot.sorted()) {
+                    position = lowerBound(0, end, fromNanos);
+                    end = lowerBound(position, end, toNanos);
+                }
+                checkTime = !snapshot.sorted() && (from != null || to != null);
+            }
+        }
+
+        private int row(int index) {
+            return candidates == null ? index : candidates[index];
+        }
+
+        /** First index in {@code [lo, hi)} whose row is timestamped at or after {@code nanos}. */
+        private int lowerBound(int lo, int hi, long nanos) {
+            if (nanos == Long.MIN_VALUE) {
+                return lo;
+            }
+            while (lo < hi) {
+                int middle = (lo + hi) >>> 1;
+                if (snapshot.store().epochNanos(row(middle)) < nanos) {
+                    lo = middle + 1;
+                } else {
+                    hi = middle;
+                }
+            }
+            return lo;
+        }
+
+        /** @return the next matching row, or -1 when there is none */
+        private int next() {
+            synchronized (lock) {
+                LedgerStore store = snapshot.store();
+                while (position < end) {
+                    int row = row(position++);
+                    if (snapshot.superseded().get(row) || !wanted.contains(store.type(row))) {
+                        continue;
+                    }
+                    if (checkTime) {
+                        long ts = store.epochNanos(row);
+                        if (ts < fromNanos || ts >= toNanos) {
+                            continue;
+                        }
+                    }
+                    return row;
+                }
+                return -1;
+            }
+        }
+    }
+}
@@ -0,0 +1,284 @@
+package org.example;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Persistent sidecar ({@code <ledger>.idx}) mapping each round id to the byte ranges of its rows in
+ * the active ledger file, so a single round can be read without parsing the rest of the ledger.
+ * <p>
+ * The sidecar starts with a 24-byte header (magic, version, number of ledger bytes covered, CRC32
+ * of the ledger header line) followed by 16-byte records: round id, offset and length of a run of
+ * consecutive rows. Appends made through the ledger are recorded as they happen; bytes written by
+ * anyone else are picked up by scanning only the uncovered tail, and a shrunk or rewritten ledger
+ * triggers a rebuild.
+ */
+final class LedgerRoundIndex {
+
+    private static final int MAGIC = 0x444C4749; // "DLGI"
+    private static final short VERSION = 1;
+    private static final int HEADER_SIZE = 4 + 2 + 2 + 8 + 8;
+    private static final int RECORD_SIZE = 4 + 8 + 4;
+
+    private final Path ledgerFile;
+    private final Path indexFile;
+    private final Map<Integer, List<long[]>> ranges = new HashMap<>();
+    private final FieldDecoder decoder = new FieldDecoder();
+    private long covered;
+    private long headerCrc;
+    private boolean loaded;
+
+    LedgerRoundIndex(Path ledgerFile) {
+        this.ledgerFile = ledgerFile;
+        this.indexFile = ledgerFile.resolveSibling(ledgerFile.getFileName() + ".idx");
+    }
+
+    boolean contains(int roundId) {
+        return ranges.containsKey(roundId);
+    }
+
+    /**
+     * Makes the index cover the whole ledger file. A ledger that has not changed since the last call
+     * costs a single size check.
+     */
+    void catchUp() throws IOException {
+        if (!loaded) {
+            load();
+        }
+        if (!Files.exists(ledgerFile)) {
+            if (covered > 0) {
+                invalidate();
+            }
+            return;
+        }
+        try (FileChannel ledger = FileChannel.open(ledgerFile, StandardOpenOption.READ)) {
+            long size = ledger.size();
+            if (size == covered && covered > 0) {
+                return;
+            }
+            if (size < covered || (covered > 0 && headerCrc != readHeaderCrc(ledger))) {
+                invalidate();
+            }
+            if (size > covered) {
+                scan(ledger, size);
+            }
+        }
+    }
+
+    /**
+     * Records rows the ledger just appended at {@code offset}. Ignored when the index does not cover
+     * the bytes right before them; the next {@link #catchUp()} scans them instead.
+     */
+    void recordAppend(List<DonationEntry> rows, List<byte[]> lines, long offset) throws IOException {
+        if (!loaded || offset != covered || covered == 0) {
+            return;
+        }
+        List<long[]> added = new ArrayList<>();
+        long position = offset;
+        for (int i = 0; i < rows.size(); i++) {
+            addRun(added, rows.get(i).getRoundId(), position, lines.get(i).length);
+            position += lines.get(i).length;
+        }
+        persist(added, position);
+    }
+
+    /** Parses the rows of one round, in file order, reading only their byte ranges. */
+    List<DonationEntry> readRound(int roundId) throws IOException {
+        List<long[]> runs = ranges.getOrDefault(roundId, List.of());
+        List<DonationEntry> rows = new ArrayList<>();
+        if (runs.isEmpty()) {
+            return rows;
+        }
+        try (FileChannel ledger = FileChannel.open(ledgerFile, StandardOpenOption.READ)) {
+            for (long[] run : runs) {
+                ByteBuffer buffer = ByteBuffer.allocate((int) run[1]);
+                while (buffer.hasRemaining()
+                        && ledger.read(buffer, run[0] + buffer.position()) > 0) {
+                    // fill the run
+                }
+                LineReader.forEachLine(buffer.array(), 0, buffer.position(), (bytes, start, end) -> {
+                    if (!FieldDecoder.isBlank(bytes, start, end)) {
+                        rows.add(DonationEntry.parse(bytes, start, end, decoder));
+                    }
+                });
+            }
+        }
+        return rows;
+    }
+
+    /** Drops the index, as when the ledger file is compacted, rolled or reset. */
+    void invalidate() throws IOException {
+        ranges.clear();
+        covered = 0;
+        headerCrc = 0;
+        loaded = true;
+        Files.deleteIfExists(indexFile);
+    }
+
+    private void load() {
+        loaded = true;
+        ranges.clear();
+        covered = 0;
+        headerCrc = 0;
+        if (!Files.exists(indexFile)) {
+            return;
+        }
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(indexFile)).order(ByteOrder.LITTLE_ENDIAN);
+            if (buffer.remaining() < HEADER_SIZE
+                    || buffer.getInt() != MAGIC
+                    || buffer.getShort() != VERSION) {
+                throw new IOException("en-tête invalide");
+            }
+            buffer.getShort();
+            long claimed = buffer.getLong();
+            long crc = buffer.getLong();
+            while (buffer.remaining() >= RECORD_SIZE) {
+                int roundId = buffer.getInt();
+                long offset = buffer.getLong();
+                int length = buffer.getInt();
+                // Records written after the last header update (crash in between) are rescanned.
+                if (offset + length <= claimed) {
+                    addRun(null, roundId, offset, length);
+                }
+            }
+            covered = claimed;
+            headerCrc = crc;
+        } catch (IOException ex) {
+            System.err.println("Index du ledger illisible, reconstruction : " + ex.getMessage());
+            ranges.clear();
+            covered = 0;
+            headerCrc = 0;
+        }
+    }
+
+    private void scan(FileChannel ledger, long size) throws IOException {
+        long length = size - covered;
+        if (length > Integer.MAX_VALUE) {
+            throw new IOException("Ledger tail too large: " + length + " bytes");
+        }
+        ByteBuffer buffer = ByteBuffer.allocate((int) length);
+        while (buffer.hasRemaining() && ledger.read(buffer, covered + buffer.position()) > 0) {
+            // fill the tail
+        }
+        byte[] bytes = buffer.array();
+        int limit = buffer.position();
+        List<long[]> added = new ArrayList<>();
+        long newCovered = covered;
+        int lineStart = 0;
+        for (int i = 0; i < limit; i++) {
+            if (bytes[i] != '\n') {
+                continue;
+            }
+            if (newCovered == 0) {
+                CRC32 crc = new CRC32();
+                crc.update(bytes, 0, i + 1);
+                headerCrc = crc.getValue();
+            } else {
+                int roundId = roundOf(bytes, lineStart, i);
+                if (roundId >= 0) {
+                    addRun(added, roundId, covered + lineStart, i + 1 - lineStart);
+                }
+            }
+            lineStart = i + 1;
+            newCovered = covered + lineStart;
+        }
+        if (newCovered == 0 && covered == 0) {
+            return;
+        }
+        if (covered == 0) {
+            rewrite();
+        }
+        persist(added, newCovered);
+    }
+
+    /** Reads the second CSV field without allocating; -1 for a malformed line. */
+    private static int roundOf(byte[] bytes, int start, int end) {
+        int first = FieldDecoder.indexOf(bytes, start, end, (byte) ';');
+        int second = first < 0 ? -1 : FieldDecoder.indexOf(bytes, first + 1, end, (byte) ';');
+        if (second < 0) {
+            return -1;
+        }
+        long roundId = FieldDecoder.parseLong(bytes, first + 1, second);
+        return roundId >= 0 && roundId <= Integer.MAX_VALUE ? (int) roundId : -1;
+    }
+
+    /** Adds a run, extending the previous run of the round when the bytes are contiguous. */
+    private void addRun(List<long[]> added, int roundId, long offset, int length) {
+        List<long[]> runs = ranges.computeIfAbsent(roundId, id -> new ArrayList<>());
+        long[] last = runs.isEmpty() ? null : runs.get(runs.size() - 1);
+        if (last != null && last[0] + last[1] == offset) {
+            last[1] += length;
+        } else {
+            last = new long[]{offset, length};
+            runs.add(last);
+        }
+        if (added != null) {
+            added.add(new long[]{roundId, offset, length});
+        }
+    }
+
+    private void rewrite() throws IOException {
+        try (FileChannel channel = FileChannel.open(indexFile,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            write(channel, header(0), 0);
+        }
+    }
+
+    /** Appends the new runs, then advances the covered size in the header. */
+    private void persist(List<long[]> added, long newCovered) throws IOException {
+        if (!Files.exists(indexFile)) {
+            rewrite();
+        }
+        try (FileChannel channel = FileChannel.open(indexFile, StandardOpenOption.WRITE)) {
+            if (!added.isEmpty()) {
+                ByteBuffer records = ByteBuffer.allocate(added.size() * RECORD_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+                for (long[] run : added) {
+                    records.putInt((int) run[0]).putLong(run[1]).putInt((int) run[2]);
+                }
+                records.flip();
+                write(channel, records, channel.size());
+            }
+            write(channel, header(newCovered), 0);
+        }
+        covered = newCovered;
+    }
+
+    private ByteBuffer header(long coveredBytes) {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(MAGIC).putShort(VERSION).putShort((short) 0).putLong(coveredBytes).putLong(headerCrc);
+        return header.flip();
+    }
+
+    private long readHeaderCrc(FileChannel ledger) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(covered, 4096));
+        while (buffer.hasRemaining() && ledger.read(buffer, buffer.position()) > 0) {
+            // fill the window
+        }
+        byte[] bytes = buffer.array();
+        for (int i = 0; i < buffer.position(); i++) {
+            if (bytes[i] == '\n') {
+                CRC32 crc = new CRC32();
+                crc.update(bytes, 0, i + 1);
+                return crc.getValue();
+            }
+        }
+        return -1;
+    }
+
+    private static void write(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+}
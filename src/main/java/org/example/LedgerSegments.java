@@ -0,0 +1,264 @@
+package org.example;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Closed segments of the donations ledger.
+ * <p>
+ * The active segment is the ledger file itself. When the roll policy says so, it is renamed to
+ * {@code <name>-NNNN.csv} and never written again; a {@code <name>-NNNN.summary} sidecar stores its
+ * round range, totals, per-player sums and per-round records. Summaries of every closed segment are
+ * stacked into a baseline so queries only ever need to scan the active segment.
+ */
+final class LedgerSegments {
+
+    /** Decides when the active segment is closed. */
+    static final class Policy {
+        static final Policy DISABLED = new Policy(0, false);
+
+        private final int roundsPerSegment;
+        private final boolean monthly;
+
+        private Policy(int roundsPerSegment, boolean monthly) {
+            this.roundsPerSegment = roundsPerSegment;
+            this.monthly = monthly;
+        }
+
+        /** Closes the active segment when a round starts in a new calendar month. */
+        static Policy monthly() {
+            return new Policy(0, true);
+        }
+
+        /** Closes the active segment once it holds the given number of rounds. */
+        static Policy everyRounds(int rounds) {
+            if (rounds <= 0) {
+                throw new IllegalArgumentException("rounds must be > 0");
+            }
+            return new Policy(rounds, false);
+        }
+
+        boolean enabled() {
+            return monthly || roundsPerSegment > 0;
+        }
+
+        boolean shouldRoll(LocalDateTime firstActiveTimestamp, int activeRounds, LocalDateTime now) {
+            if (activeRounds == 0 || firstActiveTimestamp == null) {
+                return false;
+            }
+            if (monthly) {
+                return !YearMonth.from(firstActiveTimestamp).equals(YearMonth.from(now));
+            }
+            return roundsPerSegment > 0 && activeRounds >= roundsPerSegment;
+        }
+    }
+
+    private record Segment(int sequence, Path file, Path summaryFile) {}
+
+    private final Path activeFile;
+    private final Policy policy;
+    private final Pattern segmentPattern;
+    private final List<Segment> closed = new ArrayList<>();
+    private final Map<Path, List<DonationEntry>> parsed = new HashMap<>();
+    private final PlayerRegistry registry;
+    private final LedgerAggregates baseline;
+    private boolean loaded;
+
+    LedgerSegments(Path activeFile, Policy policy, PlayerRegistry registry) {
+        this.activeFile = activeFile;
+        this.policy = policy;
+        this.registry = registry;
+        this.baseline = new LedgerAggregates(registry);
+        this.segmentPattern = Pattern.compile(Pattern.quote(baseName()) + "-(\\d{4,})\\.csv");
+    }
+
+    Policy policy() {
+        return policy;
+    }
+
+    boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * Discovers the closed segments next to the active file and stacks their summaries. A segment
+     * whose summary is missing or unreadable (crash during a roll) gets it rebuilt from its rows.
+     */
+    void load() {
+        loaded = true;
+        closed.clear();
+        baseline.clear();
+        if (!policy.enabled()) {
+            return;
+        }
+        for (Segment segment : discover()) {
+            closed.add(segment);
+            baseline.merge(readSummary(segment));
+        }
+    }
+
+    /**
+     * Files of the closed segments found next to the active file, oldest first, whatever the roll
+     * policy. Nothing is loaded nor rebuilt.
+     */
+    List<Path> findClosedFiles() {
+        return discover().stream().map(Segment::file).toList();
+    }
+
+    private List<Segment> discover() {
+        Path directory = directory();
+        if (!Files.isDirectory(directory)) {
+            return List.of();
+        }
+        List<Segment> found = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.forEach(file -> {
+                Matcher matcher = segmentPattern.matcher(file.getFileName().toString());
+                if (matcher.matches()) {
+                    int sequence = Integer.parseInt(matcher.group(1));
+                    found.add(new Segment(sequence, file, summaryFile(sequence)));
+                }
+            });
+        } catch (IOException ex) {
+            System.err.println("Impossible de lister les segments du ledger : " + ex.getMessage());
+            return List.of();
+        }
+        found.sort(Comparator.comparingInt(Segment::sequence));
+        return found;
+    }
+
+    LedgerAggregates baseline() {
+        return baseline;
+    }
+
+    /** Files of the closed segments, oldest first. */
+    List<Path> closedFiles() {
+        return closed.stream().map(Segment::file).toList();
+    }
+
+    /** Identifies the set of closed segments; it changes whenever a segment is rolled or deleted. */
+    String fingerprint() {
+        return closed.size() + ":" + (closed.isEmpty() ? 0 : closed.get(closed.size() - 1).sequence());
+    }
+
+    /**
+     * Closes the active segment: its summary is written first, then the file is moved to its
+     * immutable name. The caller starts a fresh active file afterwards.
+     */
+    void roll(LedgerAggregates activeSummary) throws IOException {
+        int sequence = closed.isEmpty() ? 1 : closed.get(closed.size() - 1).sequence() + 1;
+        Segment segment = new Segment(sequence, segmentFile(sequence), summaryFile(sequence));
+        writeSummary(segment.summaryFile(), activeSummary);
+        move(activeFile, segment.file());
+        closed.add(segment);
+        baseline.merge(activeSummary);
+    }
+
+    /** Reads the live rows of every closed segment, oldest first. */
+    List<DonationEntry> readClosedEntries() {
+        List<DonationEntry> entries = new ArrayList<>();
+        for (Segment segment : closed) {
+            try {
+                entries.addAll(entries(segment.file()));
+            } catch (IOException ex) {
+                System.err.println("Segment du ledger illisible : " + segment.file() + " (" + ex.getMessage() + ")");
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * Live rows of a closed segment. Closed segments never change, so each one is parsed once,
+     * read-only, and kept until the segments are deleted.
+     */
+    List<DonationEntry> entries(Path segment) throws IOException {
+        List<DonationEntry> rows = parsed.get(segment);
+        if (rows == null) {
+            rows = Collections.unmodifiableList(DonationsLedger.readLiveRows(segment));
+            parsed.put(segment, rows);
+        }
+        return rows;
+    }
+
+    void deleteAll() throws IOException {
+        for (Segment segment : closed) {
+            Files.deleteIfExists(segment.file());
+            Files.deleteIfExists(segment.summaryFile());
+        }
+        closed.clear();
+        parsed.clear();
+        baseline.clear();
+    }
+
+    private LedgerAggregates readSummary(Segment segment) {
+        if (Files.exists(segment.summaryFile())) {
+            try {
+                return LedgerAggregates.fromSummaryLines(
+                        Files.readAllLines(segment.summaryFile(), StandardCharsets.UTF_8), registry);
+            } catch (Exception ex) {
+                System.err.println("Résumé de segment illisible, reconstruction : " + segment.summaryFile());
+            }
+        }
+        LedgerAggregates rebuilt = new LedgerAggregates(registry);
+        try {
+            entries(segment.file()).forEach(rebuilt::apply);
+        } catch (IOException ex) {
+            System.err.println("Segment du ledger illisible : " + segment.file() + " (" + ex.getMessage() + ")");
+            return rebuilt;
+        }
+        try {
+            writeSummary(segment.summaryFile(), rebuilt);
+        } catch (IOException ex) {
+            System.err.println("Impossible d'écrire le résumé de segment : " + ex.getMessage());
+        }
+        return rebuilt;
+    }
+
+    private static void writeSummary(Path summaryFile, LedgerAggregates summary) throws IOException {
+        Path temp = summaryFile.resolveSibling(summaryFile.getFileName() + ".tmp");
+        Files.write(temp, summary.toSummaryLines(), StandardCharsets.UTF_8);
+        move(temp, summaryFile);
+    }
+
+    private static void move(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException ex) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private Path segmentFile(int sequence) {
+        return activeFile.resolveSibling(String.format("%s-%04d.csv", baseName(), sequence));
+    }
+
+    private Path summaryFile(int sequence) {
+        return activeFile.resolveSibling(String.format("%s-%04d.summary", baseName(), sequence));
+    }
+
+    private Path directory() {
+        Path parent = activeFile.toAbsolutePath().getParent();
+        return parent == null ? Path.of("") : parent;
+    }
+
+    private String baseName() {
+        String name = activeFile.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        return dot > 0 ? name.substring(0, dot) : name;
+    }
+}
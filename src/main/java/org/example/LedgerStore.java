@@ -0,0 +1,272 @@
+package org.example;
+
+import java.time.LocalDateTime;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+
+/**
+ * Column store of ledger rows: parallel primitive arrays for timestamps (epoch nanoseconds of the
+ * wall clock read as UTC), round ids, type ordinals, {@link PlayerRegistry} ids, player names and
+ * amounts. A row costs 25 bytes instead of a {@link DonationEntry} with its timestamp and boxed
+ * fields; entries are only materialized through {@link #entryAt(int)} and {@link #view(int[], int)}.
+ * BONUS and SUPERSEDE rows carry no player and store {@code -1}.
+ * <p>
+ * Names are kept as written, as an index into a table of the distinct spellings met, so a rewrite
+ * of the file gives back the same text even after the player was renamed in the registry.
+ * <p>
+ * Rows are append-only until {@link DonationsLedger} swaps in a fresh store, so a view taken over
+ * the first rows stays valid while more rows are appended.
+ */
+final class LedgerStore {
+
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final DonationEntry.Type[] TYPES = DonationEntry.Type.values();
+
+    private long[] timestamps = new long[INITIAL_CAPACITY];
+    private int[] rounds = new int[INITIAL_CAPACITY];
+    private byte[] types = new byte[INITIAL_CAPACITY];
+    private int[] players = new int[INITIAL_CAPACITY];
+    private int[] spellings = new int[INITIAL_CAPACITY];
+    private int[] amounts = new int[INITIAL_CAPACITY];
+    private int size;
+
+    private final PlayerRegistry registry;
+    /** Distinct names met by this store, and the id each one resolved to; the registry is shared and synchronized. */
+    private final Map<String, Integer> spellingIndex = new HashMap<>();
+    private String[] spelled = new String[16];
+    private int[] spelledIds = new int[16];
+    private int spelledCount;
+
+    LedgerStore(PlayerRegistry registry) {
+        this.registry = registry;
+    }
+
+    int size() {
+        return size;
+    }
+
+    int add(DonationEntry entry) {
+        return add(FieldDecoder.toEpochNanos(entry.getTimestamp()), entry.getRoundId(), entry.getType(),
+                hasPlayer(entry.getType()) ? spelling(entry.getPlayer()) : -1, entry.getAmount());
+    }
+
+    private int add(long epochNanos, int roundId, DonationEntry.Type type, int spelling, int amount) {
+        if (size == timestamps.length) {
+            int capacity = size + (size >> 1);
+            timestamps = Arrays.copyOf(timestamps, capacity);
+            rounds = Arrays.copyOf(rounds, capacity);
+            types = Arrays.copyOf(types, capacity);
+            players = Arrays.copyOf(players, capacity);
+            spellings = Arrays.copyOf(spellings, capacity);
+            amounts = Arrays.copyOf(amounts, capacity);
+        }
+        timestamps[size] = epochNanos;
+        rounds[size] = roundId;
+        types[size] = (byte) type.ordinal();
+        players[size] = spelling < 0 ? -1 : spelledIds[spelling];
+        spellings[size] = spelling;
+        amounts[size] = amount;
+        return size++;
+    }
+
+    /**
+     * Parses a ledger row straight into the columns.
+     *
+     * @return the index of the new row
+     * @throws IllegalArgumentException if the row is malformed; nothing is appended then
+     */
+    int addCsv(byte[] bytes, int start, int end, FieldDecoder decoder) {
+        int first = FieldDecoder.indexOf(bytes, start, end, (byte) ';');
+        int second = first < 0 ? -1 : FieldDecoder.indexOf(bytes, first + 1, end, (byte) ';');
+        int third = second < 0 ? -1 : FieldDecoder.indexOf(bytes, second + 1, end, (byte) ';');
+        int fourth = third < 0 ? -1 : FieldDecoder.indexOf(bytes, third + 1, end, (byte) ';');
+        if (fourth < 0) {
+            throw new IllegalArgumentException("Invalid ledger line: " + FieldDecoder.utf8(bytes, start, end));
+        }
+        int fifthEnd = FieldDecoder.indexOf(bytes, fourth + 1, end, (byte) ';');
+        long timestamp;
+        try {
+            timestamp = FieldDecoder.parseEpochNanos(bytes, start, first);
+        } catch (ArithmeticException ex) {
+            throw new IllegalArgumentException("Timestamp out of range: " + FieldDecoder.utf8(bytes, start, first));
+        }
+        int roundId = FieldDecoder.parseInt(bytes, first + 1, second);
+        DonationEntry.Type type = DonationEntry.parseType(bytes, second + 1, third);
+        int amount = FieldDecoder.parseInt(bytes, fourth + 1, fifthEnd < 0 ? end : fifthEnd);
+        int spelling = hasPlayer(type) ? spelling(decoder.text(bytes, third + 1, fourth)) : -1;
+        return add(timestamp, roundId, type, spelling, amount);
+    }
+
+    /** Appends every row of another store sharing the same registry. */
+    void addAll(LedgerStore other) {
+        int capacity = timestamps.length;
+        while (capacity < size + other.size) {
+            capacity += capacity >> 1;
+        }
+        if (capacity != timestamps.length) {
+            timestamps = Arrays.copyOf(timestamps, capacity);
+            rounds = Arrays.copyOf(rounds, capacity);
+            types = Arrays.copyOf(types, capacity);
+            players = Arrays.copyOf(players, capacity);
+            spellings = Arrays.copyOf(spellings, capacity);
+            amounts = Arrays.copyOf(amounts, capacity);
+        }
+        System.arraycopy(other.timestamps, 0, timestamps, size, other.size);
+        System.arraycopy(other.rounds, 0, rounds, size, other.size);
+        System.arraycopy(other.types, 0, types, size, other.size);
+        System.arraycopy(other.players, 0, players, size, other.size);
+        System.arraycopy(other.amounts, 0, amounts, size, other.size);
+        int[] remap = new int[other.spelledCount];
+        for (int i = 0; i < remap.length; i++) {
+            remap[i] = spelling(other.spelled[i]);
+        }
+        for (int row = 0; row < other.size; row++) {
+            int spelling = other.spellings[row];
+            spellings[size + row] = spelling < 0 ? -1 : remap[spelling];
+        }
+        size += other.size;
+    }
+
+    /**
+     * Index of the name in the spelling table, resolved to its registry id on first sight. A name
+     * never changes owner, renames included, so the resolved id stays valid.
+     */
+    private int spelling(String name) {
+        Integer index = spellingIndex.get(name);
+        if (index == null) {
+            if (spelledCount == spelled.length) {
+                spelled = Arrays.copyOf(spelled, spelledCount * 2);
+                spelledIds = Arrays.copyOf(spelledIds, spelledCount * 2);
+            }
+            index = spelledCount++;
+            spelled[index] = name;
+            spelledIds[index] = registry.idOf(name);
+            spellingIndex.put(name, index);
+        }
+        return index;
+    }
+
+    private static boolean hasPlayer(DonationEntry.Type type) {
+        return type == DonationEntry.Type.DON || type == DonationEntry.Type.PAYOUT;
+    }
+
+    private String name(int row) {
+        return switch (TYPES[types[row]]) {
+            case BONUS -> "__BONUS__";
+            case SUPERSEDE -> "";
+            default -> spelled[spellings[row]];
+        };
+    }
+
+    long epochNanos(int row) {
+        return timestamps[row];
+    }
+
+    LocalDateTime timestamp(int row) {
+        return FieldDecoder.fromEpochNanos(timestamps[row]);
+    }
+
+    int roundId(int row) {
+        return rounds[row];
+    }
+
+    DonationEntry.Type type(int row) {
+        return TYPES[types[row]];
+    }
+
+    int playerId(int row) {
+        return players[row];
+    }
+
+    String player(int row) {
+        return name(row);
+    }
+
+    int amount(int row) {
+        return amounts[row];
+    }
+
+    DonationEntry entryAt(int row) {
+        return new DonationEntry(timestamp(row), rounds[row], type(row), name(row), amounts[row], players[row]);
+    }
+
+    Cursor cursor() {
+        return new Cursor(size);
+    }
+
+    /**
+     * Read-only list over the given rows; each element is materialized when it is read.
+     */
+    List<DonationEntry> view(int[] rows, int count) {
+        return new View(rows, count);
+    }
+
+    /** Forward-only iteration over the rows present when the cursor was created. */
+    final class Cursor {
+        private final int limit;
+        private int row = -1;
+
+        private Cursor(int limit) {
+            this.limit = limit;
+        }
+
+        boolean next() {
+            return ++row < limit;
+        }
+
+        int row() {
+            return row;
+        }
+
+        long epochNanos() {
+            return timestamps[row];
+        }
+
+        int roundId() {
+            return rounds[row];
+        }
+
+        DonationEntry.Type type() {
+            return TYPES[types[row]];
+        }
+
+        int playerId() {
+            return players[row];
+        }
+
+        String player() {
+            return name(row);
+        }
+
+        int amount() {
+            return amounts[row];
+        }
+    }
+
+    private final class View extends AbstractList<DonationEntry> implements RandomAccess {
+        private final int[] rows;
+        private final int count;
+
+        private View(int[] rows, int count) {
+            this.rows = rows;
+            this.count = count;
+        }
+
+        @Override
+        public DonationEntry get(int index) {
+            if (index < 0 || index >= count) {
+                throw new IndexOutOfBoundsException(index);
+            }
+            return entryAt(rows[index]);
+        }
+
+        @Override
+        public int size() {
+            return count;
+        }
+    }
+}
@@ -0,0 +1,293 @@
+package org.example;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Append channel of the active ledger file with group commit.
+ * <p>
+ * {@link #write} hands the bytes to the OS right away so readers tailing the file see them
+ * immediately. Durability is requested separately through {@link #durable}: a committer thread
+ * issues one {@link FileChannel#force} covering every write made so far, so back-to-back snapshots
+ * and payouts share a single fsync. {@link #recover} repairs the trailing record left by a crash.
+ */
+final class LedgerWriteAheadLog {
+
+    /** How far a write must go before its future completes. */
+    enum Durability {
+        /** Every batch of writes is forced to disk before its futures complete. */
+        FSYNC_PER_BATCH,
+        /** Writes are forced periodically; futures complete with the force that covers them. */
+        FSYNC_ON_INTERVAL,
+        /** Writes are left to the OS cache; futures complete immediately. */
+        OS_BUFFERED;
+
+        /** Reads {@code -Dloterie.ledger.durability=fsync-per-batch|fsync-on-interval|os-buffered}. */
+        static Durability fromSystemProperty() {
+            String raw = System.getProperty("loterie.ledger.durability", "");
+            try {
+                return raw.isBlank()
+                        ? FSYNC_PER_BATCH
+                        : valueOf(raw.trim().toUpperCase(Locale.ROOT).replace('-', '_'));
+            } catch (IllegalArgumentException ex) {
+                System.err.println("Mode de durabilité inconnu : " + raw + " (fsync-per-batch utilisé)");
+                return FSYNC_PER_BATCH;
+            }
+        }
+    }
+
+    static final long DEFAULT_INTERVAL_MILLIS = 200;
+    /** Longest trailing record {@link #recover} tries to complete; longer tails are dropped. */
+    private static final int MAX_TAIL_BYTES = 64 << 10;
+
+    private record Waiter(long offset, CompletableFuture<Void> future) {}
+
+    private final Path file;
+    private final Durability durability;
+    private final long intervalMillis;
+    private final Object lock = new Object();
+    private final ArrayDeque<Waiter> waiters = new ArrayDeque<>();
+    private FileChannel channel;
+    private long written;
+    private long forced;
+    private Thread committer;
+    private boolean closed;
+
+    LedgerWriteAheadLog(Path file, Durability durability, long intervalMillis) {
+        this.file = file;
+        this.durability = durability;
+        this.intervalMillis = Math.max(1, intervalMillis);
+    }
+
+    /**
+     * Repairs the record after the last line terminator. A tail that parses as a row, or as the
+     * header of an otherwise empty file, only lost its terminator and gets it back; anything else
+     * is a torn record and is dropped. A file left without any line is deleted and rebuilt.
+     *
+     * @return the number of bytes removed
+     */
+    static long recover(Path file) throws IOException {
+        if (!Files.exists(file)) {
+            return 0;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long size = channel.size();
+            long keep = lastNewline(channel, size) + 1;
+            if (keep == size) {
+                return 0;
+            }
+            byte[] tail = size - keep <= MAX_TAIL_BYTES ? read(channel, keep, (int) (size - keep)) : null;
+            if (tail != null && isCompleteRecord(tail, keep == 0)) {
+                byte[] terminator = (tail[tail.length - 1] == '\r' ? "\n" : System.lineSeparator())
+                        .getBytes(StandardCharsets.UTF_8);
+                ByteBuffer buffer = ByteBuffer.wrap(terminator);
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer, size + buffer.position());
+                }
+                channel.force(false);
+                return 0;
+            }
+            if (keep > 0) {
+                channel.truncate(keep);
+                return size - keep;
+            }
+        }
+        // Not even a complete header line: the file is rebuilt from scratch.
+        long size = Files.size(file);
+        Files.delete(file);
+        return size;
+    }
+
+    /** @return the offset of the last {@code '\n'}, or -1 if there is none */
+    private static long lastNewline(FileChannel channel, long size) throws IOException {
+        long end = size;
+        ByteBuffer buffer = ByteBuffer.allocate(4096);
+        while (end > 0) {
+            long start = Math.max(0, end - buffer.capacity());
+            buffer.clear().limit((int) (end - start));
+            while (buffer.hasRemaining() && channel.read(buffer, start + buffer.position()) > 0) {
+                // fill the window
+            }
+            for (int i = buffer.position() - 1; i >= 0; i--) {
+                if (buffer.get(i) == '\n') {
+                    return start + i;
+                }
+            }
+            end = start;
+        }
+        return -1;
+    }
+
+    private static byte[] read(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining() && channel.read(buffer, position + buffer.position()) > 0) {
+            // fill the buffer
+        }
+        return buffer.array();
+    }
+
+    private static boolean isCompleteRecord(byte[] tail, boolean firstLine) {
+        int end = tail.length;
+        if (end > 0 && tail[end - 1] == '\r') {
+            end--;
+        }
+        if (firstLine) {
+            return new String(tail, 0, end, StandardCharsets.UTF_8).equals(DonationsLedger.HEADER);
+        }
+        try {
+            DonationEntry.parse(tail, 0, end, null);
+            return true;
+        } catch (RuntimeException ex) {
+            return false;
+        }
+    }
+
+    /**
+     * Appends the bytes in a single write.
+     *
+     * @return the file offset just past the written bytes, to pass to {@link #durable}
+     */
+    long write(byte[] bytes) throws IOException {
+        synchronized (lock) {
+            if (closed) {
+                throw new IOException("Ledger log closed");
+            }
+            if (channel == null) {
+                channel = FileChannel.open(file, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+                written = channel.size();
+                forced = written;
+            }
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            written = channel.size();
+            return written;
+        }
+    }
+
+    /** Completes once the bytes up to {@code offset} are as durable as the configured mode requires. */
+    CompletableFuture<Void> durable(long offset) {
+        if (durability == Durability.OS_BUFFERED) {
+            return CompletableFuture.completedFuture(null);
+        }
+        synchronized (lock) {
+            if (offset <= forced || channel == null) {
+                return CompletableFuture.completedFuture(null);
+            }
+            CompletableFuture<Void> future = new CompletableFuture<>();
+            waiters.add(new Waiter(offset, future));
+            if (committer == null) {
+                committer = new Thread(this::commitLoop, "ledger-group-commit");
+                committer.setDaemon(true);
+                committer.start();
+            }
+            lock.notifyAll();
+            return future;
+        }
+    }
+
+    /**
+     * Forces and closes the channel so the ledger file can be rewritten, moved or truncated.
+     * Pending futures complete; the next {@link #write} reopens the file.
+     */
+    void release() throws IOException {
+        FileChannel toClose;
+        synchronized (lock) {
+            toClose = channel;
+            channel = null;
+        }
+        IOException failure = null;
+        if (toClose != null) {
+            try {
+                if (durability != Durability.OS_BUFFERED) {
+                    toClose.force(false);
+                }
+            } catch (IOException ex) {
+                failure = ex;
+            } finally {
+                toClose.close();
+            }
+        }
+        synchronized (lock) {
+            completeWaiters(Long.MAX_VALUE, failure);
+            written = 0;
+            forced = 0;
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    void close() throws IOException {
+        try {
+            release();
+        } finally {
+            synchronized (lock) {
+                closed = true;
+                lock.notifyAll();
+            }
+        }
+    }
+
+    private void commitLoop() {
+        while (true) {
+            FileChannel target;
+            long upTo;
+            synchronized (lock) {
+                try {
+                    if (durability == Durability.FSYNC_ON_INTERVAL) {
+                        lock.wait(intervalMillis);
+                    }
+                    while (!closed && waiters.isEmpty()) {
+                        lock.wait();
+                    }
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                if (closed && waiters.isEmpty()) {
+                    return;
+                }
+                target = channel;
+                upTo = written;
+            }
+            IOException failure = null;
+            try {
+                if (target != null) {
+                    target.force(false);
+                }
+            } catch (ClosedChannelException ex) {
+                // released concurrently: release() already forced and completed the waiters
+            } catch (IOException ex) {
+                failure = ex;
+            }
+            synchronized (lock) {
+                if (target == channel) {
+                    forced = Math.max(forced, upTo);
+                }
+                completeWaiters(failure == null ? forced : upTo, failure);
+            }
+        }
+    }
+
+    private void completeWaiters(long upTo, IOException failure) {
+        while (!waiters.isEmpty() && waiters.peek().offset() <= upTo) {
+            Waiter waiter = waiters.poll();
+            if (failure == null) {
+                waiter.future().complete(null);
+            } else {
+                waiter.future().completeExceptionally(failure);
+            }
+        }
+    }
+}
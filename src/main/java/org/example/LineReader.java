@@ -0,0 +1,131 @@
+package org.example;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Streams the lines of a UTF-8 text source through a single reusable byte buffer, without creating
+ * a {@code String} per line. Line terminators ({@code \n} or {@code \r\n}) are stripped; a last line
+ * without terminator is still delivered.
+ */
+final class LineReader {
+
+    /** Receives one line as a byte range that is only valid during the call. */
+    @FunctionalInterface
+    interface LineHandler {
+        void line(byte[] bytes, int start, int end);
+    }
+
+    private static final int INITIAL_CAPACITY = 64 * 1024;
+
+    private ByteBuffer buffer = ByteBuffer.allocate(INITIAL_CAPACITY);
+
+    static void forEachLine(ReadableByteChannel channel, LineHandler handler) throws IOException {
+        new LineReader().read(channel, handler);
+    }
+
+    static void forEachLine(Reader reader, LineHandler handler) throws IOException {
+        new LineReader().read(reader, handler);
+    }
+
+    /** Splits an in-memory block, e.g. a range read from the ledger, into lines. */
+    static void forEachLine(byte[] bytes, int start, int end, LineHandler handler) {
+        int next = deliver(bytes, start, end, handler);
+        if (next < end) {
+            handler.line(bytes, next, trimCarriageReturn(bytes, next, end));
+        }
+    }
+
+    void read(ReadableByteChannel channel, LineHandler handler) throws IOException {
+        buffer.clear();
+        while (true) {
+            ensureSpace();
+            int read = channel.read(buffer);
+            if (read < 0) {
+                break;
+            }
+            drain(handler);
+        }
+        finish(handler);
+    }
+
+    void read(Reader reader, LineHandler handler) throws IOException {
+        CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder();
+        CharBuffer chars = CharBuffer.allocate(INITIAL_CAPACITY / 4);
+        buffer.clear();
+        boolean eof = false;
+        while (!eof) {
+            eof = reader.read(chars) < 0;
+            chars.flip();
+            while (true) {
+                ensureSpace();
+                CoderResult result = encoder.encode(chars, buffer, eof);
+                if (result.isError()) {
+                    result.throwException();
+                }
+                drain(handler);
+                if (!result.isOverflow()) {
+                    break;
+                }
+            }
+            chars.compact();
+        }
+        while (true) {
+            ensureSpace();
+            CoderResult result = encoder.flush(buffer);
+            drain(handler);
+            if (!result.isOverflow()) {
+                break;
+            }
+        }
+        finish(handler);
+    }
+
+    /** Hands out the complete lines in the buffer and keeps the incomplete tail for the next read. */
+    private void drain(LineHandler handler) {
+        byte[] bytes = buffer.array();
+        int next = deliver(bytes, 0, buffer.position(), handler);
+        System.arraycopy(bytes, next, bytes, 0, buffer.position() - next);
+        buffer.position(buffer.position() - next);
+    }
+
+    private void finish(LineHandler handler) {
+        if (buffer.position() > 0) {
+            byte[] bytes = buffer.array();
+            handler.line(bytes, 0, trimCarriageReturn(bytes, 0, buffer.position()));
+            buffer.clear();
+        }
+    }
+
+    private static int deliver(byte[] bytes, int start, int end, LineHandler handler) {
+        int lineStart = start;
+        for (int i = start; i < end; i++) {
+            if (bytes[i] == '\n') {
+                handler.line(bytes, lineStart, trimCarriageReturn(bytes, lineStart, i));
+                lineStart = i + 1;
+            }
+        }
+        return lineStart;
+    }
+
+    private static int trimCarriageReturn(byte[] bytes, int start, int end) {
+        return end > start && bytes[end - 1] == '\r' ? end - 1 : end;
+    }
+
+    /** Grows the buffer only when a single line does not fit in it. */
+    private void ensureSpace() {
+        if (buffer.hasRemaining()) {
+            return;
+        }
+        ByteBuffer larger = ByteBuffer.allocate(buffer.capacity() * 2);
+        buffer.flip();
+        larger.put(buffer);
+        buffer = larger;
+    }
+}
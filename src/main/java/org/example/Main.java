@@ -14,25 +14,30 @@ import javafx.scene.control.Alert;
 import javafx.scene.control.Button;
 import javafx.scene.control.ButtonBar;
 import javafx.scene.control.ButtonType;
+import javafx.scene.control.Label;
+import javafx.scene.control.ProgressBar;
 import javafx.scene.layout.BorderPane;
 import javafx.scene.layout.FlowPane;
 import javafx.scene.layout.HBox;
 import javafx.scene.layout.Region;
 import javafx.scene.layout.StackPane;
 import javafx.scene.layout.VBox;
+import javafx.scene.paint.Color;
 import javafx.scene.text.Font;
+import javafx.scene.text.FontWeight;
 import javafx.stage.Screen;
 import javafx.stage.Stage;
+import javafx.stage.StageStyle;
 
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.prefs.Preferences;
 import java.util.stream.Collectors;
 
@@ -73,15 +78,22 @@ public class Main extends Application {
     private boolean suppressExitFullScreenRestore;
     private boolean suppressExitMaximizedRestore;
 
+    private PersistenceService persistence;
     private DonationsLedger donationsLedger;
     private Integer currentRoundId;
     private Users users;
     private Gains gains;
     private Historique historique;
+    private final WindowManager windows = new WindowManager();
+    private AutoSave autoSave;
+    private StartupLoader startup;
+    private Stage splash;
     private Resultat resultat;
     private Roue roue;
     private final Map<Participant, ChangeListener<Boolean>> participationListeners = new IdentityHashMap<>();
     private String lastSnapshotSignature;
+    /** Latest snapshot write queued for the current round; its payout waits on the outcome. */
+    private CompletableFuture<Integer> roundSnapshotWrite = CompletableFuture.completedFuture(0);
     private boolean wheelRefreshSuppressed;
     private static final String PREF_ADAPTIVE = "ui.adaptiveScaling";
 
@@ -112,10 +124,32 @@ public class Main extends Application {
         }
     }
 
+    /**
+     * Shows a splash right away, then builds the main window on the next pulse so the splash is
+     * painted first. The window appears before its data: {@link #startLoading} attaches the saved
+     * session, the carry-over, the history index, the background and the spin sound as each of
+     * them comes in from a background thread. Each step is timed as a {@link Telemetry.StartupPhase}.
+     */
     @Override
     public void start(Stage primaryStage) {
         this.primaryStage = primaryStage;
+        Telemetry.StartupPhase whole = phase("démarrage complet");
+        Telemetry.StartupPhase splashPhase = phase("écran d'accueil");
+        startup = new StartupLoader();
+        splash = showSplash(startup);
+        splashPhase.commit();
+        Platform.runLater(() -> buildMainWindow(whole));
+    }
+
+    private static Telemetry.StartupPhase phase(String name) {
+        Telemetry.StartupPhase event = new Telemetry.StartupPhase();
+        event.phase = name;
+        event.begin();
+        return event;
+    }
 
+    private void buildMainWindow(Telemetry.StartupPhase whole) {
+        Telemetry.StartupPhase windowPhase = phase("fenêtre principale");
         rootPane = new BorderPane();
         BorderPane root = rootPane;
         rootPane.setPrefSize(DESIGN_WIDTH, DESIGN_HEIGHT);
@@ -135,14 +169,19 @@ public class Main extends Application {
         topContainer.setFillWidth(true);
         root.setTop(topContainer);
 
-        users = new Users();
-        donationsLedger = new DonationsLedger();
+        persistence = new PersistenceService();
+        PlayerRegistry players = new PlayerRegistry(persistence);
+        users = new Users(players);
+        donationsLedger = new DonationsLedger(persistence, players);
         gains = new Gains(users.getParticipants());
-        historique = new Historique(gains, donationsLedger);
-        gains.setCarryOver(donationsLedger.computeCarryOver());
+        historique = new Historique(gains, donationsLedger, persistence, players);
+        // Secondary windows are built on first use and kept; the history records every draw,
+        // so it exists from the start, but its scene waits for the first opening too.
+        windows.register(Historique.class, () -> historique);
+        windows.register(OptionRoue.class, OptionRoue::new);
 
         Button historyButton = new Button("Historique");
-        historyButton.setOnAction(e -> historique.show());
+        historyButton.setOnAction(e -> windows.show(Historique.class));
         Theme.styleButton(historyButton);
 
         VBox leftBox = new VBox(8, historyButton, users.getRootPane());
@@ -173,8 +212,6 @@ public class Main extends Application {
         centerPane.setPadding(Insets.EMPTY);
         root.setCenter(centerPane);
 
-        loadSavedState();
-
         users.getParticipants().forEach(this::attachParticipationListener);
         roue.updateWheelDisplay(users.getParticipantNames());
 
@@ -195,8 +232,7 @@ public class Main extends Application {
 
         Button optionsButton = new Button("Options...");
         optionsButton.setOnAction(e -> {
-            OptionRoue optWin = new OptionRoue();
-            optWin.showAndWait();
+            windows.showAndWait(OptionRoue.class);
             centerOnCurrentScreen();
             roue.updateWheelDisplay(users.getParticipantNames());
         });
@@ -205,15 +241,15 @@ public class Main extends Application {
         resetButton.setOnAction(e -> roue.resetPosition());
 
         Button saveButton = new Button("Sauvegarder état");
-        saveButton.setOnAction(e -> {
-            try {
-                Save.save(users.getParticipants(), gains.getObjets(), gains.getExtraKamas());
-                resultat.setMessage("État sauvegardé ✔");
-            } catch (IOException ex) {
-                resultat.setMessage("Erreur de sauvegarde ✖");
-                ex.printStackTrace();
-            }
-        });
+        saveButton.setOnAction(e -> autoSave.saveNow()
+                .whenComplete((file, ex) -> Platform.runLater(() -> {
+                    if (ex != null) {
+                        resultat.setMessage("Erreur de sauvegarde ✖");
+                        ex.printStackTrace();
+                    } else {
+                        resultat.setMessage("État sauvegardé ✔");
+                    }
+                })));
 
         Button cleanButton = new Button("Nettoyer");
         cleanButton.setOnAction(e -> handleCleanAll());
@@ -270,7 +306,6 @@ public class Main extends Application {
 
         scaledViewport = new ScaledContentPane(rootPane, DESIGN_WIDTH, DESIGN_HEIGHT);
         scaledViewport.setPadding(Insets.EMPTY);
-        scaledViewport.setBackground(Theme.makeBackgroundCover("/img.png"));
 
         Screen initialScreen = Screen.getPrimary();
         lastKnownScreen = initialScreen;
@@ -322,7 +357,16 @@ public class Main extends Application {
         primaryStage.widthProperty().addListener(stageMoveResizeListener);
         primaryStage.heightProperty().addListener(stageMoveResizeListener);
 
+        // Editing before the saved session is back would be overwritten by it.
+        Region[] lockedUntilRestored = {leftBox, rightBox, bottomBox};
+        for (Region region : lockedUntilRestored) {
+            region.setDisable(true);
+        }
+        startLoading(lockedUntilRestored, whole);
+
         primaryStage.show();
+        splash.toFront();
+        windowPhase.commit();
 
         Platform.runLater(() -> {
             centerOnCurrentScreen();
@@ -331,51 +375,87 @@ public class Main extends Application {
         });
     }
 
-    private void loadSavedState() {
-        try {
-            Path f = Path.of("loterie-save.txt");
-            if (!Files.exists(f)) {
-                return;
-            }
-            List<String> lines = Files.readAllLines(f);
-            boolean objetsPart = false;
-            boolean bonusPart = false;
-            for (String line : lines) {
-                if (line == null) {
-                    continue;
-                }
-                String trimmed = line.trim();
-                if (trimmed.isEmpty()) {
-                    continue;
-                }
-                if (trimmed.startsWith("#")) {
-                    String low = trimmed.toLowerCase();
-                    objetsPart = low.startsWith("#objets");
-                    bonusPart = low.startsWith("#bonus");
-                    continue;
-                }
-                if (bonusPart) {
-                    gains.setExtraKamas(Kamas.parseFlexible(trimmed, 0));
-                    continue;
-                }
-                if (objetsPart) {
-                    gains.getObjets().add(trimmed);
-                    continue;
-                }
-                String[] parts = trimmed.split(";", 3);
-                if (parts.length == 3) {
-                    users.getParticipants().add(
-                            new Participant(
-                                    parts[0],
-                                    Kamas.parseFlexible(parts[1], 0),
-                                    parts[2]
-                            )
-                    );
-                }
-            }
-        } catch (Exception ex) {
-            System.err.println("Impossible de relire la sauvegarde : " + ex.getMessage());
+    private static Stage showSplash(StartupLoader loader) {
+        Label title = new Label("Loterie de la guilde Evolution");
+        title.setFont(Font.font("Arial", FontWeight.BOLD, 18));
+        title.setTextFill(Theme.TEXT_DEFAULT);
+        ProgressBar bar = new ProgressBar();
+        bar.setPrefWidth(260);
+        bar.progressProperty().bind(loader.progressProperty());
+        VBox box = new VBox(14, title, bar);
+        box.setAlignment(Pos.CENTER);
+        box.setPadding(new Insets(24));
+        Theme.styleDialogRoot(box);
+        Scene splashScene = new Scene(box, 340, 130);
+        splashScene.setFill(Color.TRANSPARENT);
+        Stage splash = new Stage(StageStyle.TRANSPARENT);
+        splash.setScene(splashScene);
+        splash.show();
+        return splash;
+    }
+
+    /**
+     * Starts the independent loads in parallel. The controls stay disabled until both the saved
+     * session and the ledger are in: a spin needs the carry-over and the last round id. The splash
+     * closes once every piece is attached, failed ones included.
+     */
+    private void startLoading(Region[] lockedUntilRestored, Telemetry.StartupPhase whole) {
+        gains.subscribeCarryOver(donationsLedger);
+        CompletableFuture<Integer> ledgerReady =
+                startup.load("report du ledger", donationsLedger::computeCarryOver, gains::setInitialCarryOver);
+        CompletableFuture<SessionSnapshot> sessionReady =
+                startup.load("sauvegarde", this::readSavedState, this::restoreSavedState)
+                        .whenComplete((snapshot, ex) -> {
+                            autoSave = new AutoSave(persistence, users.getParticipants(), gains.getObjets(),
+                                    gains.extraKamasProperty(), () -> currentRoundId, () -> lastSnapshotSignature);
+                            autoSave.start();
+                        });
+        // Both complete on the JavaFX thread, failed or not.
+        CompletableFuture.allOf(ledgerReady.handle((value, ex) -> null), sessionReady.handle((value, ex) -> null))
+                .thenRun(() -> {
+                    for (Region region : lockedUntilRestored) {
+                        region.setDisable(false);
+                    }
+                });
+        startup.attach("historique", historique.preload(), index -> { });
+        startup.load("fond d'écran", () -> Theme.makeBackgroundCover("/img.png"), scaledViewport::setBackground);
+        startup.load("son de la roue", Roue::loadSpinSound, roue::attachSpinSound);
+        startup.whenAllAttached(() -> {
+            splash.close();
+            startup.close();
+            whole.commit();
+        });
+    }
+
+    /**
+     * Reads the last session off the JavaFX thread. The reserved round is only kept if the ledger
+     * still holds it undrawn.
+     */
+    private SessionSnapshot readSavedState() {
+        SessionSnapshot snapshot = SessionSnapshot.load(Save.FILE, Save.LEGACY_FILE);
+        if (snapshot == null || snapshot.roundId() == null) {
+            return snapshot;
+        }
+        boolean resumable = donationsLedger.findRoundRecord(snapshot.roundId())
+                .filter(round -> !round.hasWinner())
+                .isPresent();
+        return resumable ? snapshot
+                : new SessionSnapshot(snapshot.participants(), snapshot.objets(), snapshot.bonus(), null, null);
+    }
+
+    /**
+     * Restores the last session in one bulk change per list, so the wheel, the pot and the
+     * registry react once instead of once per participant.
+     */
+    private void restoreSavedState(SessionSnapshot snapshot) {
+        if (snapshot == null) {
+            return;
         }
+        users.getParticipants().setAll(snapshot.participants());
+        gains.getObjets().setAll(snapshot.objets());
+        gains.setExtraKamas(snapshot.bonus());
+        currentRoundId = snapshot.roundId();
+        lastSnapshotSignature = snapshot.signature();
     }
 
     private void handleSpin(Button spinButton, Button[] buttonsToLock) {
@@ -405,17 +485,20 @@ public class Main extends Application {
         final int snapshotRoundId;
         try {
             snapshotRoundId = ensureRoundSnapshot(snapshotSignature);
-        } catch (IOException ex) {
-            resultat.setMessage("Erreur enregistrement dons : " + ex.getMessage());
-            ex.printStackTrace();
+        } catch (IllegalStateException ex) {
+            resultat.setMessage("Registre des dons illisible, tirage impossible.");
             setButtonsDisabled(false, buttonsToLock);
             return;
         }
+        // The payout is only written if the DON rows of its round were.
+        final CompletableFuture<Integer> snapshotWrite = roundSnapshotWrite;
 
         roue.setOnSpinFinished(winnerName -> {
             try {
                 if (winnerName != null) {
-                    donationsLedger.appendPayout(snapshotRoundId, winnerName, roundPot);
+                    reportWriteFailure(
+                            donationsLedger.appendPayoutAsync(snapshotRoundId, winnerName, roundPot, snapshotWrite),
+                            "Erreur payout : ");
                     finalizeRoundAndReset();
                     resultat.setMessage(winnerName + " remporte " + formatKamas(roundPot) + " k !");
                     historique.logResult(winnerName, roundPot, participantSnapshot, snapshotRoundId);
@@ -423,9 +506,6 @@ public class Main extends Application {
                     resultat.setMessage("Perdu ! Pot conservé : " + formatKamas(roundPot) + " k");
                     historique.logResult(null, roundPot, participantSnapshot, snapshotRoundId);
                 }
-            } catch (IOException ex) {
-                resultat.setMessage("Erreur payout : " + ex.getMessage());
-                ex.printStackTrace();
             } finally {
                 withWheelRefreshSuppressed(() -> users.getParticipants().forEach(p -> p.setPaid(false)));
                 setButtonsDisabled(false, buttonsToLock);
@@ -457,23 +537,18 @@ public class Main extends Application {
         Save.reset(users.getParticipants(), gains.getObjets());
         gains.resetBonus();
 
-        boolean resetOk = true;
-        try {
-            donationsLedger.resetCarryOver();
-            gains.setCarryOver(0);
-        } catch (IOException ex) {
-            resultat.setMessage("Erreur RAZ cagnotte cumulée : " + ex.getMessage());
-            ex.printStackTrace();
-            resetOk = false;
-        }
-
         currentRoundId = null;
         lastSnapshotSignature = null;
         roue.updateWheelDisplay(users.getParticipantNames());
 
-        if (resetOk) {
-            resultat.setMessage("Nouvelle loterie prête");
-        }
+        donationsLedger.resetCarryOverAsync().whenComplete((ignored, ex) -> Platform.runLater(() -> {
+            if (ex != null) {
+                resultat.setMessage("Erreur RAZ cagnotte cumulée : " + ex.getMessage());
+                ex.printStackTrace();
+            } else {
+                resultat.setMessage("Nouvelle loterie prête");
+            }
+        }));
     }
 
     private void toggleFullScreen() {
@@ -926,17 +1001,47 @@ public class Main extends Application {
         }
     }
 
-    private int ensureRoundSnapshot(String snapshotSignature) throws IOException {
-        int roundId = (currentRoundId != null) ? currentRoundId : donationsLedger.getNextRoundId();
+    /**
+     * Queues the snapshot of the current round on the persistence writer and returns its id right
+     * away; the carry-over follows through the ledger feed once the rows are written. The write is
+     * kept in {@link #roundSnapshotWrite}, and a failed one is queued again on the next call.
+     */
+    private int ensureRoundSnapshot(String snapshotSignature) {
+        int roundId = (currentRoundId != null) ? currentRoundId : donationsLedger.reserveNextRoundId();
         if (lastSnapshotSignature == null || !lastSnapshotSignature.equals(snapshotSignature) || currentRoundId == null) {
-            donationsLedger.upsertRoundSnapshot(roundId, users.getParticipants(), gains.getExtraKamas());
-            gains.setCarryOver(donationsLedger.computeCarryOver());
+            CompletableFuture<Integer> write =
+                    donationsLedger.upsertRoundSnapshotAsync(roundId, users.getParticipants(), gains.getExtraKamas());
+            roundSnapshotWrite = write;
+            reportWriteFailure(write, "Erreur enregistrement dons : ");
+            write.whenComplete((carryOver, ex) -> {
+                if (ex != null) {
+                    Platform.runLater(() -> {
+                        if (roundSnapshotWrite == write) {
+                            lastSnapshotSignature = null;
+                        }
+                    });
+                }
+            });
             lastSnapshotSignature = snapshotSignature;
         }
         currentRoundId = roundId;
+        autoSave.markDirty();
         return roundId;
     }
 
+    /** The carry-over itself reaches {@link Gains} through the ledger feed. */
+    private void reportWriteFailure(CompletableFuture<Integer> write, String errorPrefix) {
+        write.whenComplete((carryOver, ex) -> {
+            if (ex != null) {
+                Platform.runLater(() -> {
+                    Throwable cause = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+                    resultat.setMessage(errorPrefix + cause.getMessage());
+                    cause.printStackTrace();
+                });
+            }
+        });
+    }
+
     private Integer finalizeRoundAndReset() {
         int total = gains.getTotalKamas();
         if (total <= 0) {
@@ -946,20 +1051,13 @@ public class Main extends Application {
             return null;
         }
         String snapshotSignature = buildSnapshotSignature();
-        try {
-            int roundId = ensureRoundSnapshot(snapshotSignature);
-            users.resetKamasToZero();
-            gains.resetBonus();
-            withWheelRefreshSuppressed(() -> users.getParticipants().forEach(p -> p.setPaid(false)));
-            currentRoundId = null;
-            lastSnapshotSignature = null;
-            gains.setCarryOver(donationsLedger.computeCarryOver());
-            return roundId;
-        } catch (IOException ex) {
-            resultat.setMessage("Erreur lors de l'enregistrement des dons : " + ex.getMessage());
-            ex.printStackTrace();
-            return null;
-        }
+        int roundId = ensureRoundSnapshot(snapshotSignature);
+        users.resetKamasToZero();
+        gains.resetBonus();
+        withWheelRefreshSuppressed(() -> users.getParticipants().forEach(p -> p.setPaid(false)));
+        currentRoundId = null;
+        lastSnapshotSignature = null;
+        return roundId;
     }
 
     private String buildSnapshotSignature() {
@@ -982,7 +1080,28 @@ public class Main extends Application {
         return String.format("%,d", value).replace(',', ' ');
     }
 
+    @Override
+    public void stop() {
+        if (startup != null) {
+            startup.close();
+        }
+        if (autoSave != null) {
+            autoSave.close();
+        }
+        if (persistence != null && !persistence.shutdown(10_000)) {
+            System.err.println("Certaines écritures n'ont pas pu être terminées avant la fermeture.");
+        }
+        if (donationsLedger != null) {
+            try {
+                donationsLedger.close();
+            } catch (IOException ex) {
+                System.err.println("Fermeture du ledger impossible : " + ex.getMessage());
+            }
+        }
+        Telemetry.stop();
+    }
+
     public static void main(String[] args) {
-        launch(args);
+        launch(Telemetry.startFromArgs(args));
     }
 }
@@ -11,8 +11,9 @@ import javafx.stage.Stage;
 /**
  * Fenêtre optionnelle pour régler la configuration
  * de la roue (ex. nombre de tickets perdants, durée de rotation, etc.).
+ * Construite une fois puis réaffichée : les champs reprennent les valeurs en vigueur à chaque ouverture.
  */
-public class OptionRoue extends Stage {
+public class OptionRoue extends Stage implements WindowManager.Refreshable {
 
     // Variable statique : nombre de tickets perdants (100 par défaut).
     private static int losingTickets = 100;
@@ -20,6 +21,9 @@ public class OptionRoue extends Stage {
     // Nouvelle variable statique : durée de rotation (50.0 s par défaut)
     private static double spinDuration = 50.0;
 
+    private final TextField txtTickets = new TextField();
+    private final TextField txtDuration = new TextField();
+
     public OptionRoue() {
         setTitle("Options de la roue");
 
@@ -30,13 +34,11 @@ public class OptionRoue extends Stage {
         // Champ pour le nombre de tickets perdants
         Label lblTickets = new Label("Nombre de tickets perdants :");
         lblTickets.setTextFill(Theme.TEXT_DEFAULT);
-        TextField txtTickets = new TextField(String.valueOf(losingTickets));
         Theme.styleTextField(txtTickets);
 
         // Champ pour la durée de rotation
         Label lblDuration = new Label("Durée de rotation (secondes) :");
         lblDuration.setTextFill(Theme.TEXT_DEFAULT);
-        TextField txtDuration = new TextField(String.valueOf(spinDuration));
         Theme.styleTextField(txtDuration);
 
         // Bouton pour enregistrer la valeur
@@ -78,6 +80,14 @@ public class OptionRoue extends Stage {
 
         Scene scene = new Scene(root, 320, 210);
         setScene(scene);
+        beforeShow();
+    }
+
+    // Une saisie abandonnée à la fermeture précédente n'est pas reprise.
+    @Override
+    public void beforeShow() {
+        txtTickets.setText(String.valueOf(losingTickets));
+        txtDuration.setText(String.valueOf(spinDuration));
     }
 
     // Méthode statique pour récupérer la config du nombre de tickets perdants
@@ -5,6 +5,7 @@ package org.example;
  * - Pseudo (name)
  * - Mise en kamas
  * - Donation (objet éventuel)
+ * - Identifiant du {@link PlayerRegistry} ({@code -1} tant qu'il n'est pas inscrit)
  */
 public class Participant {
     public static final int DEFAULT_STAKE = 20_000;
@@ -15,6 +16,7 @@ public class Participant {
     private final javafx.beans.property.IntegerProperty stake;
     private final javafx.beans.property.BooleanProperty willReplay;
     private final javafx.beans.property.BooleanProperty paid;
+    private int playerId = -1;
 
     public Participant(String name, int kamas, String donation) {
         this.name = new javafx.beans.property.SimpleStringProperty(this, "name", name);
@@ -41,6 +43,14 @@ public class Participant {
         return name;
     }
 
+    public int getPlayerId() {
+        return playerId;
+    }
+
+    public void setPlayerId(int value) {
+        playerId = value;
+    }
+
     public int getKamas() {
         return kamas.get();
     }
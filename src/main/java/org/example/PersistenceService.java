@@ -0,0 +1,62 @@
+package org.example;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Single ordered background writer for everything that touches the disk (ledger, draw history,
+ * saved state), so the JavaFX thread never blocks on I/O.
+ * <p>
+ * Commands run one after the other, in submission order, on a dedicated thread. Each submission
+ * returns a future the UI can react to; {@link #shutdown(long)} drains the queue before exit.
+ */
+public final class PersistenceService {
+
+    /** A unit of disk work executed on the writer thread. */
+    @FunctionalInterface
+    public interface IoTask<T> {
+        T run() throws IOException;
+    }
+
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "persistence-writer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public <T> CompletableFuture<T> submit(String label, IoTask<T> task) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        try {
+            writer.execute(() -> {
+                try {
+                    future.complete(task.run());
+                } catch (Throwable ex) {
+                    System.err.println("Écriture impossible (" + label + ") : " + ex.getMessage());
+                    future.completeExceptionally(ex);
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            future.completeExceptionally(new IOException("Service de persistance arrêté (" + label + ")", ex));
+        }
+        return future;
+    }
+
+    /**
+     * Stops accepting commands and waits for the queued ones to reach the disk.
+     *
+     * @return {@code true} if every pending write completed within the timeout
+     */
+    public boolean shutdown(long timeoutMillis) {
+        writer.shutdown();
+        try {
+            return writer.awaitTermination(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package org.example;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Persistent player registry: every name gets a stable integer id shared by the participants, the
+ * donations ledger and the history, so grouping and membership tests work on integers.
+ * <p>
+ * Names are compared ignoring case and surrounding blanks. A rename keeps the id and the old name
+ * stays an alias of it, so rows already written under that name, which keep their spelling, still
+ * resolve to the same player whenever the ledger or history is read again. A name, current or
+ * former, belongs to one player only: renaming a player onto another player's name is refused.
+ * {@code loterie-joueurs.txt} is an append-only {@code id;name} journal replayed in order; every
+ * line of an id is one of its names and the last one is its displayed name.
+ */
+public final class PlayerRegistry {
+
+    private static final Path FILE = Path.of("loterie-joueurs.txt");
+
+    private final Path file;
+    private final PersistenceService persistence;
+    private final List<String> names = new ArrayList<>();
+    private final Map<String, Integer> ids = new HashMap<>();
+
+    /** In-memory registry, for one-off reads. */
+    public PlayerRegistry() {
+        this(null, null);
+    }
+
+    public PlayerRegistry(PersistenceService persistence) {
+        this(FILE, persistence);
+    }
+
+    PlayerRegistry(Path file, PersistenceService persistence) {
+        this.file = file;
+        this.persistence = persistence;
+        load();
+    }
+
+    /** Comparison key of a name: stripped and lower-cased. */
+    static String fold(String name) {
+        return name == null ? "" : name.strip().toLowerCase(Locale.ROOT);
+    }
+
+    /** Id of the name, assigned and journaled the first time it is seen. */
+    public synchronized int idOf(String name) {
+        String key = fold(name);
+        Integer id = ids.get(key);
+        if (id != null) {
+            return id;
+        }
+        int created = names.size();
+        String display = name == null ? "" : name.strip();
+        names.add(display);
+        ids.put(key, created);
+        persist(created, display);
+        return created;
+    }
+
+    /** Id of the name, or {@code -1} if it was never seen. */
+    public synchronized int find(String name) {
+        Integer id = ids.get(fold(name));
+        return id == null ? -1 : id;
+    }
+
+    public synchronized String nameOf(int id) {
+        return id >= 0 && id < names.size() ? names.get(id) : "";
+    }
+
+    public synchronized int size() {
+        return names.size();
+    }
+
+    /**
+     * Renames a player, keeping their id; the old name stays an alias of it.
+     *
+     * @return the id to use for this player from now on
+     * @throws IllegalArgumentException if the new name, or a former name, belongs to another player
+     */
+    public synchronized int rename(int id, String newName) {
+        if (id < 0 || id >= names.size()) {
+            return idOf(newName);
+        }
+        Integer existing = ids.get(fold(newName));
+        if (existing != null && existing != id) {
+            throw new IllegalArgumentException("Name already used by another player: " + newName);
+        }
+        String display = newName == null ? "" : newName.strip();
+        if (!display.equals(names.get(id))) {
+            names.set(id, display);
+            ids.put(fold(display), id);
+            persist(id, display);
+        }
+        return id;
+    }
+
+    private void load() {
+        if (file == null || !Files.exists(file)) {
+            return;
+        }
+        try {
+            for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+                int separator = line.indexOf(';');
+                if (separator <= 0) {
+                    continue;
+                }
+                int id;
+                try {
+                    id = Integer.parseInt(line.substring(0, separator));
+                } catch (NumberFormatException ex) {
+                    continue;
+                }
+                String name = line.substring(separator + 1);
+                while (names.size() <= id) {
+                    names.add("");
+                }
+                names.set(id, name);
+                ids.putIfAbsent(fold(name), id);
+            }
+        } catch (IOException ex) {
+            System.err.println("Impossible de relire le registre des joueurs : " + ex.getMessage());
+        }
+    }
+
+    private void persist(int id, String name) {
+        if (file == null) {
+            return;
+        }
+        String line = id + ";" + name.replace('\n', ' ').replace('\r', ' ') + System.lineSeparator();
+        PersistenceService.IoTask<Void> write = () -> {
+            Files.writeString(file, line, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            return null;
+        };
+        if (persistence != null) {
+            persistence.submit("registre des joueurs", write);
+        } else {
+            try {
+                write.run();
+            } catch (IOException ex) {
+                System.err.println("Impossible d'enregistrer le joueur : " + ex.getMessage());
+            }
+        }
+    }
+}
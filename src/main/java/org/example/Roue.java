@@ -1,6 +1,7 @@
 package org.example;
 
 import javafx.animation.Animation;
+import javafx.animation.AnimationTimer;
 import javafx.animation.Interpolator;
 import javafx.animation.KeyFrame;
 import javafx.animation.KeyValue;
@@ -57,6 +58,7 @@ public class Roue {
     private final Resultat resultat;
     private final List<Arc> arcs = new ArrayList<>();
     private MediaPlayer spinPlayer;
+    private SpinFrames spinFrames;
     private boolean spinSoundFailed;
 
     private String[] seatNames;
@@ -100,9 +102,16 @@ public class Roue {
     }
 
     public void updateWheelDisplay(ObservableList<String> tickets) {
+        Telemetry.WheelRebuild event = new Telemetry.WheelRebuild();
+        event.begin();
         buildSeatArrays(tickets, OptionRoue.getLosingTickets());
 
         wheelGroup.setRotate(0);
+        if (spinFrames != null) {
+            // Lancer interrompu : rien à publier.
+            spinFrames.stop();
+            spinFrames = null;
+        }
         rot.stop();
         stopSpinSound();
         wheelGroup.getChildren().clear();
@@ -119,6 +128,11 @@ public class Roue {
         }
         wheelGroup.getChildren().add(buildGlossOverlay());
         wheelGroup.getChildren().add(buildHub());
+        if (event.shouldCommit()) {
+            event.sectors = seatNames.length;
+            event.tickets = tickets == null ? 0 : tickets.size();
+            event.commit();
+        }
     }
 
     public void spinTheWheel(ObservableList<String> t) {
@@ -148,7 +162,11 @@ public class Roue {
         rot.setFromAngle(wheelGroup.getRotate());
         rot.setToAngle(wheelGroup.getRotate() + end);
         rot.setInterpolator(Interpolator.EASE_OUT);
+        SpinFrames frames = new SpinFrames(total);
+        spinFrames = frames;
         rot.setOnFinished(e -> {
+            frames.finish();
+            spinFrames = null;
             stopSpinSound();
             String pseudo = seatNames[idx];
             resultat.setMessage(pseudo != null ? pseudo + " a gagné !" : "Perdu !");
@@ -156,9 +174,53 @@ public class Roue {
             highlightWinner(idx);
         });
         startSpinSound();
+        frames.start();
         rot.play();
     }
 
+    /** Compte les images affichées pendant un lancer et en publie le rythme ({@link Telemetry.WheelSpin}). */
+    private static final class SpinFrames extends AnimationTimer {
+        private static final long SLOW_FRAME_NANOS = 20_000_000;
+
+        private final Telemetry.WheelSpin event = new Telemetry.WheelSpin();
+        private long previous;
+        private long totalGap;
+
+        SpinFrames(int sectors) {
+            event.sectors = sectors;
+        }
+
+        @Override
+        public void start() {
+            if (event.isEnabled()) {
+                event.begin();
+                super.start();
+            }
+        }
+
+        @Override
+        public void handle(long now) {
+            if (previous != 0) {
+                long gap = now - previous;
+                totalGap += gap;
+                event.longestFrame = Math.max(event.longestFrame, gap);
+                if (gap > SLOW_FRAME_NANOS) {
+                    event.slowFrames++;
+                }
+            }
+            previous = now;
+            event.frames++;
+        }
+
+        void finish() {
+            stop();
+            if (event.frames > 1) {
+                event.averageFrame = totalGap / (event.frames - 1);
+            }
+            event.commit();
+        }
+    }
+
     private void highlightWinner(int idx) {
         if (idx < 0 || idx >= arcs.size()) {
             return;
@@ -221,27 +283,53 @@ public class Roue {
         });
     }
 
+    /**
+     * Décode le son de la roue ; sans toucher à la roue, cela peut se faire hors du thread JavaFX,
+     * au démarrage, puis être remis à {@link #attachSpinSound(Media)}. {@code null} si le fichier manque.
+     */
+    static Media loadSpinSound() {
+        var resource = Roue.class.getResource("/song-loto.mp3");
+        if (resource == null) {
+            System.err.println("Audio introuvable : /song-loto.mp3");
+            return null;
+        }
+        return new Media(resource.toExternalForm());
+    }
+
+    /** Prépare le lecteur du son déjà décodé ; sans appel, il l'est au premier lancer. */
+    void attachSpinSound(Media media) {
+        if (spinPlayer != null || spinSoundFailed) {
+            return;
+        }
+        if (media == null) {
+            spinSoundFailed = true;
+            return;
+        }
+        try {
+            spinPlayer = new MediaPlayer(media);
+            spinPlayer.setCycleCount(MediaPlayer.INDEFINITE);
+            spinPlayer.setOnError(() -> {
+                System.err.println("Erreur audio (roue) : " + spinPlayer.getError());
+                spinSoundFailed = true;
+            });
+        } catch (MediaException ex) {
+            System.err.println("Impossible de charger l'audio de la roue : " + ex.getMessage());
+            spinSoundFailed = true;
+        }
+    }
+
     private void startSpinSound() {
         if (spinSoundFailed) {
             return;
         }
         if (spinPlayer == null) {
-            var resource = Roue.class.getResource("/song-loto.mp3");
-            if (resource == null) {
-                System.err.println("Audio introuvable : /song-loto.mp3");
-                spinSoundFailed = true;
-                return;
-            }
             try {
-                spinPlayer = new MediaPlayer(new Media(resource.toExternalForm()));
-                spinPlayer.setCycleCount(MediaPlayer.INDEFINITE);
-                spinPlayer.setOnError(() -> {
-                    System.err.println("Erreur audio (roue) : " + spinPlayer.getError());
-                    spinSoundFailed = true;
-                });
+                attachSpinSound(loadSpinSound());
             } catch (MediaException ex) {
                 System.err.println("Impossible de charger l'audio de la roue : " + ex.getMessage());
                 spinSoundFailed = true;
+            }
+            if (spinPlayer == null) {
                 return;
             }
         }
@@ -2,45 +2,52 @@ package org.example;
 
 import javafx.collections.ObservableList;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 
 /**
  * Outils très simples pour :
- *   • sauvegarder l’état courant dans un fichier texte ;
+ *   • écrire l’état courant sur disque sans jamais le laisser à moitié écrit ;
  *   • remettre à zéro toutes les listes (nouvelle loterie).
  *
- * On reste volontairement « light » : un seul fichier texte,
- * pas de dépendance externe, format ultra-lisible.
+ * L’état est un {@link SessionSnapshot} binaire ({@code loterie-save.bin}) ; l’ancienne
+ * sauvegarde texte ({@code loterie-save.txt}) n’est plus que relue, faute de mieux. Le fichier
+ * est écrit à côté puis renommé : un arrêt brutal laisse l’ancienne ou la nouvelle version,
+ * jamais un mélange. La sauvegarde continue est assurée par {@link AutoSave}.
  */
 public final class Save {
 
     private Save() {}                      // classe utilitaire
 
-    private static final Path FILE = Path.of("loterie-save.txt");
+    static final Path FILE = Path.of("loterie-save.bin");
+    static final Path LEGACY_FILE = Path.of("loterie-save.txt");
 
     /* ---------- Sauvegarde ---------- */
-    public static void save(ObservableList<Participant> participants,
-                            ObservableList<String> objets,
-                            int extraKamas) throws IOException {
 
-        StringBuilder sb = new StringBuilder("#Participants\n");
-        for (Participant p : participants) {
-            // nom;kamas;don
-            sb.append(p.getName()).append(';')
-                    .append(p.getKamas()).append(';')
-                    .append(p.getDonation()).append('\n');
+    /**
+     * Écrit le contenu dans un fichier temporaire, le force sur le disque puis le met en place
+     * d'un seul renommage : après un arrêt brutal, le fichier renommé n'est jamais vide.
+     */
+    static Path write(Path file, byte[] content) throws IOException {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.wrap(content);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
         }
-
-        sb.append("#Objets\n");
-        for (String o : objets) {
-            sb.append(o).append('\n');
+        try {
+            return Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException ex) {
+            return Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
         }
-
-        sb.append("#Bonus\n");
-        sb.append(extraKamas).append('\n');
-
-        Files.writeString(FILE, sb.toString());
     }
 
     /* ---------- Nettoyage ---------- */
@@ -49,4 +56,4 @@ public final class Save {
         participants.clear();
         objets.clear();
     }
-}
\ No newline at end of file
+}
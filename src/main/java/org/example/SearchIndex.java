@@ -0,0 +1,227 @@
+package org.example;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+
+/**
+ * In-memory inverted index from normalized words to document numbers, such as history lines or
+ * round ids. Words are lower-cased and stripped of accents, so {@code "élo"} finds {@code "Eloïse"}.
+ * <p>
+ * A query matches the documents holding, for each of its words, some indexed word starting with it.
+ * Words live in a sorted map so a prefix is a sub-map scan, and the candidate sets are intersected
+ * as bit sets: answering stays well under a frame for tens of thousands of documents.
+ * <p>
+ * Documents are usually added in increasing order; an out-of-order or repeated add is still placed
+ * correctly. The index is not thread-safe and is meant to be confined to the JavaFX thread;
+ * {@link #encode()} snapshots it for a background write.
+ */
+final class SearchIndex {
+
+    static final int MAGIC = 0x58495253; // "SRIX"
+    static final short VERSION = 1;
+
+    private static final int[] EMPTY = new int[0];
+
+    private final TreeMap<String, Postings> words = new TreeMap<>();
+    /** One past the largest document added, i.e. where an incremental catch-up resumes. */
+    private int covered;
+
+    /** Indexes every word of {@code text} for the document. */
+    void add(int document, String text) {
+        for (String word : words(text)) {
+            words.computeIfAbsent(word, w -> new Postings()).add(document);
+        }
+        covered = Math.max(covered, document + 1);
+    }
+
+    int covered() {
+        return covered;
+    }
+
+    void clear() {
+        words.clear();
+        covered = 0;
+    }
+
+    /** Documents matching every word of the query, largest first, at most {@code limit}. */
+    int[] search(String query, int limit) {
+        List<String> prefixes = words(query);
+        if (prefixes.isEmpty() || limit <= 0) {
+            return EMPTY;
+        }
+        BitSet matches = null;
+        for (String prefix : prefixes) {
+            BitSet candidates = new BitSet();
+            for (Postings postings : words.subMap(prefix, true, prefix + Character.MAX_VALUE, false).values()) {
+                for (int i = 0; i < postings.size; i++) {
+                    candidates.set(postings.documents[i]);
+                }
+            }
+            if (matches == null) {
+                matches = candidates;
+            } else {
+                matches.and(candidates);
+            }
+            if (matches.isEmpty()) {
+                return EMPTY;
+            }
+        }
+        int[] result = new int[Math.min(limit, matches.cardinality())];
+        int found = 0;
+        for (int doc = matches.length() - 1; doc >= 0 && found < result.length; doc = matches.previousSetBit(doc - 1)) {
+            result[found++] = doc;
+        }
+        return result;
+    }
+
+    /** Splits a text into normalized words: lower case, no accents, letters and digits only. */
+    static List<String> words(String text) {
+        List<String> result = new ArrayList<>();
+        if (text == null || text.isEmpty()) {
+            return result;
+        }
+        String folded = Normalizer.normalize(text, Normalizer.Form.NFD)
+                .replaceAll("\\p{M}+", "")
+                .toLowerCase(Locale.ROOT);
+        int start = -1;
+        for (int i = 0; i <= folded.length(); i++) {
+            boolean wordChar = i < folded.length() && Character.isLetterOrDigit(folded.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                result.add(folded.substring(start, i));
+                start = -1;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Serializes the index: magic, version, covered count and word count, then each word with its
+     * document numbers as ascending varint deltas, followed by a CRC32 of everything before it.
+     */
+    byte[] encode() {
+        BinaryFields.Writer writer = new BinaryFields.Writer();
+        ByteBuffer head = ByteBuffer.allocate(6).order(ByteOrder.LITTLE_ENDIAN).putInt(MAGIC).putShort(VERSION);
+        for (byte b : head.array()) {
+            writer.putByte(b);
+        }
+        writer.putVarInt(covered).putVarInt(words.size());
+        for (Map.Entry<String, Postings> entry : words.entrySet()) {
+            Postings postings = entry.getValue();
+            writer.putString(entry.getKey()).putVarInt(postings.size);
+            int previous = 0;
+            for (int i = 0; i < postings.size; i++) {
+                writer.putVarInt(postings.documents[i] - previous);
+                previous = postings.documents[i];
+            }
+        }
+        byte[] body = writer.toByteArray();
+        CRC32 crc = new CRC32();
+        crc.update(body);
+        byte[] bytes = Arrays.copyOf(body, body.length + 4);
+        ByteBuffer.wrap(bytes, body.length, 4).order(ByteOrder.LITTLE_ENDIAN).putInt((int) crc.getValue());
+        return bytes;
+    }
+
+    /** Rebuilds an index written by {@link #encode()}. */
+    static SearchIndex decode(byte[] bytes) throws IOException {
+        if (bytes.length < 10) {
+            throw new IOException("Truncated search index");
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+        CRC32 crc = new CRC32();
+        crc.update(bytes, 0, bytes.length - 4);
+        if (buffer.getInt(bytes.length - 4) != (int) crc.getValue()) {
+            throw new IOException("Search index checksum mismatch");
+        }
+        if (buffer.getInt(0) != MAGIC || buffer.getShort(4) != VERSION) {
+            throw new IOException("Unknown search index format");
+        }
+        SearchIndex index = new SearchIndex();
+        try {
+            BinaryFields.Reader reader = new BinaryFields.Reader(bytes, 6, bytes.length - 4);
+            index.covered = reader.getVarInt();
+            int count = reader.getVarInt();
+            for (int w = 0; w < count; w++) {
+                String word = reader.getString();
+                int size = reader.getVarInt();
+                Postings postings = new Postings();
+                int document = 0;
+                for (int i = 0; i < size; i++) {
+                    document += reader.getVarInt();
+                    postings.add(document);
+                }
+                index.words.put(word, postings);
+            }
+        } catch (IllegalArgumentException ex) {
+            throw new IOException("Unreadable search index: " + ex.getMessage(), ex);
+        }
+        return index;
+    }
+
+    /** Reads an index file; a missing or unreadable file gives an empty index to rebuild. */
+    static SearchIndex read(Path file) {
+        if (!Files.exists(file)) {
+            return new SearchIndex();
+        }
+        try {
+            return decode(Files.readAllBytes(file));
+        } catch (IOException ex) {
+            System.err.println("Index de recherche ignoré, reconstruction : " + ex.getMessage());
+            return new SearchIndex();
+        }
+    }
+
+    /** Writes an encoded index through a synced temporary file swapped in atomically ({@link Save#write}). */
+    static void write(Path file, byte[] bytes) throws IOException {
+        Save.write(file, bytes);
+    }
+
+    /** Merges another index into this one, e.g. the persisted one into words added since boot. */
+    void addAll(SearchIndex other) {
+        for (Map.Entry<String, Postings> entry : other.words.entrySet()) {
+            Postings target = words.computeIfAbsent(entry.getKey(), w -> new Postings());
+            Postings source = entry.getValue();
+            for (int i = 0; i < source.size; i++) {
+                target.add(source.documents[i]);
+            }
+        }
+        covered = Math.max(covered, other.covered);
+    }
+
+    /** Sorted, duplicate-free document numbers of one word. */
+    private static final class Postings {
+        private int[] documents = new int[4];
+        private int size;
+
+        private void add(int document) {
+            int at = size;
+            if (size > 0 && documents[size - 1] >= document) {
+                at = Arrays.binarySearch(documents, 0, size, document);
+                if (at >= 0) {
+                    return;
+                }
+                at = -at - 1;
+            }
+            if (size == documents.length) {
+                documents = Arrays.copyOf(documents, size * 2);
+            }
+            System.arraycopy(documents, at, documents, at + 1, size - at);
+            documents[at] = document;
+            size++;
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package org.example;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.zip.CRC32;
+
+/**
+ * Instantané binaire de la session en cours : participants complets (mise, enjeu, payé, rejoue),
+ * objets, bonus, tour en cours et signature de son dernier instantané dans le ledger.
+ * <p>
+ * Format : en-tête de 8 octets (magique {@code LSES}, version), puis les champs en varints et
+ * chaînes UTF-8 préfixées de leur longueur ({@link BinaryFields}), puis le CRC32 de tout ce qui
+ * précède. Un fichier illisible ou absent laisse la place à l'ancienne sauvegarde texte.
+ *
+ * @param roundId   tour réservé et pas encore tiré, {@code null} entre deux tours
+ * @param signature signature du dernier instantané envoyé au ledger pour ce tour
+ */
+record SessionSnapshot(List<Participant> participants,
+                       List<String> objets,
+                       int bonus,
+                       Integer roundId,
+                       String signature) {
+
+    static final int MAGIC = 0x5345534C; // "LSES"
+    static final short VERSION = 1;
+    static final int HEADER_SIZE = 4 + 2 + 2;
+
+    private static final int WILL_REPLAY = 1;
+    private static final int PAID = 2;
+    private static final int HAS_ROUND = 1;
+    private static final int HAS_SIGNATURE = 2;
+
+    byte[] encode() {
+        BinaryFields.Writer writer = new BinaryFields.Writer();
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN)
+                .putInt(MAGIC).putShort(VERSION).putShort((short) 0);
+        for (byte b : header.array()) {
+            writer.putByte(b);
+        }
+        writer.putVarInt(participants.size());
+        for (Participant p : participants) {
+            writer.putString(p.getName())
+                    .putVarInt(Math.max(0, p.getKamas()))
+                    .putString(p.getDonation())
+                    .putVarInt(Math.max(0, p.getStake()))
+                    .putByte((p.isWillReplay() ? WILL_REPLAY : 0) | (p.isPaid() ? PAID : 0));
+        }
+        writer.putVarInt(objets.size());
+        objets.forEach(writer::putString);
+        writer.putVarInt(Math.max(0, bonus))
+                .putByte((roundId != null ? HAS_ROUND : 0) | (signature != null ? HAS_SIGNATURE : 0));
+        if (roundId != null) {
+            writer.putVarInt(roundId);
+        }
+        if (signature != null) {
+            writer.putString(signature);
+        }
+        byte[] body = writer.toByteArray();
+        CRC32 crc = new CRC32();
+        crc.update(body);
+        byte[] bytes = Arrays.copyOf(body, body.length + 4);
+        ByteBuffer.wrap(bytes, body.length, 4).order(ByteOrder.LITTLE_ENDIAN).putInt((int) crc.getValue());
+        return bytes;
+    }
+
+    static SessionSnapshot decode(byte[] bytes) throws IOException {
+        if (bytes.length < HEADER_SIZE + 4) {
+            throw new IOException("sauvegarde tronquée");
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+        if (buffer.getInt(0) != MAGIC) {
+            throw new IOException("pas une sauvegarde binaire");
+        }
+        if (buffer.getShort(4) != VERSION) {
+            throw new IOException("version " + buffer.getShort(4) + " de sauvegarde inconnue");
+        }
+        CRC32 crc = new CRC32();
+        crc.update(bytes, 0, bytes.length - 4);
+        if (buffer.getInt(bytes.length - 4) != (int) crc.getValue()) {
+            throw new IOException("sauvegarde corrompue (CRC)");
+        }
+        try {
+            BinaryFields.Reader reader = new BinaryFields.Reader(bytes, HEADER_SIZE, bytes.length - 4);
+            int count = reader.getVarInt();
+            List<Participant> participants = new ArrayList<>(Math.min(count, bytes.length));
+            for (int i = 0; i < count; i++) {
+                Participant p = new Participant(reader.getString(), reader.getVarInt(), reader.getString());
+                p.setStake(reader.getVarInt());
+                int flags = reader.getByte();
+                p.setWillReplay((flags & WILL_REPLAY) != 0);
+                p.setPaid((flags & PAID) != 0);
+                participants.add(p);
+            }
+            int objetCount = reader.getVarInt();
+            List<String> objets = new ArrayList<>(Math.min(objetCount, bytes.length));
+            for (int i = 0; i < objetCount; i++) {
+                objets.add(reader.getString());
+            }
+            int bonus = reader.getVarInt();
+            int flags = reader.getByte();
+            Integer roundId = (flags & HAS_ROUND) != 0 ? reader.getVarInt() : null;
+            String signature = (flags & HAS_SIGNATURE) != 0 ? reader.getString() : null;
+            return new SessionSnapshot(participants, objets, bonus, roundId, signature);
+        } catch (IllegalArgumentException ex) {
+            throw new IOException("sauvegarde illisible : " + ex.getMessage(), ex);
+        }
+    }
+
+    /**
+     * Relit la sauvegarde binaire, ou à défaut l'ancienne sauvegarde texte ; {@code null} si aucune
+     * n'est lisible.
+     */
+    static SessionSnapshot load(Path binary, Path legacy) {
+        if (Files.exists(binary)) {
+            try {
+                return decode(Files.readAllBytes(binary));
+            } catch (IOException ex) {
+                System.err.println("Sauvegarde binaire illisible, repli sur l'ancienne : " + ex.getMessage());
+            }
+        }
+        if (Files.exists(legacy)) {
+            try {
+                return parseLegacy(Files.readAllLines(legacy));
+            } catch (IOException ex) {
+                System.err.println("Impossible de relire la sauvegarde : " + ex.getMessage());
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Lit l'ancien format texte : sections {@code #Participants} ({@code nom;kamas;don}),
+     * {@code #Objets} et {@code #Bonus}. Il ne connaît ni l'enjeu, ni les drapeaux, ni le tour.
+     */
+    static SessionSnapshot parseLegacy(List<String> lines) {
+        List<Participant> participants = new ArrayList<>();
+        List<String> objets = new ArrayList<>();
+        int bonus = 0;
+        boolean objetsPart = false;
+        boolean bonusPart = false;
+        for (String line : lines) {
+            if (line == null) {
+                continue;
+            }
+            String trimmed = line.trim();
+            if (trimmed.isEmpty()) {
+                continue;
+            }
+            if (trimmed.startsWith("#")) {
+                String low = trimmed.toLowerCase(Locale.ROOT);
+                objetsPart = low.startsWith("#objets");
+                bonusPart = low.startsWith("#bonus");
+                continue;
+            }
+            if (bonusPart) {
+                bonus = Kamas.parseFlexible(trimmed, 0);
+                continue;
+            }
+            if (objetsPart) {
+                objets.add(trimmed);
+                continue;
+            }
+            String[] parts = trimmed.split(";", 3);
+            if (parts.length == 3) {
+                participants.add(new Participant(parts[0], Kamas.parseFlexible(parts[1], 0), parts[2]));
+            }
+        }
+        return new SessionSnapshot(participants, objets, bonus, null, null);
+    }
+}
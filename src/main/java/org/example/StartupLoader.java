@@ -0,0 +1,125 @@
+package org.example;
+
+import javafx.application.Platform;
+import javafx.beans.property.ReadOnlyDoubleProperty;
+import javafx.beans.property.ReadOnlyDoubleWrapper;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Runs the independent startup loads in parallel and attaches each result to the scene graph as
+ * soon as it is ready, so the main window shows before the slowest of them is done.
+ * <p>
+ * Every piece is split in two: a load on a background thread, which must not touch live nodes, and
+ * an attach step on the JavaFX thread. A failed load is reported and counted as done; the
+ * application starts without that piece rather than not at all. {@link #progressProperty()} and
+ * {@link #whenAllAttached(Runnable)} let a splash screen follow the pieces; each piece is recorded
+ * as a {@link Telemetry.StartupPhase}, from its registration to its attach.
+ * <p>
+ * Pieces are registered from the JavaFX thread. Loads that already run elsewhere, such as reads
+ * queued on the {@link PersistenceService}, join through {@link #attach(String, CompletableFuture, Consumer)}.
+ */
+final class StartupLoader implements AutoCloseable {
+
+    private final ExecutorService loaders;
+    private final Executor fxThread;
+    private final ReadOnlyDoubleWrapper progress = new ReadOnlyDoubleWrapper(this, "progress");
+    private final AtomicInteger threadCount = new AtomicInteger();
+    private final CompletableFuture<Void> allAttached = new CompletableFuture<>();
+
+    // JavaFX thread only.
+    private int registered;
+    private int attached;
+    private boolean sealed;
+
+    StartupLoader() {
+        this(Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors())), Platform::runLater);
+    }
+
+    StartupLoader(int threads, Executor fxThread) {
+        this.loaders = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "startup-loader-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.fxThread = fxThread;
+    }
+
+    /** Loads a piece on a background thread, then hands it to {@code attach} on the JavaFX thread. */
+    <T> CompletableFuture<T> load(String label, Callable<T> task, Consumer<? super T> attach) {
+        CompletableFuture<T> loading = CompletableFuture.supplyAsync(() -> {
+            try {
+                return task.call();
+            } catch (Exception ex) {
+                throw new CompletionException(ex);
+            }
+        }, loaders);
+        return attach(label, loading, attach);
+    }
+
+    /** Waits for a load started elsewhere, then hands its result to {@code attach} on the JavaFX thread. */
+    <T> CompletableFuture<T> attach(String label, CompletableFuture<T> loading, Consumer<? super T> attach) {
+        registered++;
+        updateProgress();
+        Telemetry.StartupPhase phase = new Telemetry.StartupPhase();
+        phase.phase = label;
+        phase.begin();
+        CompletableFuture<T> done = new CompletableFuture<>();
+        loading.whenComplete((value, ex) -> fxThread.execute(() -> {
+            try {
+                if (ex != null) {
+                    Throwable cause = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+                    System.err.println("Chargement impossible (" + label + ") : " + cause.getMessage());
+                    done.completeExceptionally(cause);
+                } else {
+                    attach.accept(value);
+                    done.complete(value);
+                }
+            } catch (RuntimeException attachFailure) {
+                System.err.println("Mise en place impossible (" + label + ") : " + attachFailure.getMessage());
+                done.completeExceptionally(attachFailure);
+            } finally {
+                phase.failed = done.isCompletedExceptionally();
+                phase.commit();
+                attached++;
+                updateProgress();
+            }
+        }));
+        return done;
+    }
+
+    /**
+     * Declares that every piece is registered and runs {@code action} on the JavaFX thread once the
+     * last one is attached, or right away if they all already are.
+     */
+    void whenAllAttached(Runnable action) {
+        sealed = true;
+        allAttached.thenRun(() -> fxThread.execute(action));
+        updateProgress();
+    }
+
+    /** Share of the registered pieces already attached, from 0 to 1. */
+    ReadOnlyDoubleProperty progressProperty() {
+        return progress.getReadOnlyProperty();
+    }
+
+    private void updateProgress() {
+        progress.set(registered == 0 ? 0 : (double) attached / registered);
+        if (sealed && attached == registered) {
+            allAttached.complete(null);
+        }
+    }
+
+    /** Stops the loader threads; loads still running are abandoned. */
+    @Override
+    public void close() {
+        loaders.shutdownNow();
+    }
+}
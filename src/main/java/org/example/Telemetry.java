@@ -0,0 +1,206 @@
+package org.example;
+
+import jdk.jfr.Category;
+import jdk.jfr.Configuration;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Recording;
+import jdk.jfr.Timespan;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * JDK Flight Recorder events for the application lifecycle: startup phases, ledger reads and
+ * writes, wheel rebuilds and spins, history loads and saves. They cost next to nothing while no
+ * recording is running, and land in any recording that enables them, including one started with
+ * {@code -XX:StartFlightRecording} or attached later with {@code jcmd <pid> JFR.start}.
+ * <p>
+ * {@code --jfr} on the command line records them, with the JDK default settings, to
+ * {@code loterie-<date>.jfr}; {@code --jfr=<file>} picks the file. The recording is written when
+ * the application exits, ready to be attached to a bug report and opened in JDK Mission Control or
+ * with {@code jfr print --categories Loterie}.
+ */
+final class Telemetry {
+
+    static final String FLAG = "--jfr";
+    private static final DateTimeFormatter FILE_DATE = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    private static Recording recording;
+
+    private Telemetry() {
+    }
+
+    /**
+     * Starts a recording if the arguments ask for one.
+     *
+     * @return the arguments without the recording flag, for the JavaFX launcher
+     */
+    static String[] startFromArgs(String[] args) {
+        List<String> rest = new ArrayList<>(args.length);
+        Path destination = null;
+        for (String arg : args) {
+            if (arg.equals(FLAG)) {
+                destination = Path.of("loterie-" + LocalDateTime.now().format(FILE_DATE) + ".jfr");
+            } else if (arg.startsWith(FLAG + "=")) {
+                destination = Path.of(arg.substring(FLAG.length() + 1));
+            } else {
+                rest.add(arg);
+            }
+        }
+        if (destination != null) {
+            start(destination);
+        }
+        return rest.toArray(new String[0]);
+    }
+
+    /** Records the JDK defaults plus every application event until the JVM exits. */
+    static synchronized void start(Path destination) {
+        if (recording != null) {
+            return;
+        }
+        try {
+            Recording started = new Recording(Configuration.getConfiguration("default"));
+            for (Class<? extends Event> type : List.of(StartupPhase.class, LedgerRead.class, LedgerWrite.class,
+                    WheelRebuild.class, WheelSpin.class, HistoryLoad.class, HistorySave.class)) {
+                started.enable(type);
+            }
+            started.setName("loterie");
+            started.setToDisk(true);
+            started.setDestination(destination);
+            started.setDumpOnExit(true);
+            started.start();
+            recording = started;
+            System.err.println("Enregistrement JFR vers " + destination.toAbsolutePath());
+        } catch (IOException | ParseException | IllegalStateException | SecurityException ex) {
+            System.err.println("Impossible de démarrer l'enregistrement JFR : " + ex.getMessage());
+        }
+    }
+
+    /** Stops the recording, which writes it to its file; no-op when none is running. */
+    static synchronized void stop() {
+        if (recording == null) {
+            return;
+        }
+        try {
+            recording.stop();
+        } catch (IllegalStateException ex) {
+            System.err.println("Arrêt de l'enregistrement JFR impossible : " + ex.getMessage());
+        } finally {
+            recording.close();
+            recording = null;
+        }
+    }
+
+    @Name("org.example.StartupPhase")
+    @Label("Startup Phase")
+    @Category({"Loterie", "Startup"})
+    @Description("A step of the application startup, from the launch to the last piece attached")
+    static final class StartupPhase extends Event {
+        @Label("Phase")
+        String phase;
+
+        @Label("Failed")
+        boolean failed;
+    }
+
+    @Name("org.example.LedgerRead")
+    @Label("Ledger Read")
+    @Category({"Loterie", "Ledger"})
+    @Description("Rows parsed from the donations ledger to bring the resident state up to date")
+    static final class LedgerRead extends Event {
+        @Label("Rows")
+        int rows;
+
+        @Label("Bytes")
+        @DataAmount
+        long bytes;
+
+        @Label("Full Reload")
+        boolean full;
+
+        @Label("Parallel")
+        boolean parallel;
+    }
+
+    @Name("org.example.LedgerWrite")
+    @Label("Ledger Write")
+    @Category({"Loterie", "Ledger"})
+    @Description("Rows appended to the donations ledger in one write")
+    static final class LedgerWrite extends Event {
+        @Label("Rows")
+        int rows;
+
+        @Label("Bytes")
+        @DataAmount
+        long bytes;
+    }
+
+    @Name("org.example.WheelRebuild")
+    @Label("Wheel Rebuild")
+    @Category({"Loterie", "Wheel"})
+    @Description("The wheel sectors rebuilt from the tickets")
+    static final class WheelRebuild extends Event {
+        @Label("Sectors")
+        int sectors;
+
+        @Label("Tickets")
+        int tickets;
+    }
+
+    @Name("org.example.WheelSpin")
+    @Label("Wheel Spin")
+    @Category({"Loterie", "Wheel"})
+    @Description("A spin of the wheel with the frame pacing observed while it turned")
+    static final class WheelSpin extends Event {
+        @Label("Sectors")
+        int sectors;
+
+        @Label("Frames")
+        int frames;
+
+        @Label("Average Frame Time")
+        @Timespan(Timespan.NANOSECONDS)
+        long averageFrame;
+
+        @Label("Longest Frame Time")
+        @Timespan(Timespan.NANOSECONDS)
+        long longestFrame;
+
+        @Label("Frames Over 20 ms")
+        int slowFrames;
+    }
+
+    @Name("org.example.HistoryLoad")
+    @Label("History Load")
+    @Category({"Loterie", "History"})
+    @Description("Draw history read for display or search, from the request to the update of the view")
+    static final class HistoryLoad extends Event {
+        @Label("Kind")
+        String kind;
+
+        @Label("Records")
+        int records;
+    }
+
+    @Name("org.example.HistorySave")
+    @Label("History Save")
+    @Category({"Loterie", "History"})
+    @Description("Draw history or search index handed to the persistence writer")
+    static final class HistorySave extends Event {
+        @Label("Kind")
+        String kind;
+
+        @Label("Bytes")
+        @DataAmount
+        long bytes;
+    }
+}
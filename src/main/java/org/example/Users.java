@@ -13,6 +13,7 @@ import javafx.scene.text.Font;
 import javafx.scene.text.FontWeight;
 import javafx.util.converter.IntegerStringConverter;
 
+import java.util.BitSet;
 import java.util.Set;
 
 /**
@@ -24,11 +25,17 @@ public class Users {
     private final ObservableList<Participant> participants = FXCollections.observableArrayList();
     private final TableView<Participant>      table        = new TableView<>(participants);
     private final VBox                        root         = new VBox(6);
+    private final PlayerRegistry              registry;
 
     private static final double GOLDEN_ANGLE = 137.50776405003785;
     private static final int DEFAULT_INSCRIPTION_K = Participant.DEFAULT_STAKE;
 
     public Users(){
+        this(new PlayerRegistry());
+    }
+
+    public Users(PlayerRegistry registry){
+        this.registry = registry;
 
         /* === Colonnes ================================================= */
         TableColumn<Participant,Boolean> colReplay = new TableColumn<>("Rejoue ?");
@@ -73,7 +80,22 @@ public class Users {
         colNom.setOnEditCommit(event -> {
             Participant participant = event.getRowValue();
             if (participant != null) {
+                // Le joueur garde son identifiant : ses dons et son historique le suivent.
+                int playerId;
+                try {
+                    playerId = registry.rename(participant.getPlayerId(), event.getNewValue());
+                } catch (IllegalArgumentException ex) {
+                    // Pseudo d'un autre joueur : on ne fusionne pas deux joueurs en silence.
+                    table.refresh();
+                    Alert refused = new Alert(Alert.AlertType.WARNING,
+                            "« " + event.getNewValue() + " » est déjà le pseudo (actuel ou ancien) d'un autre joueur.");
+                    refused.setHeaderText("Renommage refusé");
+                    refused.initOwner(table.getScene().getWindow());
+                    refused.show();
+                    return;
+                }
                 participant.setName(event.getNewValue());
+                participant.setPlayerId(playerId);
             }
         });
         colKamas.setOnEditCommit(event -> {
@@ -160,6 +182,13 @@ public class Users {
         /* === Sync roue ↔ table ======================================== */
         participants.addListener((ListChangeListener<Participant>) change -> {
             // Reconstruit la roue dès que la liste change via Main
+            while (change.next()) {
+                for (Participant added : change.getAddedSubList()) {
+                    if (added.getPlayerId() < 0) {
+                        added.setPlayerId(registry.idOf(added.getName()));
+                    }
+                }
+            }
         });
     }
 
@@ -183,8 +212,12 @@ public class Users {
     }
 
     public Participant findByNameIgnoreCase(String name) {
+        int id = registry.find(name);
+        if (id < 0) {
+            return null;
+        }
         for (Participant participant : participants) {
-            if (participant.getName().equalsIgnoreCase(name)) {
+            if (participant.getPlayerId() == id) {
                 return participant;
             }
         }
@@ -195,8 +228,14 @@ public class Users {
         if (namesToKeep == null || namesToKeep.isEmpty()) {
             participants.clear();
         } else {
-            participants.removeIf(participant -> namesToKeep.stream()
-                    .noneMatch(n -> n.equalsIgnoreCase(participant.getName())));
+            BitSet keep = new BitSet();
+            for (String name : namesToKeep) {
+                int id = registry.find(name);
+                if (id >= 0) {
+                    keep.set(id);
+                }
+            }
+            participants.removeIf(participant -> participant.getPlayerId() < 0 || !keep.get(participant.getPlayerId()));
         }
     }
 
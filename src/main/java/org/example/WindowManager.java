@@ -0,0 +1,83 @@
+package org.example;
+
+import javafx.stage.Stage;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Supplier;
+
+/**
+ * Secondary windows, built on first use and then kept: reopening one shows the same stage again
+ * instead of rebuilding its scene and reloading its data.
+ * <p>
+ * A window that needs to catch up before being shown again implements {@link Refreshable}; it is
+ * called before every show and should only apply what changed since it was last visible. Windows
+ * are opened and reused on the JavaFX thread only.
+ */
+final class WindowManager {
+
+    /** A cached window that brings itself up to date before being shown again. */
+    interface Refreshable {
+        /** Called on the JavaFX thread right before the window is shown, the first time included. */
+        void beforeShow();
+    }
+
+    private final Map<Class<? extends Stage>, Supplier<? extends Stage>> factories = new HashMap<>();
+    private final Map<Class<? extends Stage>, Stage> windows = new HashMap<>();
+
+    /** Declares how to build a window; nothing is built until it is first needed. */
+    <S extends Stage> void register(Class<S> type, Supplier<? extends S> factory) {
+        factories.put(type, Objects.requireNonNull(factory, "factory"));
+        windows.remove(type);
+    }
+
+    /** The window of this type, built on the first call. */
+    <S extends Stage> S get(Class<S> type) {
+        Stage window = windows.get(type);
+        if (window == null) {
+            Supplier<? extends Stage> factory = factories.get(type);
+            if (factory == null) {
+                throw new IllegalArgumentException("Unregistered window: " + type.getSimpleName());
+            }
+            window = factory.get();
+            windows.put(type, window);
+        }
+        return type.cast(window);
+    }
+
+    /** Whether the window of this type has been built yet. */
+    boolean isBuilt(Class<? extends Stage> type) {
+        return windows.containsKey(type);
+    }
+
+    /** Shows the window, or brings it to the front if it is already open. */
+    <S extends Stage> S show(Class<S> type) {
+        S window = get(type);
+        if (window.isShowing()) {
+            window.toFront();
+            return window;
+        }
+        refresh(window);
+        window.show();
+        return window;
+    }
+
+    /** Shows the window and waits until it is closed; an open window is only brought to the front. */
+    <S extends Stage> S showAndWait(Class<S> type) {
+        S window = get(type);
+        if (window.isShowing()) {
+            window.toFront();
+            return window;
+        }
+        refresh(window);
+        window.showAndWait();
+        return window;
+    }
+
+    private static void refresh(Stage window) {
+        if (window instanceof Refreshable refreshable) {
+            refreshable.beforeShow();
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package org.example;
+
+import javafx.beans.property.SimpleIntegerProperty;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AutoSaveTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void burstsAreCoalescedAndUnchangedStateIsNotRewritten() throws Exception {
+        Path file = tempDir.resolve("loterie-save.bin");
+        ObservableList<Participant> participants = FXCollections.observableArrayList(new Participant("Alice", 10, ""));
+        ObservableList<String> objets = FXCollections.observableArrayList();
+        SimpleIntegerProperty bonus = new SimpleIntegerProperty();
+        PersistenceService persistence = new PersistenceService();
+        // Tient lieu de thread JavaFX : l'état n'est touché que depuis ce thread.
+        ExecutorService fx = Executors.newSingleThreadExecutor();
+        Files.write(file, new SessionSnapshot(participants, objets, 0, null, null).encode());
+        AutoSave autoSave = new AutoSave(persistence, file, participants, objets, bonus, () -> 7, () -> "sig", 50, fx);
+        onFx(fx, autoSave::start);
+        Files.delete(file);
+
+        onFx(fx, () -> {
+            participants.add(new Participant("Bob", 20, "Dofus"));
+            participants.get(0).setKamas(15);
+            objets.add("Dofus");
+            bonus.set(5);
+        });
+        assertFalse(Files.exists(file), "écrit avant la fin du délai");
+        awaitFile(file);
+        SessionSnapshot saved = SessionSnapshot.decode(Files.readAllBytes(file));
+        assertEquals(List.of("Alice", "Bob"), saved.participants().stream().map(Participant::getName).toList());
+        assertEquals(15, saved.participants().get(0).getKamas());
+        assertEquals(List.of("Dofus"), saved.objets());
+        assertEquals(5, saved.bonus());
+        assertEquals(7, saved.roundId());
+        assertEquals("sig", saved.signature());
+
+        Files.delete(file);
+        onFx(fx, () -> {
+            bonus.set(6);
+            bonus.set(5);
+        });
+        Thread.sleep(300);
+        onFx(fx, () -> { });
+        assertTrue(persistence.shutdown(5_000));
+        assertFalse(Files.exists(file), "un contenu identique ne doit pas être réécrit");
+        assertFalse(Files.exists(tempDir.resolve("loterie-save.bin.tmp")));
+        fx.shutdown();
+    }
+
+    private static void onFx(Executor fx, Runnable action) throws Exception {
+        CompletableFuture.runAsync(action, fx).get(5, TimeUnit.SECONDS);
+    }
+
+    private static void awaitFile(Path file) throws InterruptedException {
+        for (int i = 0; i < 100 && !Files.exists(file); i++) {
+            Thread.sleep(20);
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BinaryLedgerFormatTest {
+
+    private static final String HEADER = "ts;round;type;player;amount\n";
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void importLeavesTheCsvUntouchedAndExportGivesTheLiveRowsBack() throws Exception {
+        Path csv = tempDir.resolve("dons.csv");
+        Files.writeString(csv, HEADER
+                + "2025-01-01T10:00:00;1;DON;Alice;100\n"
+                + "2025-01-01T10:01:00;1;SUPERSEDE;;0\n"
+                + "2025-01-01T10:01:00;1;DON;Alice;150\n"
+                + "2025-01-01T10:02:00;1;PAYOUT;Alice;150\n"
+                + "2025-01-02T10:00:00;2;DON;Bob;40\n"
+                + "2025-01-02T10:00:00;2;BONUS;__BONUS__;10\n", StandardCharsets.UTF_8);
+        assertEquals(1, new DonationsLedger(csv, LedgerSegments.Policy.DISABLED).archiveSettledRounds());
+        // A torn row the ledger would repair on its next launch.
+        Files.writeString(csv, Files.readString(csv, StandardCharsets.UTF_8) + "2025-01-03T10:00:00;3;DO",
+                StandardCharsets.UTF_8);
+        Map<Path, byte[]> before = contents();
+
+        Path binary = tempDir.resolve("out").resolve("dons.bin");
+        Files.createDirectories(binary.getParent());
+        BinaryLedgerFormat.importCsv(csv, binary);
+
+        Map<Path, byte[]> after = contents();
+        assertEquals(before.keySet(), after.keySet());
+        before.forEach((file, bytes) -> assertArrayEquals(bytes, after.get(file), file.toString()));
+
+        Path exported = tempDir.resolve("out").resolve("export.csv");
+        BinaryLedgerFormat.exportCsv(binary, exported);
+        assertEquals(List.of(
+                "2025-01-01T10:01:00;1;DON;Alice;150",
+                "2025-01-01T10:02:00;1;PAYOUT;Alice;150",
+                "2025-01-02T10:00:00;2;DON;Bob;40",
+                "2025-01-02T10:00:00;2;BONUS;__BONUS__;10"),
+                DonationsLedger.readLiveRows(exported).stream().map(DonationEntry::toCsv).toList());
+        assertEquals(List.of("DON:150", "PAYOUT:150", "DON:40", "BONUS:10"),
+                BinaryLedgerFormat.readAll(binary).stream()
+                        .map(entry -> entry.getType() + ":" + entry.getAmount()).toList());
+    }
+
+    private Map<Path, byte[]> contents() throws Exception {
+        Map<Path, byte[]> contents = new TreeMap<>();
+        try (Stream<Path> files = Files.list(tempDir)) {
+            for (Path file : files.filter(Files::isRegularFile).toList()) {
+                contents.put(file.getFileName(), Files.readAllBytes(file));
+            }
+        }
+        return contents;
+    }
+}
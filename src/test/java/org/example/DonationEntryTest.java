@@ -0,0 +1,70 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.StringReader;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DonationEntryTest {
+
+    private static final String LEDGER = "ts;round;type;player;amount\r\n"
+            + "2025-03-01T20:15:07;12;DON;Élodie;15000\r\n"
+            + "\r\n"
+            + "2025-03-01T20:15:07.25;12;BONUS;__BONUS__;500\n"
+            + "not;a;row\n"
+            + "2025-03-01T20:16;12;PAYOUT;Élodie;-3";
+
+    @Test
+    void byteParserMatchesTheCsvFormat() {
+        LocalDateTime now = LocalDateTime.of(2025, 3, 1, 20, 15, 7, 123_456_789);
+        DonationEntry entry = new DonationEntry(now, 7, DonationEntry.Type.SUPERSEDE, "a;b", 0);
+
+        DonationEntry parsed = DonationEntry.fromCsv(entry.toCsv());
+
+        assertEquals(now, parsed.getTimestamp());
+        assertEquals(7, parsed.getRoundId());
+        assertEquals(DonationEntry.Type.SUPERSEDE, parsed.getType());
+        assertEquals("a b", parsed.getPlayer());
+        assertThrows(IllegalArgumentException.class, () -> DonationEntry.fromCsv("2025-03-01T20:15:07;1;DON;A"));
+        assertThrows(IllegalArgumentException.class, () -> DonationEntry.fromCsv("2025-03-01T20:15:07;1;GIFT;A;1"));
+        assertThrows(RuntimeException.class, () -> DonationEntry.fromCsv("2025-02-30T20:15:07;1;DON;A;1"));
+    }
+
+    @Test
+    void channelAndReaderStreamTheSameRows() throws Exception {
+        List<DonationEntry> fromChannel = new ArrayList<>();
+        DonationEntry.forEach(Channels.newChannel(
+                new ByteArrayInputStream(LEDGER.getBytes(StandardCharsets.UTF_8))), fromChannel::add);
+        List<DonationEntry> fromReader = new ArrayList<>();
+        DonationEntry.forEach(new StringReader(LEDGER), fromReader::add);
+
+        assertEquals(3, fromChannel.size());
+        assertEquals(fromChannel.stream().map(DonationEntry::toCsv).toList(),
+                fromReader.stream().map(DonationEntry::toCsv).toList());
+        assertEquals("Élodie", fromChannel.get(0).getPlayer());
+        assertSame(fromChannel.get(0).getPlayer(), fromChannel.get(2).getPlayer());
+        assertEquals(250_000_000, fromChannel.get(1).getTimestamp().getNano());
+        assertEquals(-3, fromChannel.get(2).getAmount());
+    }
+
+    @Test
+    void base64FieldsDecodeLikeTheJdk() {
+        FieldDecoder decoder = new FieldDecoder();
+        for (String value : List.of("a", "ab", "abc", "Gagnant : Zoë — 1 500 000 k")) {
+            byte[] encoded = Base64.getEncoder().encode(value.getBytes(StandardCharsets.UTF_8));
+            assertEquals(value, decoder.base64(encoded, 0, encoded.length));
+            byte[] unpadded = Base64.getEncoder().withoutPadding().encode(value.getBytes(StandardCharsets.UTF_8));
+            assertEquals(value, decoder.base64(unpadded, 0, unpadded.length));
+        }
+        byte[] invalid = "pas du base64!".getBytes(StandardCharsets.UTF_8);
+        assertNull(decoder.base64(invalid, 0, invalid.length));
+    }
+}
@@ -0,0 +1,436 @@
+package org.example;
+
+import javafx.collections.FXCollections;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DonationsLedgerTest {
+
+    private static final String HEADER = "ts;round;type;player;amount\n";
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void carryOverFollowsSnapshotsAndPayouts() throws Exception {
+        DonationsLedger ledger = new DonationsLedger(tempDir.resolve("dons.csv"));
+
+        ledger.upsertRoundSnapshot(1, FXCollections.observableArrayList(
+                new Participant("A", 20_000, ""),
+                new Participant("B", 30_000, "")), 5_000);
+        assertEquals(55_000, ledger.computeCarryOver());
+        assertEquals(2, ledger.getNextRoundId());
+
+        ledger.appendPayout(1, "A", 40_000);
+        assertEquals(15_000, ledger.computeCarryOver());
+        assertEquals(4, ledger.loadAll().size());
+    }
+
+    @Test
+    void replacedSnapshotIsRetractedFromAggregates() throws Exception {
+        DonationsLedger ledger = new DonationsLedger(tempDir.resolve("dons.csv"));
+
+        ledger.upsertRoundSnapshot(1, FXCollections.observableArrayList(
+                new Participant("A", 20_000, ""),
+                new Participant("B", 30_000, "")), 5_000);
+        ledger.upsertRoundSnapshot(1, FXCollections.observableArrayList(
+                new Participant("a", 40_000, "")), 0);
+
+        assertEquals(40_000, ledger.computeCarryOver());
+        Map<String, Integer> totals = ledger.cumulativeByPlayer();
+        assertEquals(1, totals.size());
+        assertEquals(40_000, totals.get("A"));
+        DonationsLedger.RoundRecord record = ledger.findRoundRecord(1).orElseThrow();
+        assertEquals(40_000, record.pot());
+        assertEquals(0, record.bonus());
+        assertEquals(1, ledger.getRoundRecords().size());
+
+        ledger.upsertRoundSnapshot(2, FXCollections.observableArrayList(), 1_000);
+        ledger.upsertRoundSnapshot(2, FXCollections.observableArrayList(), 0);
+        assertEquals(2, ledger.getNextRoundId());
+        assertTrue(ledger.findRoundRecord(2).isEmpty());
+    }
+
+    @Test
+    void snapshotsAreAppendedAndCompactedAway() throws Exception {
+        Path file = tempDir.resolve("dons.csv");
+        DonationsLedger ledger = new DonationsLedger(file);
+
+        for (int kamas = 1; kamas <= 3; kamas++) {
+            ledger.upsertRoundSnapshot(1, FXCollections.observableArrayList(
+                    new Participant("A", kamas * 1_000, "")), 0);
+        }
+        assertEquals(1 + 1 + 2 + 2, Files.readAllLines(file).size());
+        assertEquals(1, ledger.loadAll().size());
+        assertEquals(3_000, ledger.computeCarryOver());
+
+        DonationsLedger reopened = new DonationsLedger(file);
+        assertEquals(3_000, reopened.computeCarryOver());
+
+        reopened.compact();
+        assertEquals(2, Files.readAllLines(file).size());
+        assertEquals(3_000, reopened.computeCarryOver());
+        assertEquals(3_000, reopened.findRoundRecord(1).orElseThrow().pot());
+    }
+
+    @Test
+    void closedSegmentsKeepTotalsThroughTheirSummaries() throws Exception {
+        Path file = tempDir.resolve("dons.csv");
+        DonationsLedger ledger = new DonationsLedger(file, LedgerSegments.Policy.everyRounds(2));
+        for (int round = 1; round <= 3; round++) {
+            ledger.upsertRoundSnapshot(round, FXCollections.observableArrayList(
+                    new Participant("A", 10_000, ""),
+                    new Participant("B", 5_000, "")), 0);
+            ledger.upsertRoundSnapshot(round, FXCollections.observableArrayList(
+                    new Participant("A", 10_000, "")), 1_000);
+            if (round < 3) {
+                ledger.appendPayout(round, "A", 8_000);
+            }
+        }
+
+        assertTrue(Files.exists(tempDir.resolve("dons-0001.csv")));
+        assertTrue(Files.exists(tempDir.resolve("dons-0001.summary")));
+        assertEquals(3 * 11_000 - 2 * 8_000, ledger.computeCarryOver());
+
+        DonationsLedger reopened = new DonationsLedger(file, LedgerSegments.Policy.everyRounds(2));
+        assertEquals(3 * 11_000 - 2 * 8_000, reopened.computeCarryOver());
+        assertEquals(4, reopened.getNextRoundId());
+        assertEquals(3, reopened.getRoundRecords().size());
+        assertEquals(30_000, reopened.cumulativeByPlayer().get("A"));
+        assertEquals("A", reopened.findRoundRecord(1).orElseThrow().winner());
+        assertEquals(3 * 2 + 2, reopened.loadAll().size());
+
+        reopened.resetCarryOver();
+        assertFalse(Files.exists(tempDir.resolve("dons-0001.csv")));
+        assertEquals(0, reopened.computeCarryOver());
+        assertEquals(1, reopened.getNextRoundId());
+    }
+
+    @Test
+    void appendedBytesArePickedUpWithoutReload() throws Exception {
+        Path file = tempDir.resolve("dons.csv");
+        Files.writeString(file, HEADER + "2025-01-01T10:00:00;1;DON;A;100\n", StandardCharsets.UTF_8);
+        DonationsLedger ledger = new DonationsLedger(file);
+        assertEquals(100, ledger.computeCarryOver());
+
+        Files.writeString(file, "2025-01-01T10:05:00;1;DON;B;50\n2025-01-01T10:06:00;2;DO",
+                StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+        assertEquals(150, ledger.computeCarryOver());
+        assertEquals(2, ledger.getNextRoundId());
+
+        Files.writeString(file, "N;C;25\n", StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+        assertEquals(175, ledger.computeCarryOver());
+        assertEquals(3, ledger.getNextRoundId());
+    }
+
+    @Test
+    void tornTrailingRowIsTruncatedOnOpen() throws Exception {
+        Path file = tempDir.resolve("dons.csv");
+        Files.writeString(file, HEADER + "2025-01-01T10:00:00;1;DON;A;100\n2025-01-01T10:00:00;1;DO",
+                StandardCharsets.UTF_8);
+        DonationsLedger ledger = new DonationsLedger(file);
+        assertEquals(100, ledger.computeCarryOver());
+        assertEquals(HEADER + "2025-01-01T10:00:00;1;DON;A;100\n", Files.readString(file));
+
+        ledger.appendPayout(1, "A", 60);
+        DonationsLedger reopened = new DonationsLedger(file);
+        assertEquals(40, reopened.computeCarryOver());
+        assertEquals(2, reopened.loadAll().size());
+    }
+
+    @Test
+    void unterminatedButCompleteRowsAreKeptOnOpen() throws Exception {
+        Path file = tempDir.resolve("dons.csv");
+        Files.writeString(file, HEADER + "2025-01-01T10:00:00;1;DON;A;100", StandardCharsets.UTF_8);
+        DonationsLedger ledger = new DonationsLedger(file);
+        assertEquals(100, ledger.computeCarryOver());
+        ledger.appendPayout(1, "A", 60);
+        assertEquals(List.of("DON:100", "PAYOUT:60"), new DonationsLedger(file).loadAll().stream()
+                .map(entry -> entry.getType() + ":" + entry.getAmount()).toList());
+
+        // A header that lost its terminator is not a reason to throw the file away.
+        Path headerOnly = tempDir.resolve("entete.csv");
+        Files.writeString(headerOnly, "ts;round;type;player;amount", StandardCharsets.UTF_8);
+        assertEquals(0, LedgerWriteAheadLog.recover(headerOnly));
+        assertEquals(HEADER, Files.readString(headerOnly).replace("\r\n", "\n"));
+    }
+
+    @Test
+    void roundIdsAreNotReservedBeforeTheLedgerIsRead() throws Exception {
+        Path file = tempDir.resolve("dons.csv");
+        Files.writeString(file, HEADER + "2025-01-01T10:00:00;1;DON;A;100\n2025-01-02T10:00:00;7;DON;B;50\n",
+                StandardCharsets.UTF_8);
+        DonationsLedger ledger = new DonationsLedger(file);
+        assertEquals(8, ledger.reserveNextRoundId());
+        assertEquals(9, ledger.reserveNextRoundId());
+    }
+
+    @Test
+    void queuedWritesCompleteOnceDurable() throws Exception {
+        Path file = tempDir.resolve("dons.csv");
+        PersistenceService persistence = new PersistenceService();
+        DonationsLedger ledger = new DonationsLedger(file, LedgerSegments.Policy.DISABLED, persistence);
+
+        CompletableFuture<Integer> snapshot = ledger.upsertRoundSnapshotAsync(1,
+                List.of(new Participant("A", 1_000, "")), 0);
+        CompletableFuture<Integer> payout = ledger.appendPayoutAsync(1, "A", 400);
+        assertEquals(1_000, snapshot.get(5, TimeUnit.SECONDS));
+        assertEquals(600, payout.get(5, TimeUnit.SECONDS));
+
+        assertTrue(persistence.shutdown(5_000));
+        ledger.close();
+        assertEquals(600, new DonationsLedger(file).computeCarryOver());
+    }
+
+    @Test
+    void payoutIsDroppedWhenItsSnapshotFailedAndResetWaitsForQueuedWrites() throws Exception {
+        Path file = tempDir.resolve("dons.csv");
+        PersistenceService persistence = new PersistenceService();
+        DonationsLedger ledger = new DonationsLedger(file, LedgerSegments.Policy.DISABLED, persistence);
+        ledger.upsertRoundSnapshotAsync(4, List.of(new Participant("A", 1_000, "")), 0).get(5, TimeUnit.SECONDS);
+
+        CompletableFuture<Integer> payout = ledger.appendPayoutAsync(5, "A", 400,
+                CompletableFuture.failedFuture(new IOException("disque plein")));
+        assertThrows(ExecutionException.class, () -> payout.get(5, TimeUnit.SECONDS));
+        assertEquals(1_000, ledger.computeCarryOver());
+
+        CountDownLatch release = new CountDownLatch(1);
+        persistence.submit("attente", () -> {
+            try {
+                return release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException ex) {
+                throw new IOException(ex);
+            }
+        });
+        CompletableFuture<Void> reset = ledger.resetCarryOverAsync();
+        assertEquals(5, ledger.reserveNextRoundId());
+        release.countDown();
+        reset.get(5, TimeUnit.SECONDS);
+        assertEquals(1, ledger.reserveNextRoundId());
+        assertTrue(persistence.shutdown(5_000));
+    }
+
+    @Test
+    void roundLookupGoesThroughTheSidecarIndex() throws Exception {
+        Path file = tempDir.resolve("dons.csv");
+        DonationsLedger ledger = new DonationsLedger(file, LedgerSegments.Policy.DISABLED);
+        ledger.upsertRoundSnapshot(1, FXCollections.observableArrayList(new Participant("A", 1_000, "")), 0);
+        ledger.upsertRoundSnapshot(2, FXCollections.observableArrayList(new Participant("B", 2_000, "")), 500);
+        ledger.upsertRoundSnapshot(1, FXCollections.observableArrayList(new Participant("A", 3_000, "")), 0);
+        ledger.appendPayout(1, "A", 3_000);
+
+        DonationsLedger.RoundRecord first = new DonationsLedger(file, LedgerSegments.Policy.DISABLED)
+                .findRoundRecord(1).orElseThrow();
+        assertEquals(3_000, first.pot());
+        assertEquals("A", first.winner());
+        assertTrue(Files.exists(tempDir.resolve("dons.csv.idx")));
+
+        Files.writeString(file, "2025-01-01T10:00:00;3;DON;C;70\n", StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+        DonationsLedger reopened = new DonationsLedger(file, LedgerSegments.Policy.DISABLED);
+        assertEquals(70, reopened.findRoundRecord(3).orElseThrow().pot());
+        assertEquals(2_500, reopened.findRoundRecord(2).orElseThrow().pot());
+
+        Files.writeString(file, HEADER + "2025-01-01T10:00:00;2;DON;B;9\n", StandardCharsets.UTF_8);
+        assertEquals(9, reopened.findRoundRecord(2).orElseThrow().pot());
+        assertTrue(reopened.findRoundRecord(1).isEmpty());
+    }
+
+    @Test
+    void shrunkOrRewrittenFileTriggersFullReload() throws Exception {
+        Path file = tempDir.resolve("dons.csv");
+        Files.writeString(file, HEADER + "2025-01-01T10:00:00;1;DON;A;100\n2025-01-01T10:00:00;1;DON;B;200\n",
+                StandardCharsets.UTF_8);
+        DonationsLedger ledger = new DonationsLedger(file);
+        assertEquals(300, ledger.computeCarryOver());
+
+        Files.writeString(file, HEADER + "2025-01-01T10:00:00;1;DON;A;7\n", StandardCharsets.UTF_8);
+        assertEquals(7, ledger.computeCarryOver());
+
+        Files.writeString(file, "TS;ROUND;TYPE;PLAYER;AMOUNT\n2025-01-01T10:00:00;4;DON;A;9\n",
+                StandardCharsets.UTF_8);
+        assertEquals(9, ledger.computeCarryOver());
+        assertEquals(5, ledger.getNextRoundId());
+    }
+
+    @Test
+    void renamedPlayerKeepsAStableIdentity() throws Exception {
+        Path file = tempDir.resolve("dons.csv");
+        Path players = tempDir.resolve("joueurs.txt");
+        PlayerRegistry registry = new PlayerRegistry(players, null);
+        DonationsLedger ledger = new DonationsLedger(file, LedgerSegments.Policy.DISABLED, null, registry);
+        ledger.upsertRoundSnapshot(1, FXCollections.observableArrayList(new Participant("Alice", 100, "")), 0);
+        ledger.upsertRoundSnapshot(1, FXCollections.observableArrayList(
+                new Participant("Alice", 100, ""), new Participant("Bob", 10, "")), 0);
+
+        int id = registry.find("ALICE");
+        assertEquals(id, registry.rename(id, "Alicia"));
+        ledger.upsertRoundSnapshot(2, FXCollections.observableArrayList(new Participant("alicia", 50, "")), 0);
+        ledger.appendPayout(2, "Alice", 120);
+
+        assertEquals(Map.of("Alicia", 150, "Bob", 10), ledger.cumulativeByPlayer());
+        assertEquals("Alicia", ledger.findRoundRecord(2).orElseThrow().winner());
+
+        // Another player's name, current or former, is not taken over.
+        int bob = registry.find("Bob");
+        assertThrows(IllegalArgumentException.class, () -> registry.rename(bob, "alice"));
+        assertEquals("Bob", registry.nameOf(bob));
+
+        // Rewrites give the rows back under the name they were written with.
+        ledger.compact();
+        String rewritten = Files.readString(file, StandardCharsets.UTF_8);
+        assertTrue(rewritten.contains(";1;DON;Alice;100"));
+        assertTrue(rewritten.contains(";2;DON;alicia;50"));
+        ledger.close();
+        Files.deleteIfExists(tempDir.resolve("dons.csv.ckpt"));
+
+        PlayerRegistry reloaded = new PlayerRegistry(players, null);
+        assertEquals(id, reloaded.find("Alice"));
+        assertEquals("Alicia", reloaded.nameOf(id));
+        assertEquals(Map.of("Alicia", 150, "Bob", 10),
+                new DonationsLedger(file, LedgerSegments.Policy.DISABLED, null, reloaded).cumulativeByPlayer());
+    }
+
+    @Test
+    void startupRestoresTheCheckpointAndReplaysOnlyTheTail() throws Exception {
+        Path file = tempDir.resolve("dons.csv");
+        DonationsLedger ledger = new DonationsLedger(file, LedgerSegments.Policy.DISABLED);
+        ledger.upsertRoundSnapshot(1, FXCollections.observableArrayList(new Participant("A", 100, "")), 0);
+        ledger.upsertRoundSnapshot(2, FXCollections.observableArrayList(
+                new Participant("B", 200, ""), new Participant("C", 300, "")), 0);
+        ledger.close();
+        assertTrue(Files.exists(tempDir.resolve("dons.csv.ckpt")));
+
+        // Same length, outside the fingerprinted tail: only visible if round 1 is parsed again.
+        String content = Files.readString(file, StandardCharsets.UTF_8);
+        Files.writeString(file, content.replaceFirst(";1;DON;A;100", ";1;DON;A;900")
+                + "2025-01-01T10:00:00;2;SUPERSEDE;;0\n2025-01-01T10:00:00;2;DON;B;50\n", StandardCharsets.UTF_8);
+
+        DonationsLedger restored = new DonationsLedger(file, LedgerSegments.Policy.DISABLED);
+        assertEquals(150, restored.computeCarryOver());
+        assertEquals(3, restored.getNextRoundId());
+        assertEquals(Map.of("A", 100, "B", 50), restored.cumulativeByPlayer());
+        assertEquals(2, restored.loadAll().size());
+        assertEquals(950, restored.computeCarryOver());
+
+        Files.writeString(tempDir.resolve("dons.csv.ckpt"), "DLGC;1;corrompu\n", StandardCharsets.UTF_8);
+        assertEquals(950, new DonationsLedger(file, LedgerSegments.Policy.DISABLED).computeCarryOver());
+    }
+
+    @Test
+    void parallelChunksMergeLikeASequentialReplay() throws Exception {
+        Path file = tempDir.resolve("dons.csv");
+        StringBuilder csv = new StringBuilder(HEADER);
+        for (int round = 1; round <= 40; round++) {
+            for (int snapshot = 0; snapshot < 3; snapshot++) {
+                if (snapshot > 0) {
+                    csv.append("2025-01-01T10:00:00;").append(round).append(";SUPERSEDE;;0\n");
+                }
+                csv.append("2025-01-01T10:00:0").append(snapshot).append(';').append(round)
+                        .append(";DON;P").append((round + snapshot) % 7).append(';').append(round * 10 + snapshot).append('\n');
+                csv.append("2025-01-01T10:00:00;").append(round).append(";BONUS;__BONUS__;").append(snapshot).append('\n');
+            }
+            if (round % 3 == 0) {
+                csv.append("2025-01-01T10:01:00;").append(round).append(";PAYOUT;P1;").append(round).append('\n');
+            }
+        }
+        Files.writeString(file, csv.append("2025-01-01T10:02:00;41;DO").toString(), StandardCharsets.UTF_8);
+        DonationsLedger sequential = new DonationsLedger(file, LedgerSegments.Policy.DISABLED);
+
+        PlayerRegistry registry = new PlayerRegistry();
+        LedgerAggregates merged = new LedgerAggregates(registry);
+        LedgerParallelLoader.Result result;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            result = LedgerParallelLoader.load(channel, channel.size(), registry, 100);
+        }
+        result.partials().forEach(merged::merge);
+
+        assertTrue(result.partials().size() > 10);
+        assertEquals(Files.size(file) - "2025-01-01T10:02:00;41;DO".length(), result.consumed());
+        assertEquals(40 * 8 + 13, result.store().size());
+        assertEquals(sequential.computeCarryOver(), merged.carryOver());
+        assertEquals(sequential.cumulativeByPlayer(), merged.playerTotals());
+        assertEquals(sequential.getRoundRecords().stream().map(DonationsLedgerTest::describe).toList(),
+                merged.roundRecords().stream().map(DonationsLedgerTest::describe).toList());
+    }
+
+    @Test
+    void settledRoundsMoveToTheArchiveAndStayAuditable() throws Exception {
+        Path file = tempDir.resolve("dons.csv");
+        Files.writeString(file, HEADER
+                + "2025-01-01T10:00:00;1;DON;A;100\n"
+                + "2025-01-01T10:01:00;1;SUPERSEDE;;0\n"
+                + "2025-01-01T10:01:00;1;DON;A;150\n"
+                + "2025-01-01T10:02:00;1;PAYOUT;A;150\n"
+                + "2025-01-02T10:00:00;2;DON;B;40\n", StandardCharsets.UTF_8);
+        DonationsLedger ledger = new DonationsLedger(file, LedgerSegments.Policy.DISABLED);
+        assertEquals(40, ledger.computeCarryOver());
+
+        assertEquals(1, ledger.archiveSettledRounds());
+        assertEquals(HEADER + "2025-01-02T10:00:00;2;DON;B;40\n",
+                Files.readString(file, StandardCharsets.UTF_8).replace("\r\n", "\n"));
+        assertEquals(40, ledger.computeCarryOver());
+        assertEquals(Map.of("A", 150, "B", 40), ledger.cumulativeByPlayer());
+        assertEquals(150, ledger.findRoundRecord(1).orElseThrow().payout());
+        assertEquals(0, ledger.archiveSettledRounds());
+
+        // An interrupted run that never replaced the ledger is rolled back on the next launch.
+        Files.writeString(tempDir.resolve("dons.csv.tmp"), HEADER, StandardCharsets.UTF_8);
+        Files.writeString(tempDir.resolve("dons.csv.archive.idx.pending"), "DLGA;1;0\n", StandardCharsets.UTF_8);
+
+        DonationsLedger reopened = new DonationsLedger(file, LedgerSegments.Policy.DISABLED);
+        assertEquals(40, reopened.computeCarryOver());
+        assertEquals(2, reopened.getRoundRecords().size());
+        assertTrue(reopened.isArchived(1));
+        assertFalse(reopened.isArchived(2));
+        assertEquals(List.of("DON:100", "SUPERSEDE:0", "DON:150", "PAYOUT:150"), reopened.archivedEntries(1).stream()
+                .map(entry -> entry.getType() + ":" + entry.getAmount()).toList());
+        assertFalse(Files.exists(tempDir.resolve("dons.csv.tmp")));
+    }
+
+    @Test
+    void feedCoalescesChangesUntilTheSubscriberRuns() throws Exception {
+        DonationsLedger ledger = new DonationsLedger(tempDir.resolve("dons.csv"), LedgerSegments.Policy.DISABLED);
+        List<Runnable> scheduled = new ArrayList<>();
+        List<List<LedgerFeed.Event>> batches = new ArrayList<>();
+        ledger.feed().subscribe(batches::add, scheduled::add);
+
+        ledger.upsertRoundSnapshot(1, FXCollections.observableArrayList(new Participant("A", 100, "")), 0);
+        ledger.upsertRoundSnapshot(1, FXCollections.observableArrayList(new Participant("A", 150, "")), 20);
+        ledger.appendPayout(1, "A", 170);
+        assertEquals(1, scheduled.size());
+        scheduled.remove(0).run();
+
+        List<LedgerFeed.Event> batch = batches.get(0);
+        assertEquals(List.of(LedgerFeed.Kind.APPENDED, LedgerFeed.Kind.SUPERSEDED,
+                LedgerFeed.Kind.APPENDED, LedgerFeed.Kind.APPENDED), batch.stream().map(LedgerFeed.Event::kind).toList());
+        assertEquals(2, batch.get(2).rows().size());
+        assertEquals(170, batch.get(2).round().pot());
+        assertEquals("A", batch.get(3).round().winner());
+        assertEquals(0, batch.get(3).carryOver());
+
+        ledger.resetCarryOver();
+        scheduled.remove(0).run();
+        assertEquals(LedgerFeed.Kind.RESET, batches.get(1).get(0).kind());
+    }
+
+    private static String describe(DonationsLedger.RoundRecord record) {
+        return record.roundId() + ":" + record.timestamp() + ":" + record.donations() + ":" + record.bonus()
+                + ":" + record.winner() + ":" + record.payout();
+    }
+}
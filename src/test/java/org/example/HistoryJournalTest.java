@@ -0,0 +1,88 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HistoryJournalTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void deletionsAreAppendedAsTombstonesUntilCompaction() throws Exception {
+        Path file = tempDir.resolve("historique.txt");
+        Files.writeString(file, "legacy\na\n~del\t1\n\nb\n", StandardCharsets.UTF_8);
+        PersistenceService persistence = new PersistenceService();
+        HistoryJournal journal = new HistoryJournal(file, persistence, Arrays::copyOfRange);
+        assertEquals(List.of(0, 3), lines(journal.page(Integer.MAX_VALUE, 10, HistoryJournalTest::text)));
+        assertEquals(HistoryJournal.FILE_MAGIC,
+                ByteBuffer.wrap(Files.readAllBytes(file)).order(ByteOrder.LITTLE_ENDIAN).getInt());
+
+        int first = journal.append(bytes("c"));
+        journal.append(bytes("d"));
+        journal.delete(first);
+        assertEquals(List.of("legacy", "b", "d"),
+                values(journal.page(Integer.MAX_VALUE, 10, HistoryJournalTest::text)));
+        assertTrue(persistence.shutdown(5_000));
+
+        PersistenceService writer = new PersistenceService();
+        HistoryJournal reopened = new HistoryJournal(file, writer, Arrays::copyOfRange);
+        assertEquals(List.of("d"), values(reopened.page(Integer.MAX_VALUE, 1, HistoryJournalTest::text)));
+        assertEquals(List.of("b"), values(reopened.page(5, 1, HistoryJournalTest::text)));
+        assertEquals(List.of(), values(reopened.page(0, 1, HistoryJournalTest::text)));
+        assertFalse(reopened.needsCompaction());
+
+        IntStream.range(0, 40).forEach(i -> reopened.append(bytes("x" + i)));
+        IntStream.range(6, 6 + HistoryJournal.COMPACTION_MIN_TOMBSTONES - 2).forEach(reopened::delete);
+        assertTrue(reopened.needsCompaction());
+        assertEquals(List.of(), values(reopened.page(0, 1, HistoryJournalTest::text)));
+        long before = Files.size(file);
+        reopened.compact();
+        assertFalse(reopened.needsCompaction());
+        assertEquals(46, reopened.append(bytes("e")));
+        assertEquals(List.of("x38", "x39", "e"),
+                values(reopened.page(Integer.MAX_VALUE, 3, HistoryJournalTest::text)));
+        assertTrue(writer.shutdown(5_000));
+        assertTrue(Files.size(file) < before);
+
+        // Index perdu : il est reconstruit en relisant le fichier.
+        Files.delete(tempDir.resolve("historique.txt.idx"));
+        PersistenceService reader = new PersistenceService();
+        HistoryJournal rebuilt = new HistoryJournal(file, reader, Arrays::copyOfRange);
+        assertEquals(List.of(0, 3, 5, 20), lines(rebuilt.page(21, 4, HistoryJournalTest::text)));
+        assertEquals(List.of("x14", "x15"), values(rebuilt.page(22, 2, HistoryJournalTest::text)));
+        assertEquals(List.of("legacy", "x38", "x39"),
+                values(rebuilt.read(new int[]{45, 4, 0, 44, 45}, HistoryJournalTest::text)));
+        assertEquals(List.of("x39", "e"), values(rebuilt.since(45, HistoryJournalTest::text)));
+        assertTrue(reader.shutdown(5_000));
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static List<String> values(CompletableFuture<List<HistoryJournal.Record<String>>> page) throws Exception {
+        return page.get(5, TimeUnit.SECONDS).stream().map(HistoryJournal.Record::value).toList();
+    }
+
+    private static List<Integer> lines(CompletableFuture<List<HistoryJournal.Record<String>>> page) throws Exception {
+        return page.get(5, TimeUnit.SECONDS).stream().map(HistoryJournal.Record::line).toList();
+    }
+
+    private static String text(byte[] bytes, int start, int end) {
+        return new String(bytes, start, end - start, StandardCharsets.UTF_8);
+    }
+}
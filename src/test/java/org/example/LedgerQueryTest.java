@@ -0,0 +1,110 @@
+package org.example;
+
+import javafx.collections.FXCollections;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LedgerQueryTest {
+
+    private static final String LEDGER = "ts;round;type;player;amount\n"
+            + "2025-01-01T10:00:00;1;DON;Alice;100\n"
+            + "2025-01-01T10:00:00;1;DON;Bob;300\n"
+            + "2025-01-01T10:01:00;1;SUPERSEDE;;0\n"
+            + "2025-01-01T10:01:00;1;DON;alice;150\n"
+            + "2025-01-01T10:01:00;1;BONUS;__BONUS__;50\n"
+            + "2025-01-01T10:02:00;1;PAYOUT;Bob;200\n"
+            + "2025-01-02T10:00:00;2;DON;Bob;40\n"
+            + "2025-01-02T10:00:00;2;DON;Carol;80\n"
+            + "2025-01-02T10:05:00;2;PAYOUT;Carol;120\n"
+            + "2025-01-03T10:00:00;3;DON;ALICE;10\n";
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void filtersAndRankingsUseTheIndexes() throws Exception {
+        Path file = tempDir.resolve("dons.csv");
+        Files.writeString(file, LEDGER, StandardCharsets.UTF_8);
+        DonationsLedger ledger = new DonationsLedger(file, LedgerSegments.Policy.DISABLED);
+
+        assertEquals(List.of("alice:150", "ALICE:10"), describe(ledger.query().player("Alice")));
+        assertEquals(List.of("Bob:40", "Carol:80", "Carol:120"), describe(ledger.query()
+                .between(LocalDateTime.of(2025, 1, 2, 0, 0), LocalDateTime.of(2025, 1, 3, 0, 0))));
+        assertEquals(List.of("Bob:200", "Carol:120"), describe(ledger.query().types(DonationEntry.Type.PAYOUT)));
+        assertEquals(List.of("__BONUS__:50", "Bob:200"), describe(ledger.query()
+                .types(DonationEntry.Type.BONUS, DonationEntry.Type.PAYOUT)
+                .between(null, LocalDateTime.of(2025, 1, 2, 0, 0))));
+        assertEquals(7, ledger.query().stream().count());
+
+        assertEquals(List.of("Alice=160", "Carol=80"), ranking(ledger.query().topDonors(2)));
+        assertEquals(List.of("Alice=10"), ranking(ledger.query()
+                .between(LocalDateTime.of(2025, 1, 3, 0, 0), null).topDonors(5)));
+        assertEquals(List.of("Bob=200", "Carol=120"), ranking(ledger.query().topWinners(3)));
+        assertEquals(List.of("Carol=120"), ranking(ledger.query()
+                .between(LocalDateTime.of(2025, 1, 2, 0, 0), null).topWinners(3)));
+        assertFalse(ledger.query().player("Nobody").iterator().hasNext());
+    }
+
+    @Test
+    void iteratorsStreamClosedSegmentsFirst() throws Exception {
+        Path file = tempDir.resolve("dons.csv");
+        DonationsLedger ledger = new DonationsLedger(file, LedgerSegments.Policy.everyRounds(1));
+        for (int round = 1; round <= 3; round++) {
+            ledger.upsertRoundSnapshot(round, FXCollections.observableArrayList(
+                    new Participant("P" + round, round * 10, "")), 0);
+        }
+        assertTrue(Files.exists(tempDir.resolve("dons-0002.csv")));
+
+        Iterator<DonationEntry> entries = ledger.query().types(DonationEntry.Type.DON).iterator();
+        ledger.upsertRoundSnapshot(4, FXCollections.observableArrayList(new Participant("P4", 40, "")), 0);
+        List<String> seen = new ArrayList<>();
+        entries.forEachRemaining(entry -> seen.add(entry.getPlayer() + ":" + entry.getAmount()));
+
+        assertEquals(List.of("P1:10", "P2:20", "P3:30"), seen);
+        assertEquals(List.of("P4=40", "P3=30"), ranking(ledger.query()
+                .between(LocalDateTime.of(2000, 1, 1, 0, 0), null).topDonors(2)));
+    }
+
+    @Test
+    void archivingLeavesFilteredResultsUnchanged() throws Exception {
+        Path file = tempDir.resolve("dons.csv");
+        Files.writeString(file, LEDGER, StandardCharsets.UTF_8);
+        DonationsLedger ledger = new DonationsLedger(file, LedgerSegments.Policy.DISABLED);
+        LocalDateTime secondDay = LocalDateTime.of(2025, 1, 2, 0, 0);
+
+        List<List<String>> before = List.of(
+                describe(ledger.query()),
+                describe(ledger.query().player("Alice")),
+                ranking(ledger.query().between(null, secondDay.plusDays(1)).topDonors(5)),
+                ranking(ledger.query().between(secondDay, null).topWinners(5)));
+        assertEquals(2, ledger.archiveSettledRounds());
+        assertFalse(ledger.loadAll().stream().anyMatch(entry -> entry.getRoundId() < 3));
+
+        assertEquals(before, List.of(
+                describe(ledger.query()),
+                describe(ledger.query().player("Alice")),
+                ranking(ledger.query().between(null, secondDay.plusDays(1)).topDonors(5)),
+                ranking(ledger.query().between(secondDay, null).topWinners(5))));
+        assertEquals(List.of("Alice=150", "Carol=80", "Bob=40"), before.get(2));
+    }
+
+    private static List<String> describe(LedgerQuery query) {
+        return query.stream().map(entry -> entry.getPlayer() + ":" + entry.getAmount()).toList();
+    }
+
+    private static List<String> ranking(Iterator<LedgerQuery.Ranked> ranked) {
+        List<String> result = new ArrayList<>();
+        ranked.forEachRemaining(r -> result.add(r.player() + "=" + r.total()));
+        return result;
+    }
+}
@@ -0,0 +1,61 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LedgerStoreTest {
+
+    @Test
+    void rowsRoundTripThroughTheColumns() {
+        LedgerStore store = new LedgerStore(new PlayerRegistry());
+        FieldDecoder decoder = new FieldDecoder();
+        LocalDateTime start = LocalDateTime.of(2024, 2, 28, 23, 59, 59, 999_000_000);
+        for (int i = 0; i < 5_000; i++) {
+            DonationEntry entry = new DonationEntry(start.plusSeconds(i), i / 10,
+                    i % 7 == 0 ? DonationEntry.Type.PAYOUT : DonationEntry.Type.DON, "P" + (i % 3), i);
+            byte[] csv = entry.toCsv().getBytes(StandardCharsets.UTF_8);
+            assertEquals(i, store.addCsv(csv, 0, csv.length, decoder));
+        }
+
+        assertEquals(5_000, store.size());
+        assertEquals(start.plusSeconds(4_321), store.timestamp(4_321));
+        assertEquals(LocalDateTime.of(2024, 2, 29, 0, 0, 0, 999_000_000), store.timestamp(1));
+        assertEquals(store.playerId(2), store.playerId(5));
+        assertEquals("P2", store.player(5));
+
+        long total = 0;
+        int payouts = 0;
+        for (LedgerStore.Cursor cursor = store.cursor(); cursor.next(); ) {
+            if (cursor.type() == DonationEntry.Type.PAYOUT) {
+                payouts++;
+            } else {
+                total += cursor.amount();
+            }
+        }
+        assertEquals(715, payouts);
+        assertEquals(5_000L * 4_999 / 2 - 7L * (714L * 715 / 2), total);
+    }
+
+    @Test
+    void viewsMaterializeLazilyAndSurviveAppends() {
+        LedgerStore store = new LedgerStore(new PlayerRegistry());
+        LocalDateTime ts = LocalDateTime.of(2025, 1, 1, 12, 0);
+        store.add(new DonationEntry(ts, 1, DonationEntry.Type.DON, "A", 10));
+        store.add(new DonationEntry(ts, 1, DonationEntry.Type.SUPERSEDE, "", 0));
+
+        List<DonationEntry> view = store.view(new int[]{0}, 1);
+        for (int i = 0; i < 2_000; i++) {
+            store.add(new DonationEntry(ts, 2, DonationEntry.Type.BONUS, "__BONUS__", i));
+        }
+
+        assertEquals(1, view.size());
+        assertEquals("A", view.get(0).getPlayer());
+        assertEquals(ts, view.get(0).getTimestamp());
+        assertThrows(IndexOutOfBoundsException.class, () -> view.get(1));
+    }
+}
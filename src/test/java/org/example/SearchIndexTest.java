@@ -0,0 +1,44 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SearchIndexTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void prefixQueriesIntersectWordsAndSurviveAReload() throws Exception {
+        SearchIndex index = new SearchIndex();
+        index.add(0, "2025-01-01 10:00:00 - Vainqueur : Éloïse - Gains : 500 k");
+        index.add(1, "2025-01-02 10:00:00 - Perdu Bob Carol");
+        index.add(3, "2025-01-03 10:00:00 - Vainqueur : Bob - Gains : 80 k Eloise");
+        index.add(2, "Perdu bob");
+        index.add(3, "Bob");
+
+        assertArrayEquals(new int[]{3, 0}, index.search("elo", 10));
+        assertArrayEquals(new int[]{3, 2, 1}, index.search("BO", 10));
+        assertArrayEquals(new int[]{3}, index.search("bob vainq", 10));
+        assertArrayEquals(new int[]{3, 2}, index.search("b", 2));
+        assertArrayEquals(new int[0], index.search("bob zed", 10));
+        assertArrayEquals(new int[0], index.search(" - ", 10));
+        assertEquals(4, index.covered());
+
+        Path file = tempDir.resolve("historique.search");
+        SearchIndex.write(file, index.encode());
+        SearchIndex reloaded = SearchIndex.read(file);
+        assertEquals(4, reloaded.covered());
+        assertArrayEquals(new int[]{3, 2, 1}, reloaded.search("bo", 10));
+
+        byte[] damaged = Files.readAllBytes(file);
+        damaged[damaged.length / 2] ^= 1;
+        Files.write(file, damaged);
+        assertEquals(0, SearchIndex.read(file).covered());
+    }
+}
@@ -0,0 +1,68 @@
+package org.example;
+
+import javafx.collections.FXCollections;
+import javafx.collections.ListChangeListener;
+import javafx.collections.ObservableList;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SessionSnapshotTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void fullParticipantStateIsRestoredInOneChangeWithLegacyFallback() throws Exception {
+        List<Participant> roster = new ArrayList<>();
+        IntStream.range(0, 2_000).forEach(i -> {
+            Participant p = new Participant("Joueur" + i, i, i % 3 == 0 ? "Dofus" : "");
+            p.setStake(5_000 + i);
+            p.setPaid(i % 2 == 0);
+            p.setWillReplay(i % 5 != 0);
+            roster.add(p);
+        });
+        Path binary = tempDir.resolve("loterie-save.bin");
+        Path legacy = tempDir.resolve("loterie-save.txt");
+        Files.write(binary, new SessionSnapshot(roster, List.of("Dofus", "Cape"), 250, 12, "joueur1:1;bonus=250").encode());
+
+        SessionSnapshot restored = SessionSnapshot.load(binary, legacy);
+        ObservableList<Participant> participants = FXCollections.observableArrayList();
+        int[] changes = {0};
+        participants.addListener((ListChangeListener<Participant>) change -> changes[0]++);
+        participants.setAll(restored.participants());
+
+        assertEquals(1, changes[0]);
+        assertEquals(2_000, participants.size());
+        Participant sample = participants.get(1_234);
+        assertEquals("Joueur1234", sample.getName());
+        assertEquals(1_234, sample.getKamas());
+        assertEquals(6_234, sample.getStake());
+        assertTrue(sample.isPaid());
+        assertTrue(sample.isWillReplay());
+        assertFalse(participants.get(5).isWillReplay());
+        assertEquals("Dofus", participants.get(3).getDonation());
+        assertEquals(List.of("Dofus", "Cape"), restored.objets());
+        assertEquals(250, restored.bonus());
+        assertEquals(12, restored.roundId());
+        assertEquals("joueur1:1;bonus=250", restored.signature());
+
+        Files.writeString(legacy, "#Participants\nAlice;1 500;Dofus\n#Objets\nCape\n#Bonus\n2k\n", StandardCharsets.UTF_8);
+        byte[] damaged = Files.readAllBytes(binary);
+        damaged[damaged.length / 2] ^= 1;
+        Files.write(binary, damaged);
+        SessionSnapshot fallback = SessionSnapshot.load(binary, legacy);
+        assertEquals(1_500, fallback.participants().get(0).getKamas());
+        assertEquals(List.of("Cape"), fallback.objets());
+        assertEquals(2_000, fallback.bonus());
+        assertNull(fallback.roundId());
+    }
+}
@@ -0,0 +1,59 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StartupLoaderTest {
+
+    @Test
+    void piecesLoadInParallelAndAFailureDoesNotHoldBackTheRest() throws Exception {
+        // Tient lieu de thread JavaFX.
+        ExecutorService fx = Executors.newSingleThreadExecutor();
+        List<String> attached = new ArrayList<>();
+        CompletableFuture<Double> finished = new CompletableFuture<>();
+        CountDownLatch bothRunning = new CountDownLatch(2);
+        CompletableFuture<String> external = new CompletableFuture<>();
+
+        try (StartupLoader loader = new StartupLoader(2, fx)) {
+            CompletableFuture.runAsync(() -> {
+                // Chacune attend l'autre : elles ne finissent que si elles tournent en même temps.
+                loader.load("a", () -> awaitBoth(bothRunning, "a"), attached::add);
+                loader.load("b", () -> awaitBoth(bothRunning, "b"), attached::add);
+                loader.load("panne", () -> {
+                    throw new IOException("disque absent");
+                }, value -> attached.add("panne"));
+                loader.attach("externe", external, attached::add);
+                loader.whenAllAttached(() -> finished.complete(loader.progressProperty().get()));
+            }, fx).get(5, TimeUnit.SECONDS);
+
+            Thread.sleep(100);
+            assertFalse(finished.isDone(), "terminé avant la pièce externe");
+            external.complete("externe");
+
+            assertEquals(1.0, finished.get(5, TimeUnit.SECONDS));
+            List<String> seen = CompletableFuture.supplyAsync(() -> List.copyOf(attached), fx).get(5, TimeUnit.SECONDS);
+            assertEquals(3, seen.size());
+            assertTrue(seen.containsAll(List.of("a", "b", "externe")));
+        } finally {
+            fx.shutdown();
+        }
+    }
+
+    private static String awaitBoth(CountDownLatch latch, String value) throws InterruptedException {
+        latch.countDown();
+        if (!latch.await(5, TimeUnit.SECONDS)) {
+            throw new IllegalStateException("chargements séquentiels");
+        }
+        return value;
+    }
+}
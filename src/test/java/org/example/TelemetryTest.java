@@ -0,0 +1,45 @@
+package org.example;
+
+import javafx.collections.FXCollections;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TelemetryTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void flagRecordsLedgerWritesAndReadsToTheGivenFile() throws Exception {
+        Path recording = tempDir.resolve("bug.jfr");
+        Path ledgerFile = tempDir.resolve("dons.csv");
+
+        String[] rest = Telemetry.startFromArgs(new String[]{"--jfr=" + recording, "--autre"});
+        try {
+            assertArrayEquals(new String[]{"--autre"}, rest);
+            new DonationsLedger(ledgerFile).upsertRoundSnapshot(1, FXCollections.observableArrayList(
+                    new Participant("A", 20_000, ""),
+                    new Participant("B", 30_000, "")), 5_000);
+            assertEquals(55_000, new DonationsLedger(ledgerFile).computeCarryOver());
+        } finally {
+            Telemetry.stop();
+        }
+
+        List<RecordedEvent> events = RecordingFile.readAllEvents(recording);
+        RecordedEvent write = events.stream()
+                .filter(e -> e.getEventType().getName().equals("org.example.LedgerWrite"))
+                .findFirst().orElseThrow();
+        assertEquals(3, write.getInt("rows"));
+        assertTrue(write.getLong("bytes") > 0);
+        assertTrue(events.stream()
+                .filter(e -> e.getEventType().getName().equals("org.example.LedgerRead"))
+                .anyMatch(e -> e.getInt("rows") == 3 && e.getBoolean("full")));
+    }
+}